@@ -0,0 +1,60 @@
+package com.example.langraph4j_researcher.benchmarks;
+
+import java.util.Arrays;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+/**
+ * Runs the benchmarks matching the include pattern given as first argument once for every number of threads in the
+ * {@code benchmark.threads} system property, with the GC profiler to report allocation rates.
+ * Results are written as JSON to {@code target/jmh-result-<threads>-threads.json}.
+ * With the {@code benchmark.smoke} system property every benchmark only runs once, as the build does.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+
+        String include = args.length > 0 ? args[0] : ".*Benchmark.*";
+        if (Boolean.getBoolean("benchmark.smoke")) {
+            smoke(include);
+            return;
+        }
+        int[] threadCounts = Arrays.stream(System.getProperty("benchmark.threads", "1,4,16").split(","))
+            .map(String::strip)
+            .mapToInt(Integer::parseInt)
+            .toArray();
+
+        for (int threads : threadCounts) {
+            Options options = new OptionsBuilder()
+                .include(include)
+                .threads(threads)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-result-" + threads + "-threads.json")
+                .build();
+            new Runner(options).run();
+        }
+    }
+
+    /**
+     * Runs every benchmark for a single short iteration, failing if any of them fails, so the build notices
+     * benchmarks that no longer run long before anyone measures with them.
+     */
+    private static void smoke(String include) throws RunnerException {
+
+        Options options = new OptionsBuilder()
+            .include(include)
+            .threads(1)
+            .warmupIterations(0)
+            .measurementIterations(1)
+            .measurementTime(TimeValue.milliseconds(100))
+            .shouldFailOnError(true)
+            .build();
+        new Runner(options).run();
+    }
+}
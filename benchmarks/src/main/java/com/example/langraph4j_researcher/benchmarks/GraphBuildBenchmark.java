@@ -0,0 +1,53 @@
+package com.example.langraph4j_researcher.benchmarks;
+
+import com.example.langraph4j_researcher.services.AgentBuilderService;
+import com.example.langraph4j_researcher.services.GraphConfig;
+import com.example.langraph4j_researcher.services.State;
+import java.util.concurrent.TimeUnit;
+import org.bsc.langgraph4j.CompiledGraph;
+import org.bsc.langgraph4j.GraphStateException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Cost of building and compiling the research graph, which the compiled graph registry pays once per configuration.
+ */
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GraphBuildBenchmark {
+
+    private final GraphConfig graphConfig = new GraphConfig(2, 3);
+
+    private ConfigurableApplicationContext context;
+    private AgentBuilderService agentBuilderService;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = ResearchContext.start(0, 512);
+        agentBuilderService = context.getBean(AgentBuilderService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public CompiledGraph<State> build() throws GraphStateException {
+        return agentBuilderService.build(graphConfig);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.langraph4j_researcher.benchmarks;
+
+import com.example.langraph4j_researcher.services.ChatService;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Full research runs through the compiled graph against the stub LLM.
+ * With zero latency this measures the per-request overhead of the engine; with latency it shows how
+ * well the research fan-out overlaps LLM calls. Sample time mode reports the latency percentiles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class GraphInvokeBenchmark {
+
+    @Param({"0", "20"})
+    public long latencyMillis;
+
+    @Param({"512", "8192"})
+    public int responseSize;
+
+    private ConfigurableApplicationContext context;
+    private ChatService chatService;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = ResearchContext.start(latencyMillis, responseSize);
+        chatService = context.getBean(ChatService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public String research() {
+        return chatService.research("Why is the sky blue?", UUID.randomUUID().toString());
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.langraph4j_researcher.benchmarks;
+
+import com.example.langraph4j_researcher.Langraph4jResearcherApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Starts the researcher's application context without a web server and with the Ollama chat model replaced by
+ * a {@link StubChatModel}, so benchmarks drive the real services.
+ */
+final class ResearchContext {
+
+    private ResearchContext() {}
+
+    static ConfigurableApplicationContext start(long latencyMillis, int responseSize) {
+
+        return new SpringApplicationBuilder(Langraph4jResearcherApplication.class)
+            .web(WebApplicationType.NONE)
+            .initializers(context -> context.getBeanFactory()
+                .registerSingleton("stubChatModel", new StubChatModel(latencyMillis, responseSize)))
+            // Arguments, not default properties, which application.properties would override
+            .run(
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                // The stub is the only chat model
+                "--spring.ai.model.chat=none",
+                "--spring.ai.model.embedding=none",
+                // Measure the engine, not the limits that protect a real Ollama server
+                "--researcher.ollama.max-in-flight=1024",
+                "--researcher.ollama.max-queued=65536",
+                "--researcher.research.per-request-concurrency=16",
+                "--researcher.research.global-concurrency=1024",
+                // Every run has to reach the LLM and must not touch the disk
+                "--researcher.cache.enabled=false",
+                "--researcher.answers.enabled=false",
+                "--researcher.checkpoint.enabled=false");
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.langraph4j_researcher.benchmarks;
+
+import com.example.langraph4j_researcher.model.ResearchSummary;
+import com.example.langraph4j_researcher.utils.ResponseUtils;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.chat.prompt.Prompt;
+
+/**
+ * Extraction of the JSON block from LLM responses of increasing size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseParsingBenchmark {
+
+    @Param({"512", "8192", "65536"})
+    public int responseSize;
+
+    private String llmResponse;
+
+    @Setup
+    public void createResponse() {
+        llmResponse = new StubChatModel(0, responseSize).call(new Prompt("Research Topic: Why is the sky blue?"))
+            .getResult().getOutput().getText();
+    }
+
+    @Benchmark
+    public Map<String, Object> extractJson() {
+        return ResponseUtils.extractJsonFromLLMResponse(llmResponse);
+    }
+
+    @Benchmark
+    public ResearchSummary extractTypedJson() {
+        return ResponseUtils.extractJsonFromLLMResponse(llmResponse, ResearchSummary.class);
+    }
+}
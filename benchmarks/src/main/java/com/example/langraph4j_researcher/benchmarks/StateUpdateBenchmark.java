@@ -0,0 +1,91 @@
+package com.example.langraph4j_researcher.benchmarks;
+
+import com.example.langraph4j_researcher.config.ResearchProperties;
+import com.example.langraph4j_researcher.model.ResearchResult;
+import com.example.langraph4j_researcher.services.ContextAssembler;
+import com.example.langraph4j_researcher.services.State;
+import com.example.langraph4j_researcher.services.SystemPrompts;
+import com.example.langraph4j_researcher.utils.PromptTemplate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.bsc.langgraph4j.state.AgentState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * State channel updates and prompt assembly as done by the research and reflection nodes,
+ * for a growing number of research summaries.
+ */
+@org.openjdk.jmh.annotations.State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StateUpdateBenchmark {
+
+    @Param({"2", "8", "32"})
+    public int summaryCount;
+
+    private Map<String, Object> state;
+    private Map<String, Object> researchNodeUpdate;
+    private final ContextAssembler contextAssembler = new ContextAssembler(new ResearchProperties());
+    private final PromptTemplate reflectionPrompt = PromptTemplate.compile(SystemPrompts.REFLECTION_PROMPT);
+
+    @Setup
+    public void createState() {
+        List<ResearchResult> results = new ArrayList<>();
+        for (int i = 0; i < summaryCount; i++) {
+            results.add(new ResearchResult("query " + i, summary(new Random(i)), 0));
+        }
+        state = AgentState.updateState(Map.of(), Map.of(
+            State.USER_QUERY, "Why is the sky blue?",
+            State.RESEARCH_RESULTS, results,
+            State.RESEARCH_NODE_EXECUTION_COUNT, 1), State.SCHEMA);
+
+        // The research node returns only the results of its round
+        researchNodeUpdate = Map.of(
+            State.RESEARCH_RESULTS, List.of(new ResearchResult("follow up", "Summary of the follow up query. ".repeat(20), 1)),
+            State.RESEARCH_NODE_EXECUTION_COUNT, 2);
+    }
+
+    @Benchmark
+    public Map<String, Object> updateState() {
+        return AgentState.updateState(state, researchNodeUpdate, State.SCHEMA);
+    }
+
+    // The graph runner clones the state for every node and every snapshot
+    @Benchmark
+    public State cloneState() throws Exception {
+        return State.SERIALIZER.cloneObject(state);
+    }
+
+    @Benchmark
+    public PromptTemplate.Rendered renderReflectionPrompt() {
+        List<String> summaries = new State(state).getResearchSummaries();
+        return reflectionPrompt.render(Map.of("user_question", "Why is the sky blue?",
+            "summaries", contextAssembler.assemble("Why is the sky blue?", summaries)));
+    }
+
+    // Mostly distinct words, so summaries are not treated as duplicates of each other
+    private static String summary(Random random) {
+        StringBuilder summary = new StringBuilder("The sky is blue. ");
+        for (int sentence = 0; sentence < 20; sentence++) {
+            for (int word = 0; word < 10; word++) {
+                summary.append("term").append(random.nextInt(1000)).append(word == 9 ? ". " : " ");
+            }
+        }
+        return summary.toString();
+    }
+}
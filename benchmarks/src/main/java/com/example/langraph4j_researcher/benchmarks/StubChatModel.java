@@ -0,0 +1,71 @@
+package com.example.langraph4j_researcher.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+/**
+ * Deterministic stand-in for the Ollama chat model.
+ * It recognises which graph node a prompt belongs to and answers in the format that node expects, after a fixed
+ * latency and with text of a fixed size, so benchmarks measure everything but the LLM. Reflection never reports
+ * the research as sufficient, so every run goes through the maximum number of research rounds.
+ */
+public class StubChatModel implements ChatModel {
+
+    private static final String FILLER = "Rayleigh scattering makes shorter wavelengths scatter more strongly. ";
+    private static final int STREAM_CHUNK_SIZE = 16;
+
+    private final long latencyNanos;
+    private final String text;
+
+    public StubChatModel(long latencyMillis, int responseSize) {
+        this.latencyNanos = TimeUnit.MILLISECONDS.toNanos(latencyMillis);
+        this.text = FILLER.repeat(responseSize / FILLER.length() + 1).substring(0, responseSize);
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        if (latencyNanos > 0) {
+            LockSupport.parkNanos(latencyNanos);
+        }
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(respond(prompt.getContents())))));
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        String response = call(prompt).getResult().getOutput().getText();
+        List<ChatResponse> chunks = new ArrayList<>();
+        for (int i = 0; i < response.length(); i += STREAM_CHUNK_SIZE) {
+            String chunk = response.substring(i, Math.min(response.length(), i + STREAM_CHUNK_SIZE));
+            chunks.add(new ChatResponse(List.of(new Generation(new AssistantMessage(chunk)))));
+        }
+        return Flux.fromIterable(chunks);
+    }
+
+    private String respond(String prompt) {
+        String json;
+        if (prompt.contains("generate sophisticated and diverse web search queries")) {
+            json = """
+                {"rationale": "%s", "query": ["Why is the sky blue", "Rayleigh scattering wavelength dependence"]}"""
+                .formatted(text);
+        } else if (prompt.contains("analyzing summaries about")) {
+            json = """
+                {"isSufficient": false, "knowledgeGap": "%s", "followUpQueries": ["Why are sunsets red"]}"""
+                .formatted(text);
+        } else if (prompt.contains("Generate a high-quality answer")) {
+            json = """
+                {"synthesisedResponse": "%s"}""".formatted(text);
+        } else {
+            json = """
+                {"summary": "%s"}""".formatted(text);
+        }
+        return "<think>\nThe user wants a deterministic answer.\n</think>\n<json>\n" + json + "\n</json>";
+    }
+}
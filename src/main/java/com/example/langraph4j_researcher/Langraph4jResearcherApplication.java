@@ -2,8 +2,10 @@ package com.example.langraph4j_researcher;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class Langraph4jResearcherApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,32 @@
+package com.example.langraph4j_researcher.config;
+
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * Creates the {@link OllamaApi} of an Ollama server from the HTTP clients configured in {@link OllamaClientConfig}.
+ * Only the Ollama APIs use these clients, other {@code RestClient}s and {@code WebClient}s of the application keep
+ * their own.
+ */
+public class OllamaApiFactory {
+
+    private final RestClient.Builder restClientBuilder;
+
+    private final WebClient.Builder webClientBuilder;
+
+    public OllamaApiFactory(RestClient.Builder restClientBuilder, WebClient.Builder webClientBuilder) {
+        this.restClientBuilder = restClientBuilder;
+        this.webClientBuilder = webClientBuilder;
+    }
+
+    public OllamaApi create(String baseUrl) {
+
+        // OllamaApi sets its base URL and headers on the builders it is given
+        return OllamaApi.builder()
+            .baseUrl(baseUrl)
+            .restClientBuilder(restClientBuilder.clone())
+            .webClientBuilder(webClientBuilder.clone())
+            .build();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.langraph4j_researcher.config;
+
+import java.net.http.HttpClient;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.ai.model.ollama.autoconfigure.OllamaConnectionDetails;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.common.OllamaApiConstants;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.reactive.JdkClientHttpConnector;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * HTTP clients used to talk to the Ollama servers.
+ * Blocking calls go through a pooled Apache HttpClient, streamed calls through the JDK HttpClient, which keeps its
+ * connections alive as well; both use the timeouts of {@code researcher.ollama}. The clients are set on the
+ * {@link OllamaApi} replacing Spring AI's, and on the APIs of the configured backends, not on the application-wide
+ * {@code RestClient.Builder}.
+ */
+@Configuration
+public class OllamaClientConfig {
+
+    @Bean
+    public CloseableHttpClient ollamaHttpClient(ResearchProperties researchProperties) {
+
+        ResearchProperties.Ollama ollama = researchProperties.getOllama();
+
+        ConnectionConfig connectionConfig = ConnectionConfig.custom()
+            .setConnectTimeout(Timeout.of(ollama.getConnectTimeout()))
+            .setSocketTimeout(Timeout.of(ollama.getReadTimeout()))
+            .setTimeToLive(TimeValue.ofMinutes(5))
+            .build();
+
+        return HttpClients.custom()
+            .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(ollama.getMaxConnections())
+                .setMaxConnPerRoute(ollama.getMaxConnections())
+                .setDefaultConnectionConfig(connectionConfig)
+                .build())
+            .evictIdleConnections(TimeValue.ofSeconds(30))
+            .build();
+    }
+
+    @Bean
+    public HttpClient ollamaStreamingHttpClient(ResearchProperties researchProperties) {
+
+        return HttpClient.newBuilder()
+            .connectTimeout(researchProperties.getOllama().getConnectTimeout())
+            .build();
+    }
+
+    @Bean
+    public OllamaApiFactory ollamaApiFactory(CloseableHttpClient ollamaHttpClient, HttpClient ollamaStreamingHttpClient,
+        ResearchProperties researchProperties, ObjectProvider<RestClient.Builder> restClientBuilder,
+        ObjectProvider<WebClient.Builder> webClientBuilder) {
+
+        JdkClientHttpConnector connector = new JdkClientHttpConnector(ollamaStreamingHttpClient);
+        // Bounds the wait for the response to start, the tokens of a streamed response may take longer
+        connector.setReadTimeout(researchProperties.getOllama().getReadTimeout());
+
+        return new OllamaApiFactory(
+            restClientBuilder.getIfAvailable(RestClient::builder).clone()
+                .requestFactory(new HttpComponentsClientHttpRequestFactory(ollamaHttpClient)),
+            webClientBuilder.getIfAvailable(WebClient::builder).clone()
+                .clientConnector(connector));
+    }
+
+    /**
+     * Spring AI only defines its connection details while one of its Ollama models is enabled, without them the
+     * base URL is read from the property directly.
+     */
+    @Bean
+    public OllamaApi ollamaApi(ObjectProvider<OllamaConnectionDetails> connectionDetails,
+        @Value("${spring.ai.ollama.base-url:" + OllamaApiConstants.DEFAULT_BASE_URL + "}") String baseUrl,
+        OllamaApiFactory ollamaApiFactory) {
+
+        return ollamaApiFactory.create(connectionDetails.getIfAvailable(() -> () -> baseUrl).getBaseUrl());
+    }
+}
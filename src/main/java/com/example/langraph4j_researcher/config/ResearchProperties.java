@@ -0,0 +1,365 @@
+package com.example.langraph4j_researcher.config;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Externalised configuration of the research agent, bound from the {@code researcher.*} properties.
+ */
+@Data
+@ConfigurationProperties(prefix = "researcher")
+public class ResearchProperties {
+
+    private Graph graph = new Graph();
+
+    private Research research = new Research();
+
+    private Cache cache = new Cache();
+
+    private Ollama ollama = new Ollama();
+
+    private Checkpoint checkpoint = new Checkpoint();
+
+    private Scheduler scheduler = new Scheduler();
+
+    private Context context = new Context();
+
+    private Reflection reflection = new Reflection();
+
+    private Routing routing = new Routing();
+
+    private Depth depth = new Depth();
+
+    private Retrieval retrieval = new Retrieval();
+
+    private Batch batch = new Batch();
+
+    private Prompts prompts = new Prompts();
+
+    private Answers answers = new Answers();
+
+    private Admin admin = new Admin();
+
+    @Data
+    public static class Graph {
+
+        // Maximum number of initial research queries to generate
+        private int maxQueryCount = 2;
+
+        // Maximum number of research cycles before forcing termination
+        private int maxResearchNodeExecutionCount = 3;
+    }
+
+    @Data
+    public static class Research {
+
+        // Maximum number of research queries of a single request that run at the same time
+        private int perRequestConcurrency = 4;
+
+        // Maximum number of research queries that run at the same time across all requests
+        private int globalConcurrency = 8;
+
+        // Time a single research query may take once started before it is abandoned
+        private Duration queryTimeout = Duration.ofMinutes(3);
+    }
+
+    @Data
+    public static class Cache {
+
+        // Whether research summaries are cached at all
+        private boolean enabled = true;
+
+        // Maximum number of cached research summaries
+        private long maximumSize = 10_000;
+
+        // Time a cached research summary stays valid
+        private Duration ttl = Duration.ofHours(24);
+
+        private Semantic semantic = new Semantic();
+
+        @Data
+        public static class Semantic {
+
+            // Whether a cache miss falls back to the summary of the most similar cached query
+            private boolean enabled = false;
+
+            // Minimum cosine similarity of two queries for them to share a summary
+            private double similarityThreshold = 0.92;
+        }
+    }
+
+    @Data
+    public static class Ollama {
+
+        // Maximum number of requests sent to the Ollama server at the same time
+        private int maxInFlight = 4;
+
+        // Maximum number of requests waiting for an in-flight slot, further requests are rejected
+        private int maxQueued = 64;
+
+        // Time a queued request waits for an in-flight slot before it is rejected
+        private Duration admissionTimeout = Duration.ofMinutes(2);
+
+        // Size of the HTTP connection pool to the Ollama server
+        private int maxConnections = 16;
+
+        private Duration connectTimeout = Duration.ofSeconds(5);
+
+        // Time to wait for the response of a single LLM call
+        private Duration readTimeout = Duration.ofMinutes(5);
+
+        // Ollama servers LLM calls are spread across, the server of spring.ai.ollama.base-url with maxInFlight if empty
+        private List<Backend> backends = new ArrayList<>();
+
+        // Interval of the health checks of the backends, which also find out the models each backend has loaded
+        private Duration healthCheckInterval = Duration.ofSeconds(10);
+
+        // Consecutive failed calls or health checks after which a backend is taken out of rotation
+        private int failureThreshold = 3;
+
+        // Time a backend is out of rotation before a trial call may go to it again
+        private Duration circuitOpenDuration = Duration.ofSeconds(30);
+
+        private Hedging hedging = new Hedging();
+
+        @Data
+        public static class Backend {
+
+            // Base URL of the Ollama server, e.g. http://gpu-1:11434
+            private String url;
+
+            // Maximum number of requests sent to this server at the same time
+            private int maxInFlight = 4;
+        }
+
+        @Data
+        public static class Hedging {
+
+            // Whether a slow call of a hedged node is sent to a second backend, the first response is used
+            private boolean enabled = false;
+
+            // Graph nodes whose calls are hedged, short calls whose latency holds up the whole run
+            private Set<String> nodes = new HashSet<>(Set.of("generateQueryNode", "reflectionNode"));
+
+            // Latency percentile of the node after which a call is hedged
+            private double percentile = 0.95;
+
+            // Number of calls of a node measured before its calls are hedged
+            private int minSamples = 20;
+        }
+    }
+
+    @Data
+    public static class Checkpoint {
+
+        // Whether research runs are checkpointed after every node so they can be resumed
+        private boolean enabled = true;
+
+        // Directory holding one checkpoint log per run
+        private Path directory = Path.of("data", "checkpoints");
+
+        // Number of records a log may grow to before it is compacted
+        private int compactionThreshold = 16;
+
+        // Number of most recent checkpoints a compacted log keeps
+        private int retainedCheckpoints = 4;
+
+        // Whether every checkpoint is forced to disk before the run continues
+        private boolean fsync = true;
+
+        // Whether the log of a run is deleted once the run completed
+        private boolean deleteOnCompletion = true;
+    }
+
+    @Data
+    public static class Scheduler {
+
+        // Maximum number of research jobs that run at the same time
+        private int maxConcurrentJobs = 2;
+
+        // Maximum number of research jobs waiting to run, further jobs are rejected
+        private int queueCapacity = 32;
+
+        // Tenant of every API key clients send, requests without a key or with an unknown one share one tenant
+        private Map<String, String> apiKeys = new HashMap<>();
+
+        // Share of the research capacity of every tenant relative to the others, tenants not listed have weight 1
+        private Map<String, Integer> tenantWeights = new HashMap<>();
+
+        // Expected duration of a research job until enough jobs completed to measure it
+        private Duration initialJobDurationEstimate = Duration.ofMinutes(1);
+    }
+
+    @Data
+    public static class Context {
+
+        // Estimated tokens of research summaries in a prompt, leave room for the instructions and the answer in the context window of the model
+        private int tokenBudget = 3000;
+
+        // Estimated tokens a single summary is truncated to
+        private int maxSummaryTokens = 800;
+
+        // Summaries that would have to be truncated below this many tokens to fit the budget are left out instead
+        private int minSummaryTokens = 64;
+
+        // Share of words two summaries must have in common to be treated as duplicates
+        private double duplicateSimilarity = 0.8;
+    }
+
+    @Data
+    public static class Reflection {
+
+        // Whether reflection only sends the results of the latest research round along with a running summary of the earlier ones
+        private boolean incremental = true;
+
+        // Estimated tokens the running summary of the earlier research rounds is truncated to
+        private int maxCoverageTokens = 400;
+    }
+
+    @Data
+    public static class Routing {
+
+        // Model routes by graph node name, nodes without a route use the default chat model and options
+        private Map<String, Route> nodes = new HashMap<>();
+
+        // Weight of the latest call in the moving average of the latency of a model
+        private double latencySmoothing = 0.2;
+
+        // Time after which a call of a node is sent to a model over its latency budget again, to measure it anew
+        private Duration probeInterval = Duration.ofMinutes(1);
+
+        @Data
+        public static class Route {
+
+            // Models in order of preference, later models are the fallbacks of earlier ones, the default model if empty
+            private List<String> models = new ArrayList<>();
+
+            // Sampling temperature, the default of the model if not set
+            private Double temperature;
+
+            // Context window in tokens, the default of the model if not set
+            private Integer numCtx;
+
+            // Whether reasoning models think before answering, the default of the model if not set
+            private Boolean think;
+
+            // Models slower than this on average for the node are only used as fallbacks, no limit if not set
+            private Duration latencyBudget;
+        }
+    }
+
+    @Data
+    public static class Depth {
+
+        // Whether the novelty of the research and the latency budget decide when to stop, not only the reflection verdict
+        private boolean adaptive = true;
+
+        // Research stops once a round adds less than this share of new information to the earlier rounds
+        private double minNovelty = 0.2;
+
+        // A round adding at least this share of new information earns extra rounds beyond the maximum
+        private double widenNovelty = 0.6;
+
+        // Maximum number of research rounds a run may take beyond the maximum of the graph
+        private int maxExtraRounds = 1;
+
+        // Time a run may take, no more research rounds are started when the next one would not fit, no limit if not set
+        private Duration runLatencyBudget;
+
+        // Whether novelty is measured by the distance of summary embeddings rather than by the words they share
+        private boolean embeddingNovelty = false;
+
+        // Whether the final answer is generated while the last reflection runs, and discarded if more research follows
+        private boolean speculativeFinalAnswer = false;
+    }
+
+    @Data
+    public static class Retrieval {
+
+        // Where research queries retrieve the passages they are answered from, none to answer them from the LLM alone
+        private Source source = Source.NONE;
+
+        // Maximum number of passages a research query is answered from
+        private int topK = 4;
+
+        private Local local = new Local();
+
+        public enum Source {
+            NONE,
+            LOCAL
+        }
+
+        @Data
+        public static class Local {
+
+            // Directory of the .txt and .md documents to index, including its subdirectories
+            private Path corpusDirectory = Path.of("data", "corpus");
+
+            // Directory the index of the documents is kept in
+            private Path indexDirectory = Path.of("data", "index");
+
+            // Estimated tokens of the passages documents are split into
+            private int maxPassageTokens = 200;
+
+            // Whether passages are embedded with the Ollama embedding model and also retrieved by vector similarity
+            private boolean vectors = false;
+
+            // Whether documents added, changed or deleted since the last ingestion are ingested at startup
+            private boolean ingestOnStartup = true;
+        }
+    }
+
+    @Data
+    public static class Batch {
+
+        // Directory holding the input, results and progress of every batch job
+        private Path directory = Path.of("data", "batches");
+
+        // Number of questions of a batch researched at the same time, 0 for as many as the research job scheduler runs
+        private int concurrency = 0;
+    }
+
+    @Data
+    public static class Prompts {
+
+        // Directory of further prompt versions, one file per version at <prompt>/<version>.txt
+        private Path directory = Path.of("prompts");
+
+        // Weights of the versions runs are split between by prompt name, prompts without variants use version v1
+        private Map<String, Map<String, Integer>> variants = new HashMap<>();
+
+        // Estimated tokens of a rendered prompt above which a warning is logged, 0 to not check, keep it within num_ctx
+        private int maxPromptTokens = 4096;
+    }
+
+    @Data
+    public static class Answers {
+
+        // Whether final answers are stored and concurrent runs of the same question share a single run
+        private boolean enabled = true;
+
+        // Directory of the log the final answers are stored in
+        private Path directory = Path.of("data", "answers");
+
+        // Time after which a stored answer is no longer returned and the question is researched again
+        private Duration ttl = Duration.ofHours(24);
+
+        // Whether every stored answer is flushed to disk before it is returned
+        private boolean fsync = true;
+    }
+
+    @Data
+    public static class Admin {
+
+        // Whether the endpoints that change the graph configuration or drop stored answers for every user are mapped
+        private boolean enabled = false;
+    }
+}
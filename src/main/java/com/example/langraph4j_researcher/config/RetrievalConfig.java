@@ -0,0 +1,43 @@
+package com.example.langraph4j_researcher.config;
+
+import com.example.langraph4j_researcher.services.LocalIndexResearchSource;
+import com.example.langraph4j_researcher.services.ResearchSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Source of the passages research queries are answered from, selected by {@code researcher.retrieval.source}.
+ */
+@Slf4j
+@Configuration
+public class RetrievalConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "researcher.retrieval.source", havingValue = "local")
+    public LocalIndexResearchSource localIndexResearchSource(ResearchProperties researchProperties,
+        ObjectProvider<EmbeddingModel> embeddingModel, MeterRegistry meterRegistry) {
+
+        LocalIndexResearchSource researchSource = new LocalIndexResearchSource(researchProperties,
+            embeddingModel.getIfAvailable(), meterRegistry);
+        if (researchProperties.getRetrieval().getLocal().isIngestOnStartup()) {
+            try {
+                researchSource.ingest();
+            } catch (RuntimeException e) {
+                // The documents ingested before are still searchable
+                log.error("Failed to ingest the research corpus", e);
+            }
+        }
+        return researchSource;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "researcher.retrieval.source", havingValue = "none", matchIfMissing = true)
+    public ResearchSource noResearchSource() {
+        return ResearchSource.NONE;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.langraph4j_researcher.controllers;
+
+import com.example.langraph4j_researcher.services.AnswerStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Drops stored answers for every user, so only mapped with {@code researcher.admin.enabled=true} like
+ * {@link GraphAdminController}.
+ */
+@RestController
+@RequestMapping("/answers")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "researcher.admin.enabled", havingValue = "true")
+public class AnswerController {
+
+    private final AnswerStore answerStore;
+
+    /**
+     * Drops the stored answer to the question in the request body, so it is researched again the next time it is asked.
+     */
+    @DeleteMapping
+    public ResponseEntity<Void> invalidate(@RequestBody String question) {
+
+        return answerStore.invalidate(question)
+            ? ResponseEntity.noContent().build()
+            : ResponseEntity.notFound().build();
+    }
+
+    @DeleteMapping("all")
+    public ResponseEntity<Void> invalidateAll() {
+
+        answerStore.invalidateAll();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.langraph4j_researcher.controllers;
+
+import com.example.langraph4j_researcher.services.BatchResearchService;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/batch")
+@RequiredArgsConstructor
+public class BatchController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final BatchResearchService batchResearchService;
+
+    /**
+     * Researches every question of the JSONL request body in the background. The request body is streamed to disk,
+     * so batches of any size are accepted; the returned status holds the id to follow the batch with.
+     */
+    @PostMapping
+    public ResponseEntity<BatchResearchService.BatchStatus> submit(InputStream questions) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(batchResearchService.submit(questions));
+    }
+
+    @GetMapping("{batchId}")
+    public BatchResearchService.BatchStatus status(@PathVariable String batchId) {
+        return batchResearchService.status(batchId);
+    }
+
+    /**
+     * Continues a batch that was interrupted, researching only the questions that have no answer yet.
+     */
+    @PostMapping("{batchId}/resume")
+    public ResponseEntity<BatchResearchService.BatchStatus> resume(@PathVariable String batchId) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(batchResearchService.resume(batchId));
+    }
+
+    /**
+     * The results written so far, one JSON object per line in the order the questions were answered.
+     */
+    @GetMapping("{batchId}/results")
+    public ResponseEntity<Resource> results(@PathVariable String batchId) {
+
+        Path results = batchResearchService.resultsFile(batchId);
+        if (!Files.exists(results)) {
+            return ResponseEntity.ok().contentType(NDJSON).build();
+        }
+        return ResponseEntity.ok().contentType(NDJSON).body(new FileSystemResource(results));
+    }
+}
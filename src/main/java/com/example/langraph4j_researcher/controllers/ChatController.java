@@ -1,25 +1,105 @@
 package com.example.langraph4j_researcher.controllers;
 
 import com.example.langraph4j_researcher.services.ChatService;
+import com.example.langraph4j_researcher.services.JobRejectedException;
+import com.example.langraph4j_researcher.services.ResearchJobScheduler;
+import jakarta.servlet.http.HttpServletResponse;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import lombok.RequiredArgsConstructor;
-import org.bsc.langgraph4j.GraphStateException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 @RestController
 @RequestMapping("/chat")
 @RequiredArgsConstructor
 public class ChatController {
 
+    static final String RUN_ID_HEADER = "X-Run-Id";
+    static final String TENANT_HEADER = "X-Api-Key";
+    static final String PRIORITY_HEADER = "X-Priority";
+
     private final ChatService chatService;
+    private final ResearchJobScheduler researchJobScheduler;
 
+    /**
+     * Researches the query. The id of the run is returned in the {@value #RUN_ID_HEADER} header, also when
+     * the run fails, so the run can be resumed. Clients may choose the run id by sending the header.
+     * Research capacity is shared fairly between the tenants of the API keys in {@value #TENANT_HEADER}, and jobs of
+     * one tenant with a higher {@value #PRIORITY_HEADER} run first.
+     */
     @GetMapping("query")
     @ResponseBody
-    public String getUserQueryResponse(@RequestBody String query) throws GraphStateException {
+    public CompletableFuture<String> getUserQueryResponse(@RequestBody String query,
+        @RequestHeader(value = RUN_ID_HEADER, required = false) String runId,
+        @RequestHeader(value = TENANT_HEADER, required = false) String apiKey,
+        @RequestHeader(value = PRIORITY_HEADER, defaultValue = "0") int priority, HttpServletResponse response) {
+
+        String effectiveRunId = runIdOrNew(runId);
+        response.setHeader(RUN_ID_HEADER, effectiveRunId);
+
+        return researchJobScheduler.submit(researchJobScheduler.tenantOf(apiKey), priority,
+            () -> chatService.research(query, effectiveRunId));
+    }
+
+    /**
+     * Continues a run that failed from its last checkpoint.
+     */
+    @PostMapping("runs/{runId}/resume")
+    @ResponseBody
+    public CompletableFuture<String> resumeRun(@PathVariable String runId,
+        @RequestHeader(value = TENANT_HEADER, required = false) String apiKey,
+        @RequestHeader(value = PRIORITY_HEADER, defaultValue = "0") int priority) {
+
+        return researchJobScheduler.submit(researchJobScheduler.tenantOf(apiKey), priority,
+            () -> chatService.resume(runId));
+    }
+
+    /**
+     * Streams the progress of the research as server-sent events, one per graph node,
+     * followed by the tokens of the final answer. The request thread is released immediately.
+     */
+    @GetMapping(value = "stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> streamUserQueryResponse(@RequestBody String query,
+        @RequestHeader(value = RUN_ID_HEADER, required = false) String runId,
+        @RequestHeader(value = TENANT_HEADER, required = false) String apiKey,
+        @RequestHeader(value = PRIORITY_HEADER, defaultValue = "0") int priority) {
+
+        // Acquired eagerly so that a full queue is rejected before the event stream starts
+        CompletableFuture<ResearchJobScheduler.JobSlot> slot =
+            researchJobScheduler.acquire(researchJobScheduler.tenantOf(apiKey), priority);
+
+        // A client that goes away while queued gives up its place in the queue, or the slot handed out meanwhile.
+        // Once the run started, the slot is held until the run ends, which may be after the client went away.
+        return Mono.fromFuture(slot)
+            .doOnDiscard(ResearchJobScheduler.JobSlot.class, ResearchJobScheduler.JobSlot::release)
+            .flatMapMany(acquired -> chatService.researchStream(query, runIdOrNew(runId), acquired::release))
+            .map(event -> ServerSentEvent.builder(event.data()).event(event.type()).build());
+    }
+
+    @ExceptionHandler(JobRejectedException.class)
+    public ResponseEntity<String> jobRejected(JobRejectedException e) {
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfter().toSeconds()))
+            .body(e.getMessage());
+    }
 
-        return chatService.research(query);
+    private static String runIdOrNew(String runId) {
+        return runId == null || runId.isBlank() ? UUID.randomUUID().toString() : runId;
     }
 }
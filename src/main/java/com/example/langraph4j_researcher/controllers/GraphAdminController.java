@@ -0,0 +1,34 @@
+package com.example.langraph4j_researcher.controllers;
+
+import com.example.langraph4j_researcher.services.CompiledGraphRegistry;
+import com.example.langraph4j_researcher.services.GraphConfig;
+import lombok.RequiredArgsConstructor;
+import org.bsc.langgraph4j.GraphStateException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Changes the research graph for every user, so only mapped with {@code researcher.admin.enabled=true}. The endpoint
+ * is not authenticated, enable it only where the API is not reachable by untrusted clients.
+ */
+@RestController
+@RequestMapping("/graph")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "researcher.admin.enabled", havingValue = "true")
+public class GraphAdminController {
+
+    private final CompiledGraphRegistry compiledGraphRegistry;
+
+    /**
+     * Hot reloads the research graph; new requests use the new configuration immediately.
+     */
+    @PutMapping("config")
+    public GraphConfig reloadConfig(@RequestBody GraphConfig graphConfig) throws GraphStateException {
+
+        compiledGraphRegistry.reload(graphConfig);
+        return compiledGraphRegistry.getActiveConfig();
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.langraph4j_researcher.controllers;
+
+import com.example.langraph4j_researcher.services.CompiledGraphRegistry;
+import com.example.langraph4j_researcher.services.GraphConfig;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/graph")
+@RequiredArgsConstructor
+public class GraphController {
+
+    private final CompiledGraphRegistry compiledGraphRegistry;
+
+    @GetMapping("config")
+    public GraphConfig getActiveConfig() {
+
+        return compiledGraphRegistry.getActiveConfig();
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.langraph4j_researcher.controllers;
+
+import com.example.langraph4j_researcher.services.AnswerStore;
+import com.example.langraph4j_researcher.services.LocalIndexResearchSource;
+import com.example.langraph4j_researcher.services.ResearchCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/retrieval")
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "researcher.retrieval.source", havingValue = "local")
+public class RetrievalController {
+
+    private final LocalIndexResearchSource localIndexResearchSource;
+    private final ResearchCache researchCache;
+    private final AnswerStore answerStore;
+
+    /**
+     * Ingests the documents added, changed or deleted in the corpus directory since the last ingestion.
+     * Cached research summaries and stored answers may be based on the previous documents and are dropped if anything
+     * changed.
+     */
+    @PostMapping("ingest")
+    public LocalIndexResearchSource.IngestionStats ingest() {
+
+        LocalIndexResearchSource.IngestionStats stats = localIndexResearchSource.ingest();
+        if (stats.changed()) {
+            researchCache.invalidateAll();
+            answerStore.invalidateAll();
+        }
+        return stats;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.langraph4j_researcher.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Result of a question of a batch, one line of the results of the batch.
+ *
+ * @param line line of the question in the input of the batch, starting at 1
+ * @param id id the question was given in the input, if any
+ * @param query the question
+ * @param answer final answer to the question, null if researching it failed
+ * @param error why researching the question failed, null if it was answered
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BatchResult(int line, String id, String query, String answer, String error) {}
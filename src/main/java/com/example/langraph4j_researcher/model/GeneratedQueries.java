@@ -0,0 +1,13 @@
+package com.example.langraph4j_researcher.model;
+
+import java.util.List;
+
+/**
+ * Response of the LLM to the query generation prompt.
+ */
+public record GeneratedQueries(String rationale, List<String> query) {
+
+    public GeneratedQueries {
+        query = query == null ? List.of() : query;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.langraph4j_researcher.model;
+
+/**
+ * Passage of a document retrieved for a research query.
+ *
+ * @param source name of the document the passage was taken from
+ * @param text text of the passage
+ * @param score relevance of the passage to the query, only comparable between passages of the same retrieval
+ */
+public record Passage(String source, String text, double score) {}
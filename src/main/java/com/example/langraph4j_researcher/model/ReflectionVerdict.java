@@ -0,0 +1,22 @@
+package com.example.langraph4j_researcher.model;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Response of the LLM to the reflection prompt, kept in the state of the run.
+ * The coverage, a running summary of what the research established so far, is only asked for by incremental reflection.
+ */
+public record ReflectionVerdict(boolean isSufficient, String knowledgeGap, List<String> followUpQueries, String coverage)
+    implements Serializable {
+
+    public ReflectionVerdict {
+        knowledgeGap = knowledgeGap == null ? "" : knowledgeGap;
+        followUpQueries = followUpQueries == null ? List.of() : List.copyOf(followUpQueries);
+        coverage = coverage == null ? "" : coverage;
+    }
+
+    public ReflectionVerdict withCoverage(String coverage) {
+        return new ReflectionVerdict(isSufficient, knowledgeGap, followUpQueries, coverage);
+    }
+}
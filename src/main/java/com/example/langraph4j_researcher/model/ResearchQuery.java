@@ -0,0 +1,11 @@
+package com.example.langraph4j_researcher.model;
+
+import java.io.Serializable;
+
+/**
+ * A web research query of a run.
+ *
+ * @param query text of the query
+ * @param round research round the query is researched in, 0 for the initial queries
+ */
+public record ResearchQuery(String query, int round) implements Serializable {}
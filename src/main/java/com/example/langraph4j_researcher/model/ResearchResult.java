@@ -0,0 +1,12 @@
+package com.example.langraph4j_researcher.model;
+
+import java.io.Serializable;
+
+/**
+ * Summary of the findings for a research query of a run.
+ *
+ * @param query text of the query that was researched
+ * @param summary summary of the findings
+ * @param round research round the query was researched in
+ */
+public record ResearchResult(String query, String summary, int round) implements Serializable {}
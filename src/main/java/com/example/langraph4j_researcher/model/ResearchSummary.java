@@ -0,0 +1,7 @@
+package com.example.langraph4j_researcher.model;
+
+/**
+ * Response of the LLM to the research prompt.
+ */
+public record ResearchSummary(String summary) {
+}
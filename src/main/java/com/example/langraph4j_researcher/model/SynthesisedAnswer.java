@@ -0,0 +1,9 @@
+package com.example.langraph4j_researcher.model;
+
+/**
+ * Response of the LLM to the final answer prompt.
+ */
+public record SynthesisedAnswer(String synthesisedResponse) {
+
+    public static final String FIELD = "synthesisedResponse";
+}
@@ -1,186 +1,439 @@
 package com.example.langraph4j_researcher.services;
 
+import com.example.langraph4j_researcher.config.ResearchProperties;
+import com.example.langraph4j_researcher.model.GeneratedQueries;
+import com.example.langraph4j_researcher.model.Passage;
+import com.example.langraph4j_researcher.model.ReflectionVerdict;
+import com.example.langraph4j_researcher.model.ResearchQuery;
+import com.example.langraph4j_researcher.model.ResearchResult;
+import com.example.langraph4j_researcher.model.ResearchSummary;
+import com.example.langraph4j_researcher.model.SynthesisedAnswer;
 import com.example.langraph4j_researcher.utils.ResponseUtils;
-import java.util.ArrayList;
+import com.example.langraph4j_researcher.utils.StreamingJsonExtractor;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bsc.langgraph4j.CompileConfig;
 import org.bsc.langgraph4j.CompiledGraph;
 import org.bsc.langgraph4j.GraphStateException;
+import org.bsc.langgraph4j.RunnableConfig;
 import org.bsc.langgraph4j.StateGraph;
 import org.bsc.langgraph4j.action.AsyncEdgeAction;
+import org.bsc.langgraph4j.action.AsyncNodeActionWithConfig;
 import org.bsc.langgraph4j.action.EdgeAction;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
-import static org.bsc.langgraph4j.action.AsyncNodeAction.node_async;
+import static org.bsc.langgraph4j.action.AsyncNodeActionWithConfig.node_async;
 
 /**
  * Service responsible for building and configuring the LangGraph agent.
  * This service defines the workflow for research-based topic exploration
  * using a directed graph approach with multiple specialized nodes.
  */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class AgentBuilderService {
 
-    // Maximum number of initial research queries to generate
-    private static final int MAX_QUERY_COUNT = 2;
+    /**
+     * {@link RunnableConfig} metadata key of a {@code Consumer<String>} that receives the tokens
+     * of the final answer as they are generated. Without it the final answer is generated in one call.
+     */
+    public static final String TOKEN_CONSUMER = "tokenConsumer";
 
-    // Maximum number of research cycles before forcing termination
-    private static final int MAX_RESEARCH_NODE_EXECUTION_COUNT = 3;
+    /**
+     * {@link RunnableConfig} metadata key of the {@link Instant} the run started at, which the latency budget of the
+     * run is measured from. Without it the run has no latency budget.
+     */
+    public static final String RUN_STARTED_AT = "runStartedAt";
+
+    /**
+     * {@link RunnableConfig} metadata key of a {@link ResearchMemo} shared with other runs, so research queries they
+     * have in common are researched once.
+     */
+    public static final String RESEARCH_MEMO = "researchMemo";
+
+    static final String GENERATE_QUERY_NODE = "generateQueryNode";
+    static final String RESEARCH_NODE = "researchNode";
+    static final String REFLECTION_NODE = "reflectionNode";
+    static final String FINAL_ANSWER_NODE = "finalAnswerNode";
 
     private final OllamaService ollamaService;
+    private final FileCheckpointSaver checkpointSaver;
+    private final ResearchProperties researchProperties;
+    private final ResearchExecutor researchExecutor;
+    private final ResearchCache researchCache;
+    private final ResearchObservations researchObservations;
+    private final ContextAssembler contextAssembler;
+    private final NoveltyEstimator noveltyEstimator;
+    private final ResearchDepthController researchDepthController;
+    private final SpeculativeFinalAnswers speculativeFinalAnswers;
+    private final ResearchSource researchSource;
+    private final PromptCatalog promptCatalog;
 
     /**
      * Builds and compiles the research agent graph structure.
      * The graph defines the workflow of the research process:
      * 1. Generate initial queries
      * 2. Conduct research for each query
-     * 3. Reflect on results and determine if more research is needed
+     * 3. Reflect on results and determine if more research is needed, see {@link ResearchDepthController}
      * 4. Either continue with follow-up queries or generate final answer
+     * Every node is observed, see {@link ResearchObservations}.
+     * Compilation is not free, callers should obtain graphs through {@link CompiledGraphRegistry}.
      */
-    public CompiledGraph<State> build() throws GraphStateException {
-
-        // Define the conditional edge function that determines whether to continue research or finish
-        var shouldContinue = (EdgeAction<State>) state -> {
-
-            int researchNodeExecutionCount = state.getIntegerValueFromMap(State.RESEARCH_NODE_EXECUTION_COUNT);
-            boolean isSufficient = state.getBoolValueFromMap(State.IS_SUFFICIENT);
-
-            if (isSufficient || researchNodeExecutionCount >= MAX_RESEARCH_NODE_EXECUTION_COUNT) {
-                return "end";
-            }
-            return "searchMore";
-        };
+    public CompiledGraph<State> build(GraphConfig graphConfig) throws GraphStateException {
+
+        // The reflection node decides whether to continue research or finish
+        var shouldContinue = (EdgeAction<State>) state ->
+            Boolean.TRUE.equals(state.getBoolValueFromMap(State.CONTINUE_RESEARCH)) ? "searchMore" : "end";
+
+        StateGraph<State> stateGraph = new StateGraph<>(State.SCHEMA, State.SERIALIZER)
+            .addNode(GENERATE_QUERY_NODE, researchObservations.observeNode(GENERATE_QUERY_NODE,
+                (state, config) -> executeGenerateQueryNode(state, config, graphConfig)))
+            // The research node fans its queries out on the research executor, which blocks for their results
+            .addNode(RESEARCH_NODE, researchObservations.observeNode(RESEARCH_NODE,
+                node_async((state, config) -> executeResearchNode(state, config))))
+            .addNode(REFLECTION_NODE, researchObservations.observeNode(REFLECTION_NODE,
+                (state, config) -> executeReflectionNode(state, config, graphConfig)))
+            .addNode(FINAL_ANSWER_NODE, researchObservations.observeNode(FINAL_ANSWER_NODE,
+                AgentBuilderService.this::executeFinalAnswerNode))
+            .addEdge(StateGraph.START, GENERATE_QUERY_NODE)
+            .addEdge(GENERATE_QUERY_NODE, RESEARCH_NODE)
+            .addEdge(RESEARCH_NODE, REFLECTION_NODE)
+            .addConditionalEdges(REFLECTION_NODE, AsyncEdgeAction.edge_async(shouldContinue),
+                Map.of("end", FINAL_ANSWER_NODE,
+                    "searchMore", RESEARCH_NODE))
+            .addEdge(FINAL_ANSWER_NODE, StateGraph.END);
+
+        return stateGraph.compile(compileConfig());
+    }
 
-        StateGraph<State> stateGraph = new StateGraph<>(State.SCHEMA, State::new)
-            .addNode("generateQueryNode", node_async(AgentBuilderService.this::executeGenerateQueryNode))
-            .addNode("researchNode", node_async(AgentBuilderService.this::executeResearchNode))
-            .addNode("reflectionNode", node_async(AgentBuilderService.this::executeReflectionNode))
-            .addNode("finalAnswerNode", node_async(AgentBuilderService.this::executeFinalAnswerNode))
-            .addEdge(StateGraph.START, "generateQueryNode")
-            .addEdge("generateQueryNode", "researchNode")
-            .addEdge("researchNode", "reflectionNode")
-            .addConditionalEdges("reflectionNode", AsyncEdgeAction.edge_async(shouldContinue),
-                Map.of("end", "finalAnswerNode",
-                    "searchMore", "researchNode"))
-            .addEdge("finalAnswerNode", StateGraph.END);
+    /**
+     * With checkpointing enabled every node's output is saved, and the checkpoints of a run
+     * are released once it reaches the end of the graph.
+     */
+    private CompileConfig compileConfig() {
 
-        return stateGraph.compile();
+        if (!researchProperties.getCheckpoint().isEnabled()) {
+            return CompileConfig.builder().build();
+        }
+        return CompileConfig.builder()
+            .checkpointSaver(checkpointSaver)
+            .releaseThread(true)
+            .build();
     }
 
     /**
      * Generates initial research queries based on the user's input.
      * This is the first step in the research process.
      */
-    private Map<String, Object> executeGenerateQueryNode(State state) {
+    private CompletableFuture<Map<String, Object>> executeGenerateQueryNode(State state, RunnableConfig config,
+        GraphConfig graphConfig) {
 
         String userPrompt = state.getStringValueFromMap(State.USER_QUERY);
-        String systemPrompt = SystemPrompts.GENERATE_QUERY_PROMPT;
 
-        String llmPrompt = String.format(systemPrompt, MAX_QUERY_COUNT, userPrompt);
+        String llmPrompt = promptCatalog.render(PromptCatalog.GENERATE_QUERY, config.threadId().orElse(null),
+            Map.of("max_queries", graphConfig.maxQueryCount(), "user_question", userPrompt));
 
-        String llmResponseStr = ollamaService.getLLMResponse(llmPrompt);
-        Map<String, Object> llmResponse = ResponseUtils.extractJsonFromLLMResponse(llmResponseStr);
+        return ollamaService.getLLMResponseAsync(GENERATE_QUERY_NODE, llmPrompt).thenApply(llmResponseStr -> {
 
-        List<String> researchQueries = (List<String>) llmResponse.get("query");
+            GeneratedQueries generatedQueries = parse(GENERATE_QUERY_NODE, llmResponseStr, GeneratedQueries.class);
 
-        return Map.of(State.RESEARCH_QUERIES, researchQueries);
+            return Map.of(State.RESEARCH_QUERIES, researchQueries(generatedQueries.query(), 0));
+        });
     }
 
     /**
      * Executes research for each query (original or follow-up).
      * This node is responsible for gathering information based on the queries.
+     * Only the results of this round are returned, the state appends them to the earlier ones.
      */
-    private Map<String, Object> executeResearchNode(State state) {
-
-        List<String> researchQueries = state.getListOfStringValueFromMap(State.RESEARCH_QUERIES);
-        List<String> followUpQueries = state.getListOfStringValueFromMap(State.FOLLOW_UP_QUERIES);
-        List<String> researchQueryResults = state.getListOfStringValueFromMap(State.RESEARCH_QUERIES_RESULT);
+    private Map<String, Object> executeResearchNode(State state, RunnableConfig config) {
 
-        // Process either follow-up queries (if available) or original queries
-        if (followUpQueries != null && !followUpQueries.isEmpty()) {
-            // Process follow-up queries from reflection node
+        int round = state.getIntegerValueFromMap(State.RESEARCH_NODE_EXECUTION_COUNT);
 
-            List<String> followUpQueryResults = getResearchQueryResults(followUpQueries);
-            researchQueryResults.addAll(followUpQueryResults);
-
-        } else {
-            // Process original queries from generate query node
-            List<String> originalQueryResults = getResearchQueryResults(researchQueries);
-            researchQueryResults.addAll(originalQueryResults);
+        // Process either the follow-up queries of this round (if available) or the original queries
+        List<String> researchQueries = state.getResearchQueries(round);
+        if (researchQueries.isEmpty()) {
+            researchQueries = state.getResearchQueries(0);
         }
 
+        ResearchMemo researchMemo = (ResearchMemo) config.getMetadata(RESEARCH_MEMO).orElse(null);
+        List<ResearchResult> researchResults = getResearchQueryResults(researchQueries, round, researchMemo);
+
         // Increment the execution counter to track iteration count
-        int researchNodeExecutionCount = state.getIntegerValueFromMap(State.RESEARCH_NODE_EXECUTION_COUNT);
-        researchNodeExecutionCount++;
+        return Map.of(State.RESEARCH_RESULTS, researchResults,
+            State.RESEARCH_NODE_EXECUTION_COUNT, round + 1);
+    }
+
+    /**
+     * Researches all queries in parallel. Results keep the order of the queries,
+     * queries that failed are left out.
+     */
+    private List<ResearchResult> getResearchQueryResults(List<String> researchQueries, int round,
+        ResearchMemo researchMemo) {
+
+        return researchExecutor.executeAll(researchQueries, researchQuery ->
+            new ResearchResult(researchQuery, getResearchQueryResult(researchQuery, researchMemo), round));
+    }
 
+    private String getResearchQueryResult(String researchQuery, ResearchMemo researchMemo) {
 
-        return Map.of(State.RESEARCH_QUERIES_RESULT, researchQueryResults,
-            State.RESEARCH_NODE_EXECUTION_COUNT, researchNodeExecutionCount);
+        if (researchMemo == null) {
+            return researchCache.getOrResearch(researchQuery, this::executeResearchQuery);
+        }
+        return researchMemo.getOrResearch(researchQuery,
+            query -> researchCache.getOrResearch(query, this::executeResearchQuery));
     }
 
-    private List<String> getResearchQueryResults(List<String> researchQueries) {
+    /**
+     * Researches a query from the passages the research source retrieves for it, or from what the LLM knows if it
+     * retrieves none.
+     */
+    private String executeResearchQuery(String researchQuery) {
+
+        List<Passage> passages = retrievePassages(researchQuery);
+        // Summaries are shared between runs by research query, so is the prompt version
+        String llmPrompt = passages.isEmpty()
+            ? promptCatalog.render(PromptCatalog.RESEARCH, researchQuery, Map.of("research_topic", researchQuery))
+            : promptCatalog.render(PromptCatalog.GROUNDED_RESEARCH, researchQuery,
+                Map.of("research_topic", researchQuery, "passages", formatPassages(passages)));
+        String llmResponseStr = ollamaService.getLLMResponse(RESEARCH_NODE, llmPrompt);
+        return parse(RESEARCH_NODE, llmResponseStr, ResearchSummary.class).summary();
+    }
 
-        String systemPrompt = SystemPrompts.RESEARCH_PROMPT;
+    private List<Passage> retrievePassages(String researchQuery) {
 
-        List<String> researchQueryResults = new ArrayList<>();
+        try {
+            return researchSource.retrieve(researchQuery, researchProperties.getRetrieval().getTopK());
+        } catch (RuntimeException e) {
+            // Research can still go on without passages
+            log.warn("Failed to retrieve passages for research query [{}]", researchQuery, e);
+            return List.of();
+        }
+    }
 
-        for (String researchQuery : researchQueries) {
+    private static String formatPassages(List<Passage> passages) {
 
-            String llmPrompt = String.format(systemPrompt, researchQuery, researchQuery);
-            String llmResponseStr = ollamaService.getLLMResponse(llmPrompt);
-            Map<String, Object> llmResponse = ResponseUtils.extractJsonFromLLMResponse(llmResponseStr);
-            String summary = (String) llmResponse.get("summary");
-            researchQueryResults.add(summary);
+        StringBuilder formatted = new StringBuilder();
+        for (Passage passage : passages) {
+            formatted.append('[').append(passage.source()).append("]\n").append(passage.text()).append("\n\n");
         }
-        return researchQueryResults;
+        return formatted.toString().strip();
     }
 
     /**
      * Evaluates the research results to determine if they sufficiently answer the user's query.
      * If not, generates follow-up queries to fill knowledge gaps.
+     * With speculation enabled the final answer is generated at the same time, in case this is the last reflection.
+     */
+    private CompletableFuture<Map<String, Object>> executeReflectionNode(State state, RunnableConfig config,
+        GraphConfig graphConfig) {
+
+        Optional<String> speculationRunId = speculationRunId(config);
+        speculationRunId.ifPresent(runId -> {
+            String finalAnswerPrompt = finalAnswerPrompt(state, config);
+            speculativeFinalAnswers.start(runId, finalAnswerPrompt,
+                () -> ollamaService.getLLMResponseAsync(FINAL_ANSWER_NODE, finalAnswerPrompt));
+        });
+
+        CompletableFuture<Map<String, Object>> reflection = researchProperties.getReflection().isIncremental()
+            ? executeIncrementalReflection(state, config)
+            : executeFullReflection(state, config);
+
+        return reflection.thenApply(update -> {
+
+            ReflectionVerdict verdict = (ReflectionVerdict) update.get(State.REFLECTIONS);
+            boolean continueResearch = decideNextStep(state, config, graphConfig, verdict);
+            if (continueResearch) {
+                speculationRunId.ifPresent(speculativeFinalAnswers::discard);
+            }
+            Map<String, Object> decidedUpdate = new HashMap<>(update);
+            decidedUpdate.put(State.CONTINUE_RESEARCH, continueResearch);
+            return decidedUpdate;
+        }).whenComplete((update, e) -> {
+            if (e != null) {
+                speculationRunId.ifPresent(speculativeFinalAnswers::discard);
+            }
+        });
+    }
+
+    /**
+     * Speculation needs the run id to hand the answer over to the final answer node, and is skipped for streamed runs
+     * whose final answer is streamed as it is generated anyway.
      */
-    private Map<String, Object> executeReflectionNode(State state) {
+    private Optional<String> speculationRunId(RunnableConfig config) {
+
+        if (!researchProperties.getDepth().isSpeculativeFinalAnswer() || config.getMetadata(TOKEN_CONSUMER).isPresent()) {
+            return Optional.empty();
+        }
+        return config.threadId();
+    }
+
+    /**
+     * Decides whether to research another round from the verdict, the novelty of the latest round and the time the
+     * run took so far.
+     */
+    private boolean decideNextStep(State state, RunnableConfig config, GraphConfig graphConfig, ReflectionVerdict verdict) {
+
+        int rounds = state.getIntegerValueFromMap(State.RESEARCH_NODE_EXECUTION_COUNT);
+        double novelty = noveltyEstimator.novelty(state.getResearchSummariesBefore(rounds - 1),
+            state.getResearchSummaries(rounds - 1));
+        Duration elapsed = config.getMetadata(RUN_STARTED_AT)
+            .map(startedAt -> Duration.between((Instant) startedAt, Instant.now()))
+            .orElse(null);
 
-        List<String> researchQueryResults = state.getListOfStringValueFromMap(State.RESEARCH_QUERIES_RESULT);
+        return researchDepthController.decide(verdict, rounds, novelty, graphConfig, elapsed).continueResearch();
+    }
+
+    /**
+     * Reflects on all research results of the run.
+     */
+    private CompletableFuture<Map<String, Object>> executeFullReflection(State state, RunnableConfig config) {
+
+        List<String> researchQueryResults = state.getResearchSummaries();
+        String userPrompt = state.getStringValueFromMap(State.USER_QUERY);
+
+        String llmPrompt = promptCatalog.render(PromptCatalog.REFLECTION, config.threadId().orElse(null), Map.of(
+            "user_question", userPrompt,
+            "summaries", contextAssembler.assemble(userPrompt, researchQueryResults)));
+
+        return ollamaService.getLLMResponseAsync(REFLECTION_NODE, llmPrompt).thenApply(llmResponseStr -> {
+
+            ReflectionVerdict verdict = parse(REFLECTION_NODE, llmResponseStr, ReflectionVerdict.class);
+
+            return Map.of(
+                State.REFLECTIONS, verdict,
+                State.RESEARCH_QUERIES, followUpQueries(state, verdict));
+        });
+    }
+
+    /**
+     * Reflects only on the research results added since the previous reflection, together with the running summary
+     * of what the earlier rounds established and the knowledge gap they left. The prompt then stays about the same size
+     * however many research rounds the run takes, instead of growing with every round.
+     */
+    private CompletableFuture<Map<String, Object>> executeIncrementalReflection(State state, RunnableConfig config) {
+
+        List<String> researchQueryResults = state.getResearchSummaries();
+        int reflectedResultCount = Math.min(state.getIntegerValueFromMap(State.REFLECTED_RESULT_COUNT),
+            researchQueryResults.size());
+        List<String> newResults = researchQueryResults.subList(reflectedResultCount, researchQueryResults.size());
         String userPrompt = state.getStringValueFromMap(State.USER_QUERY);
-        String systemPrompt = SystemPrompts.REFLECTION_PROMPT;
 
-        String llmPrompt = String.format(systemPrompt, userPrompt, researchQueryResults.stream().collect(
-            Collectors.joining("\n\n-----\n\n")));
+        Optional<ReflectionVerdict> lastReflection = state.getLastReflection();
+
+        String llmPrompt = promptCatalog.render(PromptCatalog.INCREMENTAL_REFLECTION, config.threadId().orElse(null),
+            Map.of(
+                "user_question", userPrompt,
+                "coverage", orNone(lastReflection.map(ReflectionVerdict::coverage).orElse(null)),
+                "knowledge_gap", orNone(lastReflection.map(ReflectionVerdict::knowledgeGap).orElse(null)),
+                "summaries", contextAssembler.assemble(userPrompt, newResults)));
 
-        String llmResponseStr = ollamaService.getLLMResponse(llmPrompt);
-        Map<String, Object> llmResponse = ResponseUtils.extractJsonFromLLMResponse(llmResponseStr);
+        return ollamaService.getLLMResponseAsync(REFLECTION_NODE, llmPrompt).thenApply(llmResponseStr -> {
 
-        Boolean isSufficient = ((Boolean) llmResponse.get("isSufficient"));
-        List<String> followUpQueries = ((List<String>) llmResponse.get("followUpQueries"));
+            ReflectionVerdict verdict = parse(REFLECTION_NODE, llmResponseStr, ReflectionVerdict.class);
 
-        return Map.of(
-            State.IS_SUFFICIENT, isSufficient,
-            State.FOLLOW_UP_QUERIES, followUpQueries);
+            return Map.of(
+                State.REFLECTIONS, verdict.withCoverage(ContextAssembler.truncate(verdict.coverage(),
+                    researchProperties.getReflection().getMaxCoverageTokens())),
+                State.RESEARCH_QUERIES, followUpQueries(state, verdict),
+                State.REFLECTED_RESULT_COUNT, researchQueryResults.size());
+        });
+    }
+
+    private static String orNone(String text) {
+        return text == null || text.isBlank() ? "None yet." : text;
+    }
+
+    /**
+     * The follow-up queries of the verdict, to be researched in the next research round.
+     */
+    private static List<ResearchQuery> followUpQueries(State state, ReflectionVerdict verdict) {
+        return researchQueries(verdict.followUpQueries(), state.getIntegerValueFromMap(State.RESEARCH_NODE_EXECUTION_COUNT));
+    }
+
+    private static List<ResearchQuery> researchQueries(List<String> queries, int round) {
+        return queries.stream().map(query -> new ResearchQuery(query, round)).toList();
     }
 
     /**
      * Generates the final answer by synthesizing all research results.
      * This is the last step in the research process.
+     * Tokens are streamed to the {@link #TOKEN_CONSUMER} of the run, if there is one.
      */
-    private Map<String, Object> executeFinalAnswerNode(State state) {
+    private CompletableFuture<Map<String, Object>> executeFinalAnswerNode(State state, RunnableConfig config) {
+
+        String llmPrompt = finalAnswerPrompt(state, config);
+
+        CompletableFuture<String> llmResponseFuture = config.getMetadata(TOKEN_CONSUMER)
+            .map(tokenConsumer -> streamLLMResponse(llmPrompt, (Consumer<String>) tokenConsumer))
+            .orElseGet(() -> speculativeResponse(config, llmPrompt)
+                // A failed speculation is retried like any other call would be
+                .map(speculation -> speculation.exceptionallyCompose(e ->
+                    ollamaService.getLLMResponseAsync(FINAL_ANSWER_NODE, llmPrompt)))
+                .orElseGet(() -> ollamaService.getLLMResponseAsync(FINAL_ANSWER_NODE, llmPrompt)));
+
+        return llmResponseFuture.thenApply(llmResponseStr -> {
+
+            SynthesisedAnswer answer = parse(FINAL_ANSWER_NODE, llmResponseStr, SynthesisedAnswer.class);
+            researchObservations.recordResearchIterations(state.getIntegerValueFromMap(State.RESEARCH_NODE_EXECUTION_COUNT));
+
+            return Map.of(State.FINAL_ANSWER, answer.synthesisedResponse());
+        });
+    }
+
+    private String finalAnswerPrompt(State state, RunnableConfig config) {
 
         String userPrompt = state.getStringValueFromMap(State.USER_QUERY);
-        List<String> researchQueryResults = state.getListOfStringValueFromMap(State.RESEARCH_QUERIES_RESULT);
-        String systemPrompt = SystemPrompts.FINAL_ANSWER_PROMPT;
+        List<String> researchQueryResults = state.getResearchSummaries();
 
-        String llmPrompt = String.format(systemPrompt, userPrompt, researchQueryResults.stream().collect(
-            Collectors.joining("\n\n-----\n\n")));
+        return promptCatalog.render(PromptCatalog.FINAL_ANSWER, config.threadId().orElse(null), Map.of(
+            "user_question", userPrompt,
+            "summaries", contextAssembler.assemble(userPrompt, researchQueryResults)));
+    }
 
-        String llmResponseStr = ollamaService.getLLMResponse(llmPrompt);
+    /**
+     * The final answer generated during the last reflection of the run, if it was generated from the same prompt.
+     */
+    private Optional<CompletableFuture<String>> speculativeResponse(RunnableConfig config, String llmPrompt) {
+        return config.threadId().flatMap(runId -> speculativeFinalAnswers.take(runId, llmPrompt));
+    }
+
+    /**
+     * Parses the JSON object of an LLM response, counting responses of the node that cannot be parsed.
+     */
+    private <T> T parse(String nodeName, String llmResponse, Class<T> type) {
 
-        Map<String, Object> llmResponse = ResponseUtils.extractJsonFromLLMResponse(llmResponseStr);
+        try {
+            return ResponseUtils.extractJsonFromLLMResponse(llmResponse, type);
+        } catch (RuntimeException e) {
+            researchObservations.parseFailed(nodeName);
+            throw e;
+        }
+    }
+
+    /**
+     * Streams the final answer, forwarding only the text of the answer inside the JSON object to the consumer.
+     * The complete response is returned to be parsed like a blocking response.
+     */
+    private CompletableFuture<String> streamLLMResponse(String llmPrompt, Consumer<String> tokenConsumer) {
 
-        String synthesisedResponse = ((String) llmResponse.get("synthesisedResponse"));
+        StreamingJsonExtractor extractor = new StreamingJsonExtractor(SynthesisedAnswer.FIELD);
 
-        return Map.of(State.FINAL_ANSWER, synthesisedResponse);
+        return ollamaService.streamLLMResponse(FINAL_ANSWER_NODE, llmPrompt)
+            .map(extractor::feed)
+            .filter(answerText -> !answerText.isEmpty())
+            .doOnNext(tokenConsumer)
+            .then(Mono.fromSupplier(extractor::response))
+            .toFuture();
     }
 }
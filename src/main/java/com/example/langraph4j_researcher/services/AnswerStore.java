@@ -0,0 +1,407 @@
+package com.example.langraph4j_researcher.services;
+
+import com.example.langraph4j_researcher.config.ResearchProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * Final answers of research runs by normalised question, kept in an append-only log on local disk.
+ * <p>
+ * A question that was answered within {@code researcher.answers.ttl} is answered from the store, also after a
+ * restart, and concurrent runs of the same question share a single run: the first one researches the question and
+ * the others wait for its answer. The log is replayed into memory at startup; a torn record at its end is cut off as
+ * in {@link FileCheckpointSaver}. Storing and invalidating answers appends records, and once the log holds more than
+ * twice as many records as answers it is rewritten with the answers that have not expired and atomically swapped in.
+ * <p>
+ * Questions are counted under {@value #REQUESTS} by outcome: answered from the store, coalesced into a run of the
+ * same question, or researched.
+ */
+@Slf4j
+@Service
+public class AnswerStore {
+
+    static final String REQUESTS = "research.answers.requests";
+    static final String ANSWERS = "research.answers.stored";
+
+    static final String HIT = "hit";
+    static final String COALESCED = "coalesced";
+    static final String RESEARCHED = "researched";
+
+    private static final String LOG_FILE = "answers.log";
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES * 2;
+    private static final int MIN_COMPACTION_RECORDS = 64;
+
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final byte CLEAR = 3;
+
+    private record Answer(String question, String answer, Instant storedAt) {}
+
+    private final ResearchProperties.Answers answerProperties;
+    private final MeterRegistry meterRegistry;
+    private final Path logFile;
+
+    private final Map<String, Answer> answers = new ConcurrentHashMap<>();
+    // Runs in progress by normalised question, joined by the concurrent requests of the same question
+    private final Map<String, CompletableFuture<Optional<String>>> inFlight = new ConcurrentHashMap<>();
+    // Incremented by every invalidation, so a run that started before one does not store a stale answer
+    private final AtomicLong generation = new AtomicLong();
+    // Generations of the last invalidation of all answers and of the questions invalidated since, guarded by the lock
+    private long clearedAt;
+    private final Map<String, Long> invalidatedAt = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private int recordCount;
+
+    public AnswerStore(ResearchProperties researchProperties, MeterRegistry meterRegistry) {
+
+        this.answerProperties = researchProperties.getAnswers();
+        this.meterRegistry = meterRegistry;
+        this.logFile = answerProperties.getDirectory().resolve(LOG_FILE);
+        if (answerProperties.isEnabled()) {
+            load();
+        }
+        Gauge.builder(ANSWERS, answers, Map::size)
+            .description("Final answers in the answer store")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Returns the stored answer to the question, or the answer of a run of the same question in progress, or
+     * researches the question and stores its answer.
+     *
+     * @param research runs the research, empty if it found no answer, which is not stored
+     */
+    public Optional<String> getOrResearch(String question, Supplier<Optional<String>> research) {
+
+        if (!answerProperties.isEnabled()) {
+            return research.get();
+        }
+
+        String key = ResearchCache.normalise(question);
+        CompletableFuture<Optional<String>> run = new CompletableFuture<>();
+        CompletableFuture<Optional<String>> running = inFlight.putIfAbsent(key, run);
+        if (running != null) {
+            count(COALESCED);
+            return join(running);
+        }
+
+        try {
+            // Looked up once the run is registered, so an answer stored by a run that just ended is found
+            Optional<String> stored = get(key);
+            if (stored.isPresent()) {
+                count(HIT);
+                run.complete(stored);
+                return stored;
+            }
+
+            count(RESEARCHED);
+            long startedAt = generation.get();
+            Optional<String> answer = research.get();
+            answer.ifPresent(researched -> put(key, question, researched, startedAt));
+            run.complete(answer);
+            return answer;
+        } catch (RuntimeException | Error e) {
+            run.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, run);
+        }
+    }
+
+    /**
+     * The current generation of the store, to pass to {@link #put(String, String, long)} by a run that is about to
+     * start.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Stores the answer to the question, for instance of a run that was resumed, unless all answers or the answer to
+     * this question were invalidated since the run started.
+     *
+     * @param startedAt the {@linkplain #generation() generation} of the store when the run started
+     */
+    public void put(String question, String answer, long startedAt) {
+
+        if (answerProperties.isEnabled() && question != null && !question.isBlank()) {
+            put(ResearchCache.normalise(question), question, answer, startedAt);
+        }
+    }
+
+    /**
+     * Drops the stored answer to the question, returns whether there was one.
+     */
+    public boolean invalidate(String question) {
+
+        String key = ResearchCache.normalise(question);
+        lock.lock();
+        try {
+            invalidatedAt.put(key, generation.incrementAndGet());
+            Answer removed = answers.remove(key);
+            if (removed != null) {
+                append(REMOVE, key, null);
+            }
+            return removed != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops all stored answers, for instance because the documents they were researched from changed.
+     */
+    public void invalidateAll() {
+
+        lock.lock();
+        try {
+            clearedAt = generation.incrementAndGet();
+            invalidatedAt.clear();
+            if (!answers.isEmpty()) {
+                answers.clear();
+                append(CLEAR, "", null);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Optional<String> get(String key) {
+
+        Answer answer = answers.get(key);
+        if (answer == null) {
+            return Optional.empty();
+        }
+        if (isExpired(answer, Instant.now())) {
+            // Left in the log until the next compaction
+            answers.remove(key, answer);
+            return Optional.empty();
+        }
+        return Optional.of(answer.answer());
+    }
+
+    private void put(String key, String question, String answer, long startedAt) {
+
+        lock.lock();
+        try {
+            if (clearedAt > startedAt || invalidatedAt.getOrDefault(key, 0L) > startedAt) {
+                log.debug("Not storing the answer to [{}], it was invalidated during its run", question);
+                return;
+            }
+            Answer stored = new Answer(question, answer, Instant.now());
+            answers.put(key, stored);
+            append(PUT, key, stored);
+            if (recordCount > MIN_COMPACTION_RECORDS && recordCount > 2 * answers.size()) {
+                compact();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isExpired(Answer answer, Instant now) {
+        return answer.storedAt().plus(answerProperties.getTtl()).isBefore(now);
+    }
+
+    private void count(String outcome) {
+        meterRegistry.counter(REQUESTS, "outcome", outcome).increment();
+    }
+
+    /**
+     * Waits for the answer of a run of the same question, failing like that run if it failed.
+     */
+    private static Optional<String> join(CompletableFuture<Optional<String>> run) {
+
+        try {
+            return run.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException runtimeException ? runtimeException : e;
+        }
+    }
+
+    private void append(byte type, String key, Answer answer) {
+
+        try {
+            Files.createDirectories(logFile.getParent());
+            try (FileChannel channel = FileChannel.open(logFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                writeRecord(channel, type, key, answer);
+                if (answerProperties.isFsync()) {
+                    channel.force(false);
+                }
+            }
+            recordCount++;
+        } catch (IOException e) {
+            // The answer is still served from memory until the next restart
+            log.warn("Failed to append to answer log [{}]", logFile, e);
+        }
+    }
+
+    private void compact() {
+
+        Instant now = Instant.now();
+        answers.values().removeIf(answer -> isExpired(answer, now));
+        List<Map.Entry<String, Answer>> retained = List.copyOf(answers.entrySet());
+
+        Path compactedFile = logFile.resolveSibling(LOG_FILE + ".compacting");
+        try {
+            try (FileChannel channel = FileChannel.open(compactedFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (Map.Entry<String, Answer> entry : retained) {
+                    writeRecord(channel, PUT, entry.getKey(), entry.getValue());
+                }
+                channel.force(false);
+            }
+            Files.move(compactedFile, logFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            recordCount = retained.size();
+            log.debug("Compacted answer log to {} answers", retained.size());
+        } catch (IOException e) {
+            log.warn("Failed to compact answer log [{}]", logFile, e);
+        }
+    }
+
+    private void writeRecord(FileChannel channel, byte type, String key, Answer answer) throws IOException {
+
+        byte[] payload = serialize(type, key, answer);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + payload.length)
+            .putInt(payload.length)
+            .putInt((int) crc.getValue())
+            .put(payload)
+            .flip();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+    }
+
+    private void load() {
+
+        if (!Files.exists(logFile)) {
+            return;
+        }
+
+        Instant now = Instant.now();
+        long validLength = 0;
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (buffer.remaining() >= RECORD_HEADER_BYTES) {
+                if (!readRecord(buffer, now)) {
+                    break;
+                }
+                recordCount++;
+                validLength = buffer.position();
+            }
+            if (validLength < channel.size()) {
+                log.warn("Discarding {} bytes of torn answer records at the end of [{}]",
+                    channel.size() - validLength, logFile);
+                channel.truncate(validLength);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read answer log [" + logFile + "]", e);
+        }
+        log.info("Loaded {} answers from [{}]", answers.size(), logFile);
+    }
+
+    /**
+     * Replays the record at the position of the buffer, returns false if it is torn.
+     */
+    private boolean readRecord(ByteBuffer buffer, Instant now) {
+
+        try {
+            int length = buffer.getInt();
+            int expectedCrc = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                return false;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != expectedCrc) {
+                return false;
+            }
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+            byte type = in.readByte();
+            String key = readString(in);
+            switch (type) {
+                case PUT -> {
+                    Answer answer = new Answer(readString(in), readString(in), Instant.ofEpochMilli(in.readLong()));
+                    if (isExpired(answer, now)) {
+                        answers.remove(key);
+                    } else {
+                        answers.put(key, answer);
+                    }
+                }
+                case REMOVE -> answers.remove(key);
+                case CLEAR -> answers.clear();
+                default -> {
+                    return false;
+                }
+            }
+            return true;
+        } catch (BufferUnderflowException | IllegalArgumentException | IOException e) {
+            return false;
+        }
+    }
+
+    private static byte[] serialize(byte type, String key, Answer answer) throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type);
+            writeString(out, key);
+            if (answer != null) {
+                writeString(out, answer.question());
+                writeString(out, answer.answer());
+                out.writeLong(answer.storedAt().toEpochMilli());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Length prefixed UTF-8, answers may be longer than {@link DataOutputStream#writeUTF(String)} allows.
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return new String(in.readNBytes(in.readInt()), StandardCharsets.UTF_8);
+    }
+}
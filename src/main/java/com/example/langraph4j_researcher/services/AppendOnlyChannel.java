@@ -0,0 +1,40 @@
+package com.example.langraph4j_researcher.services;
+
+import com.example.langraph4j_researcher.utils.AppendOnlyList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+import org.bsc.langgraph4j.state.Channel;
+import org.bsc.langgraph4j.state.Reducer;
+
+/**
+ * State channel whose updates are appended to its value, like {@link org.bsc.langgraph4j.state.Channels#appender}.
+ * Values are {@link AppendOnlyList}s, so an update costs the size of the update rather than of the whole history, and
+ * every state snapshot shares the elements of the ones before it. Nodes return only what they add, a single value or
+ * a list of values, which lets concurrent branches update the channel without overwriting each other.
+ */
+class AppendOnlyChannel<T> implements Channel<List<T>> {
+
+    @Override
+    public Optional<Reducer<List<T>>> getReducer() {
+        return Optional.of((current, update) -> AppendOnlyList.copyOf(current).appendAll(update));
+    }
+
+    @Override
+    public Optional<Supplier<List<T>>> getDefault() {
+        return Optional.of(AppendOnlyList::of);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object update(String key, Object oldValue, Object newValue) {
+
+        if (newValue == null) {
+            return oldValue;
+        }
+        List<T> values = newValue instanceof Collection<?> collection ? List.copyOf((Collection<T>) collection)
+            : List.of((T) newValue);
+        return Channel.super.update(key, oldValue, values);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.langraph4j_researcher.services;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a batch is looked up that was never submitted or whose files were deleted.
+ */
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class BatchNotFoundException extends RuntimeException {
+
+    public BatchNotFoundException(String batchId) {
+        super("No batch [" + batchId + "]");
+    }
+}
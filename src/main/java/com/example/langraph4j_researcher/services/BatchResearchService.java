@@ -0,0 +1,431 @@
+package com.example.langraph4j_researcher.services;
+
+import com.example.langraph4j_researcher.config.ResearchProperties;
+import com.example.langraph4j_researcher.model.BatchResult;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * Researches batches of questions read from JSONL, one JSON object per line, writing the answers to JSONL.
+ * <p>
+ * A question is taken from the {@code query} or {@code question} field of a line, or from its {@code title} and
+ * {@code body}, and is identified by its {@code id} or {@code request_id} field if there is one. Work shared between
+ * the questions of a batch is done once: identical questions are researched once and answered alike, and the runs of
+ * a batch share a {@link ResearchMemo}, so every research query is researched once in the whole batch.
+ * <p>
+ * Every result is appended to the results of the batch as soon as its question is answered, which makes the results
+ * the progress checkpoint of the batch: a batch interrupted by a restart is resumed with only the questions that have
+ * no answer yet, and runs that were interrupted half way continue from their last graph checkpoint. The last result
+ * of a line counts, a question that failed gets another result when it is retried.
+ * <p>
+ * Every question takes a slot of the {@link ResearchJobScheduler} before it is researched, as the tenant
+ * {@value #BATCH_TENANT}, so a batch competes for research capacity like any other tenant instead of taking every
+ * Ollama slot from interactive requests: while they wait, the scheduler gives them their fair share as running
+ * questions finish. The share of batches is set with {@code researcher.scheduler.tenant-weights.batch}. A batch only
+ * waits for one slot at a time, so it never fills the queue interactive requests wait in, and waits until the queue has
+ * room if they filled it. At most {@code researcher.batch.concurrency} questions of a batch are researched at a time,
+ * by default as many as the scheduler runs jobs.
+ */
+@Slf4j
+@Service
+public class BatchResearchService {
+
+    static final String INPUT = "input.jsonl";
+    static final String RESULTS = "results.jsonl";
+    static final String ITEMS = "research.batch.items";
+    static final String BATCH_TENANT = "batch";
+
+    private static final Pattern SAFE_BATCH_ID = Pattern.compile("[A-Za-z0-9-]{1,64}");
+
+    public enum BatchState {
+        RUNNING,
+        COMPLETED,
+        INTERRUPTED
+    }
+
+    /**
+     * Progress of a batch. Questions answered with the research of an identical question count as deduplicated.
+     */
+    public record BatchStatus(String batchId, BatchState state, int total, int answered, int failed, int deduplicated) {}
+
+    private record Question(int line, String id, String query) {}
+
+    /**
+     * A batch being researched.
+     */
+    private static final class Job {
+
+        private final String batchId;
+        private final int total;
+        private final FileChannel results;
+        private int answered;
+        private int failed;
+        private int deduplicated;
+        private BatchState state = BatchState.RUNNING;
+
+        Job(String batchId, int total, FileChannel results, int answered, int failed) {
+            this.batchId = batchId;
+            this.total = total;
+            this.results = results;
+            this.answered = answered;
+            this.failed = failed;
+        }
+
+        synchronized BatchStatus status() {
+            return new BatchStatus(batchId, state, total, answered, failed, deduplicated);
+        }
+    }
+
+    private final ChatService chatService;
+    private final ResearchJobScheduler researchJobScheduler;
+    private final ResearchProperties researchProperties;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public BatchResearchService(ChatService chatService, ResearchJobScheduler researchJobScheduler,
+        ResearchProperties researchProperties, MeterRegistry meterRegistry) {
+
+        this.chatService = chatService;
+        this.researchJobScheduler = researchJobScheduler;
+        this.researchProperties = researchProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Stores the questions and starts researching them in the background.
+     */
+    public BatchStatus submit(InputStream questions) {
+
+        String batchId = UUID.randomUUID().toString();
+        try {
+            Path directory = Files.createDirectories(batchDirectory(batchId));
+            Files.copy(questions, directory.resolve(INPUT));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store batch [" + batchId + "]", e);
+        }
+        return start(batchId);
+    }
+
+    /**
+     * Continues researching the questions of a batch that have no answer yet, for instance after a restart.
+     */
+    public synchronized BatchStatus resume(String batchId) {
+
+        Job job = jobs.get(batchId);
+        if (job != null && job.status().state() == BatchState.RUNNING) {
+            return job.status();
+        }
+        return start(batchId);
+    }
+
+    public BatchStatus status(String batchId) {
+
+        Job job = jobs.get(batchId);
+        if (job != null) {
+            return job.status();
+        }
+        List<Question> questions = readQuestions(batchId);
+        Map<Integer, BatchResult> results = readResults(batchId);
+        int answered = (int) results.values().stream().filter(result -> result.answer() != null).count();
+        int failed = results.size() - answered;
+        BatchState state = results.size() == questions.size() ? BatchState.COMPLETED : BatchState.INTERRUPTED;
+        return new BatchStatus(batchId, state, questions.size(), answered, failed, 0);
+    }
+
+    /**
+     * File the results of the batch are appended to.
+     */
+    public Path resultsFile(String batchId) {
+
+        Path results = batchDirectory(batchId).resolve(RESULTS);
+        if (!Files.exists(batchDirectory(batchId).resolve(INPUT))) {
+            throw new BatchNotFoundException(batchId);
+        }
+        return results;
+    }
+
+    private synchronized BatchStatus start(String batchId) {
+
+        List<Question> questions = readQuestions(batchId);
+        Map<Integer, BatchResult> results = readResults(batchId);
+        int answered = (int) results.values().stream().filter(result -> result.answer() != null).count();
+        List<Question> pending = questions.stream()
+            .filter(question -> results.get(question.line()) == null || results.get(question.line()).answer() == null)
+            .toList();
+
+        FileChannel resultsChannel;
+        try {
+            resultsChannel = FileChannel.open(batchDirectory(batchId).resolve(RESULTS),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open the results of batch [" + batchId + "]", e);
+        }
+        // Failed questions are retried, so only the answered ones are done
+        Job job = new Job(batchId, questions.size(), resultsChannel, answered, 0);
+        jobs.put(batchId, job);
+        executorService.submit(() -> run(job, pending));
+        return job.status();
+    }
+
+    private void run(Job job, List<Question> pending) {
+
+        // Identical questions are researched once, by the first of them
+        Map<String, List<Question>> questionsByQuery = new LinkedHashMap<>();
+        for (Question question : pending) {
+            questionsByQuery.computeIfAbsent(ResearchCache.normalise(question.query()), ignored -> new ArrayList<>())
+                .add(question);
+        }
+
+        ResearchMemo researchMemo = new ResearchMemo();
+        Semaphore permits = new Semaphore(concurrency());
+        Phaser running = new Phaser(1);
+        BatchState state = BatchState.COMPLETED;
+        try {
+            for (List<Question> identicalQuestions : questionsByQuery.values()) {
+                permits.acquire();
+                ResearchJobScheduler.JobSlot slot;
+                try {
+                    slot = acquireSlot();
+                } catch (InterruptedException e) {
+                    permits.release();
+                    throw e;
+                }
+                running.register();
+                try {
+                    executorService.submit(() -> {
+                        try {
+                            answer(job, identicalQuestions, researchMemo);
+                        } finally {
+                            slot.release();
+                            permits.release();
+                            running.arriveAndDeregister();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    // Shutting down
+                    slot.release();
+                    running.arriveAndDeregister();
+                    state = BatchState.INTERRUPTED;
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            state = BatchState.INTERRUPTED;
+        }
+        // Also when interrupted, the questions in flight write their results before the results are closed
+        running.arriveAndAwaitAdvance();
+        finish(job, state);
+        log.info("Batch [{}] {}, {} research queries researched", job.batchId, state.name().toLowerCase(Locale.ROOT),
+            researchMemo.size());
+    }
+
+    /**
+     * Waits for a research slot of the batch tenant, and for room in the queue if interactive requests filled it.
+     */
+    private ResearchJobScheduler.JobSlot acquireSlot() throws InterruptedException {
+
+        while (true) {
+            CompletableFuture<ResearchJobScheduler.JobSlot> slot;
+            try {
+                slot = researchJobScheduler.acquire(BATCH_TENANT, 0);
+            } catch (JobRejectedException e) {
+                Thread.sleep(e.getRetryAfter().toMillis());
+                continue;
+            }
+            try {
+                return slot.get();
+            } catch (InterruptedException e) {
+                slot.cancel(false);
+                // Handed out before it could be cancelled
+                slot.thenAccept(ResearchJobScheduler.JobSlot::release);
+                throw e;
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Failed to acquire a research slot", e.getCause());
+            }
+        }
+    }
+
+    private void answer(Job job, List<Question> identicalQuestions, ResearchMemo researchMemo) {
+
+        Question first = identicalQuestions.getFirst();
+        // Run ids must be stable for a run interrupted by a restart to continue from its checkpoint
+        String runId = job.batchId + "-" + first.line();
+        String answer = null;
+        String error = null;
+        try {
+            answer = chatService.isResumable(runId)
+                ? chatService.resume(runId, researchMemo)
+                : chatService.research(first.query(), runId, researchMemo);
+        } catch (RuntimeException e) {
+            log.warn("Question on line {} of batch [{}] failed", first.line(), job.batchId, e);
+            error = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+        }
+
+        for (Question question : identicalQuestions) {
+            writeResult(job, new BatchResult(question.line(), question.id(), question.query(), answer, error));
+        }
+        String outcome = answer != null ? "answered" : "failed";
+        meterRegistry.counter(ITEMS, "outcome", outcome).increment(identicalQuestions.size());
+        synchronized (job) {
+            if (answer != null) {
+                job.answered += identicalQuestions.size();
+            } else {
+                job.failed += identicalQuestions.size();
+            }
+            job.deduplicated += identicalQuestions.size() - 1;
+        }
+    }
+
+    private void writeResult(Job job, BatchResult result) {
+
+        try {
+            byte[] line = (objectMapper.writeValueAsString(result) + "\n").getBytes(StandardCharsets.UTF_8);
+            synchronized (job.results) {
+                ByteBuffer buffer = ByteBuffer.wrap(line);
+                while (buffer.hasRemaining()) {
+                    job.results.write(buffer);
+                }
+                // The result is the checkpoint of the question, it must survive a crash
+                job.results.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write a result of batch [" + job.batchId + "]", e);
+        }
+    }
+
+    private static void finish(Job job, BatchState state) {
+
+        synchronized (job) {
+            job.state = state;
+        }
+        try {
+            job.results.close();
+        } catch (IOException e) {
+            log.warn("Failed to close the results of batch [{}]", job.batchId, e);
+        }
+    }
+
+    private int concurrency() {
+
+        int concurrency = researchProperties.getBatch().getConcurrency();
+        return concurrency > 0 ? concurrency : researchProperties.getScheduler().getMaxConcurrentJobs();
+    }
+
+    private List<Question> readQuestions(String batchId) {
+
+        Path input = batchDirectory(batchId).resolve(INPUT);
+        if (!Files.exists(input)) {
+            throw new BatchNotFoundException(batchId);
+        }
+        List<Question> questions = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(input)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (!line.isBlank()) {
+                    questions.add(parseQuestion(lineNumber, line));
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the questions of batch [" + batchId + "]", e);
+        }
+        return questions;
+    }
+
+    private Question parseQuestion(int lineNumber, String line) {
+
+        try {
+            JsonNode json = objectMapper.readTree(line);
+            String id = text(json, "id", text(json, "request_id", null));
+            String query = text(json, "query", text(json, "question", null));
+            if (query == null) {
+                String title = text(json, "title", "");
+                String body = text(json, "body", "");
+                query = (title + "\n\n" + body).strip();
+            }
+            return new Question(lineNumber, id, query);
+        } catch (IOException e) {
+            // Researched as is, so the line gets a result like any other
+            return new Question(lineNumber, null, line);
+        }
+    }
+
+    private static String text(JsonNode json, String field, String defaultValue) {
+        JsonNode value = json.get(field);
+        return value == null || value.isNull() ? defaultValue : value.asText();
+    }
+
+    /**
+     * The last result of every line that has one.
+     */
+    private Map<Integer, BatchResult> readResults(String batchId) {
+
+        Path results = batchDirectory(batchId).resolve(RESULTS);
+        if (!Files.exists(results)) {
+            return Map.of();
+        }
+        Map<Integer, BatchResult> resultsByLine = new HashMap<>();
+        try (Stream<String> lines = Files.lines(results)) {
+            lines.filter(line -> !line.isBlank()).forEach(line -> {
+                try {
+                    BatchResult result = objectMapper.readValue(line, BatchResult.class);
+                    resultsByLine.put(result.line(), result);
+                } catch (IOException e) {
+                    // A result torn by a crash, its question is researched again
+                    log.warn("Skipping unreadable result of batch [{}]", batchId);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the results of batch [" + batchId + "]", e);
+        }
+        return resultsByLine;
+    }
+
+    private Path batchDirectory(String batchId) {
+
+        if (!SAFE_BATCH_ID.matcher(batchId).matches()) {
+            throw new BatchNotFoundException(batchId);
+        }
+        return researchProperties.getBatch().getDirectory().resolve(batchId);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executorService.shutdownNow();
+    }
+}
@@ -1,30 +1,275 @@
 package com.example.langraph4j_researcher.services;
 
+import io.micrometer.observation.Observation;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import lombok.RequiredArgsConstructor;
 import org.bsc.langgraph4j.CompiledGraph;
-import org.bsc.langgraph4j.GraphStateException;
+import org.bsc.langgraph4j.NodeOutput;
+import org.bsc.langgraph4j.RunnableConfig;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Schedulers;
 
 @Service
 @RequiredArgsConstructor
 public class ChatService {
 
-    private final AgentBuilderService agentBuilderService;
+    private static final String NO_ANSWER =
+        "LLM does not have enough information to answer your question. Try asking a different question.";
 
-    public String research(String userQuery) throws GraphStateException {
+    private final CompiledGraphRegistry compiledGraphRegistry;
+    private final FileCheckpointSaver checkpointSaver;
+    private final ResearchObservations researchObservations;
+    private final AnswerStore answerStore;
 
-        CompiledGraph<State> agent = agentBuilderService.build();
+    /**
+     * Researches the query as the run with the given id. The run is checkpointed after every node,
+     * so if it fails it can be continued with {@link #resume(String)}.
+     * A query answered recently is answered from the {@link AnswerStore}, and while a run of the same query is in
+     * progress the query shares that run instead, so no run with the given id takes place.
+     */
+    public String research(String userQuery, String runId) {
 
-        Optional<State> response = agent.invoke(Map.of(State.USER_QUERY, userQuery));
+        return research(userQuery, runId, null);
+    }
+
+    /**
+     * Researches the query as the run with the given id, sharing research summaries with the other runs using the
+     * memo, if there is one.
+     */
+    public String research(String userQuery, String runId, ResearchMemo researchMemo) {
+
+        return answerStore.getOrResearch(userQuery,
+                () -> finalAnswer(invoke(Map.of(State.USER_QUERY, userQuery), runId, researchMemo)))
+            .orElse(NO_ANSWER);
+    }
+
+    /**
+     * Continues a run that did not complete from its last checkpoint, so only the nodes
+     * that did not complete are executed again.
+     */
+    public String resume(String runId) {
+
+        return resume(runId, null);
+    }
+
+    /**
+     * Continues a run that did not complete, sharing research summaries with the other runs using the memo, if there
+     * is one.
+     */
+    public String resume(String runId, ResearchMemo researchMemo) {
+
+        if (!checkpointSaver.hasCheckpoints(runId)) {
+            throw new RunNotFoundException(runId);
+        }
+        // Null inputs make the graph continue from the last checkpoint of the thread
+        long startedAt = answerStore.generation();
+        Optional<State> response = invoke(null, runId, researchMemo);
+        Optional<String> answer = finalAnswer(response);
+        answer.ifPresent(finalAnswer -> answerStore.put(response.get().getStringValueFromMap(State.USER_QUERY),
+            finalAnswer, startedAt));
+        return answer.orElse(NO_ANSWER);
+    }
+
+    /**
+     * Whether the run has a checkpoint it can be resumed from.
+     */
+    public boolean isResumable(String runId) {
+        return checkpointSaver.hasCheckpoints(runId);
+    }
 
-        if (response.isEmpty()) {
-            return "LLM does not have enough information to answer your question. Try asking a different question.";
+    private Optional<State> invoke(Map<String, Object> inputs, String runId, ResearchMemo researchMemo) {
+
+        CompiledGraph<State> agent = compiledGraphRegistry.getGraph();
+        Observation runObservation = researchObservations.startRun(runId);
+
+        RunnableConfig.Builder config = RunnableConfig.builder()
+            .threadId(runId)
+            .addMetadata(ResearchObservations.RUN_OBSERVATION, runObservation)
+            .addMetadata(AgentBuilderService.RUN_STARTED_AT, Instant.now());
+        if (researchMemo != null) {
+            config.addMetadata(AgentBuilderService.RESEARCH_MEMO, researchMemo);
         }
 
-        State state = response.get();
-        return state.getStringValueFromMap(State.FINAL_ANSWER);
+        try {
+            return agent.invoke(inputs, config.build());
+        } catch (RuntimeException e) {
+            runObservation.error(e);
+            throw unwrapSaturation(e);
+        } finally {
+            // A failed run is resumed from its log, if at all
+            checkpointSaver.evict(runId);
+            runObservation.stop();
+        }
+    }
+
+    private static Optional<String> finalAnswer(Optional<State> response) {
+
+        return response.map(state -> state.getStringValueFromMap(State.FINAL_ANSWER))
+            .filter(answer -> !answer.isBlank());
+    }
 
+    /**
+     * Runs the research graph and streams a progress event for every node as soon as it completes,
+     * followed by the tokens of the final answer while it is being generated.
+     * The graph runs on a worker thread when the returned flux is subscribed to.
+     * A streamed run always researches, since its progress is what the caller asked for: unlike
+     * {@link #research(String, String)} it is neither answered from the {@link AnswerStore} nor shares a run in
+     * progress. Its answer is stored for the runs that follow.
+     */
+    public Flux<ResearchEvent> researchStream(String userQuery, String runId) {
+
+        return researchStream(userQuery, runId, () -> {});
+    }
+
+    /**
+     * Streams the research like {@link #researchStream(String, String)} and calls {@code onRunEnd} once the run
+     * ended. Cancelling the flux stops the run after the node in progress, so the run may end well after the
+     * cancellation; a run cancelled before it started ends right away.
+     */
+    public Flux<ResearchEvent> researchStream(String userQuery, String runId, Runnable onRunEnd) {
+
+        // Whoever claims the run ends it: the run itself, or a cancellation before the run started
+        AtomicBoolean claimed = new AtomicBoolean();
+
+        // Not subscribeOn, cancelling it would interrupt the run instead of letting the node in progress complete
+        return Flux.<ResearchEvent>create(sink -> {
+                if (claimed.compareAndSet(false, true)) {
+                    Schedulers.boundedElastic().schedule(() -> {
+                        try {
+                            streamResearch(userQuery, runId, sink);
+                        } finally {
+                            onRunEnd.run();
+                        }
+                    });
+                }
+            })
+            .doOnCancel(() -> {
+                if (claimed.compareAndSet(false, true)) {
+                    onRunEnd.run();
+                }
+            });
+    }
+
+    private void streamResearch(String userQuery, String runId, FluxSink<ResearchEvent> sink) {
+
+        CompiledGraph<State> agent = compiledGraphRegistry.getGraph();
+        long startedAt = answerStore.generation();
+        TokenRelay tokens = new TokenRelay(sink);
+
+        sink.next(ResearchEvent.run(runId));
+
+        Observation runObservation = researchObservations.startRun(runId);
+        RunnableConfig config = RunnableConfig.builder()
+            .threadId(runId)
+            .addMetadata(ResearchObservations.RUN_OBSERVATION, runObservation)
+            .addMetadata(AgentBuilderService.RUN_STARTED_AT, Instant.now())
+            .addMetadata(AgentBuilderService.TOKEN_CONSUMER, tokens)
+            .build();
+
+        int publishedSummaryCount = 0;
+
+        try {
+            for (NodeOutput<State> nodeOutput : agent.stream(Map.of(State.USER_QUERY, userQuery), config)) {
+
+                if (sink.isCancelled()) {
+                    return;
+                }
+
+                State state = nodeOutput.state();
+
+                switch (nodeOutput.node()) {
+                    case AgentBuilderService.GENERATE_QUERY_NODE ->
+                        sink.next(ResearchEvent.queries(state.getResearchQueries(0)));
+                    case AgentBuilderService.RESEARCH_NODE -> {
+                        // Only publish the summaries of the research round that just completed
+                        List<String> summaries = state.getResearchSummaries();
+                        summaries.subList(publishedSummaryCount, summaries.size())
+                            .forEach(summary -> sink.next(ResearchEvent.summary(summary)));
+                        publishedSummaryCount = summaries.size();
+                    }
+                    case AgentBuilderService.REFLECTION_NODE -> {
+                        // The route the graph takes, the verdict alone does not decide it
+                        boolean continueResearch = Boolean.TRUE.equals(state.getBoolValueFromMap(State.CONTINUE_RESEARCH));
+                        state.getLastReflection().ifPresent(verdict -> sink.next(ResearchEvent.reflection(
+                            verdict.isSufficient(), continueResearch, verdict.followUpQueries())));
+                        if (!continueResearch) {
+                            tokens.open();
+                        }
+                    }
+                    case AgentBuilderService.FINAL_ANSWER_NODE -> {
+                        String finalAnswer = state.getStringValueFromMap(State.FINAL_ANSWER);
+                        if (finalAnswer != null && !finalAnswer.isBlank()) {
+                            answerStore.put(userQuery, finalAnswer, startedAt);
+                        }
+                        tokens.open();
+                        sink.next(ResearchEvent.finalAnswer(finalAnswer));
+                    }
+                    default -> {
+                        // START and END carry no progress of their own
+                    }
+                }
+            }
+            sink.complete();
+        } catch (Exception e) {
+            runObservation.error(e);
+            sink.error(unwrapSaturation(e));
+        } finally {
+            checkpointSaver.evict(runId);
+            runObservation.stop();
+        }
+    }
+
+    /**
+     * Passes the tokens of the final answer on once the event of the reflection that led to it is published. The graph
+     * runner may already run the final answer node before it hands out the output of the reflection node.
+     */
+    private static final class TokenRelay implements Consumer<String> {
+
+        private final FluxSink<ResearchEvent> sink;
+        private final List<String> pending = new ArrayList<>();
+        private boolean open;
+
+        private TokenRelay(FluxSink<ResearchEvent> sink) {
+            this.sink = sink;
+        }
+
+        @Override
+        public synchronized void accept(String token) {
+
+            if (open) {
+                sink.next(ResearchEvent.token(token));
+            } else {
+                pending.add(token);
+            }
+        }
+
+        synchronized void open() {
+
+            pending.forEach(token -> sink.next(ResearchEvent.token(token)));
+            pending.clear();
+            open = true;
+        }
+    }
+
+    /**
+     * Node failures reach the caller wrapped by the graph runner, unwrap a rejection by the Ollama admission
+     * queue so it is reported as such.
+     */
+    private static RuntimeException unwrapSaturation(Exception e) {
+
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OllamaSaturatedException saturatedException) {
+                return saturatedException;
+            }
+        }
+        return e instanceof RuntimeException runtimeException ? runtimeException : new IllegalStateException(e);
     }
 }
@@ -0,0 +1,68 @@
+package com.example.langraph4j_researcher.services;
+
+import com.example.langraph4j_researcher.config.ResearchProperties;
+import jakarta.annotation.PostConstruct;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bsc.langgraph4j.CompiledGraph;
+import org.bsc.langgraph4j.GraphStateException;
+import org.springframework.stereotype.Service;
+
+/**
+ * Thread-safe registry of the compiled research graph.
+ * The graph is compiled once for the active {@link GraphConfig} and the same instance is handed out to every
+ * concurrent invocation. The active configuration can be swapped at runtime without a restart; only the graph of
+ * the active configuration is kept, and runs that already started keep the graph they were given.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CompiledGraphRegistry {
+
+    /**
+     * The active configuration and the graph compiled for it, published together.
+     */
+    private record ActiveGraph(GraphConfig config, CompiledGraph<State> graph) {}
+
+    private final AgentBuilderService agentBuilderService;
+    private final ResearchProperties researchProperties;
+
+    private final AtomicReference<ActiveGraph> activeGraph = new AtomicReference<>();
+
+    /**
+     * Compiles the graph for the configured properties at startup so the first request does not pay for it.
+     */
+    @PostConstruct
+    void init() throws GraphStateException {
+        reload(GraphConfig.from(researchProperties.getGraph()));
+    }
+
+    /**
+     * Returns the graph compiled for the active configuration.
+     */
+    public CompiledGraph<State> getGraph() {
+        return activeGraph.get().graph();
+    }
+
+    public GraphConfig getActiveConfig() {
+        return activeGraph.get().config();
+    }
+
+    /**
+     * Makes the given configuration the active one. The graph is compiled before the swap so
+     * a configuration that fails to compile never becomes active; reloading the active configuration
+     * keeps its graph.
+     */
+    public synchronized GraphConfig reload(GraphConfig graphConfig) throws GraphStateException {
+
+        ActiveGraph previous = activeGraph.get();
+        if (previous != null && previous.config().equals(graphConfig)) {
+            return previous.config();
+        }
+        activeGraph.set(new ActiveGraph(graphConfig, agentBuilderService.build(graphConfig)));
+        GraphConfig previousConfig = previous == null ? null : previous.config();
+        log.info("Active research graph configuration changed from {} to {}", previousConfig, graphConfig);
+        return previousConfig;
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.langraph4j_researcher.services;
+
+import com.example.langraph4j_researcher.config.ResearchProperties;
+import com.example.langraph4j_researcher.utils.TextSimilarity;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * Assembles the research summaries that go into the reflection and final answer prompts.
+ * The summaries of a run only grow with every research round, so sending all of them would make prompts, and the
+ * time Ollama spends reading them, grow with every round until they overflow the context window. Instead:
+ * <ol>
+ *     <li>Empty summaries and near-identical ones are dropped, keeping the earliest</li>
+ *     <li>The rest are ranked by relevance to the user query and taken in that order while they fit the token budget,
+ *     truncating summaries that are too long on their own</li>
+ *     <li>The selected summaries are emitted in the order they were researched, so successive rounds share the prompt
+ *     prefix of the summaries they have in common and Ollama can reuse its KV cache for it</li>
+ * </ol>
+ */
+@Slf4j
+@Service
+public class ContextAssembler {
+
+    static final String SEPARATOR = "\n\n-----\n\n";
+    static final String TRUNCATION_MARK = " ...";
+
+    private static final int SEPARATOR_TOKENS = TextSimilarity.estimateTokens(SEPARATOR);
+
+    private final ResearchProperties.Context contextProperties;
+
+    public ContextAssembler(ResearchProperties researchProperties) {
+        this.contextProperties = researchProperties.getContext();
+    }
+
+    /**
+     * Selects the summaries that best answer the user query within the token budget and joins them.
+     */
+    public String assemble(String userQuery, List<String> summaries) {
+
+        List<Candidate> candidates = deduplicate(summaries);
+        rank(userQuery, candidates);
+
+        int remainingTokens = contextProperties.getTokenBudget();
+        List<Candidate> selected = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+
+            int availableTokens = remainingTokens - SEPARATOR_TOKENS;
+            if (TextSimilarity.estimateTokens(candidate.text) > availableTokens
+                && availableTokens < contextProperties.getMinSummaryTokens()) {
+                continue;
+            }
+            candidate.text = truncate(candidate.text, Math.min(contextProperties.getMaxSummaryTokens(), availableTokens));
+            remainingTokens -= TextSimilarity.estimateTokens(candidate.text) + SEPARATOR_TOKENS;
+            selected.add(candidate);
+        }
+
+        if (selected.size() < summaries.size()) {
+            log.debug("Assembled {} of {} research summaries, {} duplicates or empty", selected.size(), summaries.size(),
+                summaries.size() - candidates.size());
+        }
+
+        return selected.stream()
+            .sorted(Comparator.comparingInt(candidate -> candidate.index))
+            .map(candidate -> candidate.text)
+            .collect(Collectors.joining(SEPARATOR));
+    }
+
+    private List<Candidate> deduplicate(List<String> summaries) {
+
+        List<Candidate> candidates = new ArrayList<>(summaries.size());
+        for (int i = 0; i < summaries.size(); i++) {
+            String summary = summaries.get(i);
+            if (summary == null || summary.isBlank()) {
+                // A response without a summary, which the lenient parser accepts
+                continue;
+            }
+            Candidate candidate = new Candidate(i, summary);
+            boolean duplicate = candidates.stream().anyMatch(kept ->
+                TextSimilarity.jaccard(kept.terms, candidate.terms) >= contextProperties.getDuplicateSimilarity());
+            if (!duplicate) {
+                candidates.add(candidate);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Orders the candidates by the IDF-weighted share of the user query terms they contain, so terms that every
+     * summary mentions count less than the specific ones. Ties keep the research order.
+     */
+    private static void rank(String userQuery, List<Candidate> candidates) {
+
+        Set<String> queryTerms = TextSimilarity.terms(userQuery);
+        Map<String, Double> idf = new HashMap<>();
+        double totalWeight = 0;
+        for (String term : queryTerms) {
+            long documentFrequency = candidates.stream().filter(candidate -> candidate.terms.contains(term)).count();
+            double weight = Math.log(1 + (double) candidates.size() / (1 + documentFrequency));
+            idf.put(term, weight);
+            totalWeight += weight;
+        }
+
+        for (Candidate candidate : candidates) {
+            double matchedWeight = 0;
+            for (String term : queryTerms) {
+                if (candidate.terms.contains(term)) {
+                    matchedWeight += idf.get(term);
+                }
+            }
+            candidate.relevance = totalWeight == 0 ? 0 : matchedWeight / totalWeight;
+        }
+
+        candidates.sort(Comparator.comparingDouble((Candidate candidate) -> candidate.relevance).reversed()
+            .thenComparingInt(candidate -> candidate.index));
+    }
+
+    /**
+     * Cuts the text to the token limit at the last sentence end, or word end if there is none.
+     */
+    public static String truncate(String text, int maxTokens) {
+
+        if (TextSimilarity.estimateTokens(text) <= maxTokens) {
+            return text;
+        }
+        int maxLength = Math.max(0, maxTokens * 4 - TRUNCATION_MARK.length());
+        int end = text.lastIndexOf(". ", maxLength);
+        if (end > maxLength / 2) {
+            end++;
+        } else {
+            end = text.lastIndexOf(' ', maxLength);
+            if (end <= 0) {
+                end = maxLength;
+            }
+        }
+        return text.substring(0, end).stripTrailing() + TRUNCATION_MARK;
+    }
+
+    private static final class Candidate {
+
+        private final int index;
+        private final Set<String> terms;
+        private String text;
+        private double relevance;
+
+        Candidate(int index, String text) {
+            this.index = index;
+            this.text = text;
+            this.terms = TextSimilarity.terms(text);
+        }
+    }
+}
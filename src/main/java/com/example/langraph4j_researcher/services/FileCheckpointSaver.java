@@ -0,0 +1,419 @@
+package com.example.langraph4j_researcher.services;
+
+import com.example.langraph4j_researcher.config.ResearchProperties;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import lombok.extern.slf4j.Slf4j;
+import org.bsc.langgraph4j.RunnableConfig;
+import org.bsc.langgraph4j.checkpoint.BaseCheckpointSaver;
+import org.bsc.langgraph4j.checkpoint.Checkpoint;
+import org.bsc.langgraph4j.serializer.StateSerializer;
+import org.springframework.stereotype.Service;
+
+/**
+ * Checkpoint saver keeping an append-only log of {@link State} snapshots per thread id on local disk.
+ * <p>
+ * Every checkpoint is appended as a length prefixed, CRC protected record and the log is read back through a
+ * memory-mapped buffer when a run is resumed after a restart. A torn record at the end of the log,
+ * left by a crash in the middle of an append, is detected by its checksum and cut off. Updating a checkpoint
+ * appends a new version of it, so the log is never rewritten in place; instead, once a log holds more records
+ * than the compaction threshold it is rewritten with only the most recent checkpoints and atomically swapped in.
+ * <p>
+ * Only the checkpoints of runs in progress are kept in memory: they are dropped once a run completes or is
+ * {@linkplain #evict evicted} after it failed, and looking up a thread without checkpoints caches nothing. Threads are
+ * locked by lock stripe, so concurrent runs rarely wait for each other's appends and flushes.
+ */
+@Slf4j
+@Service
+public class FileCheckpointSaver implements BaseCheckpointSaver {
+
+    private static final String EXTENSION = ".cplog";
+    private static final Pattern SAFE_THREAD_ID = Pattern.compile("[A-Za-z0-9._-]{1,128}");
+    // Not allowed in safe thread ids, so a hashed name never clashes with a thread id used as is
+    private static final String HASHED_PREFIX = "~";
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES * 2;
+    private static final int LOCK_STRIPES = 64;
+
+    /**
+     * Checkpoints of a thread, most recent first as in MemorySaver, and the number of records in its log including
+     * superseded versions.
+     */
+    private static final class ThreadLog {
+
+        private final LinkedList<Checkpoint> checkpoints;
+        private int recordCount;
+
+        ThreadLog(LinkedList<Checkpoint> checkpoints, int recordCount) {
+            this.checkpoints = checkpoints;
+            this.recordCount = recordCount;
+        }
+    }
+
+    private final ResearchProperties.Checkpoint checkpointProperties;
+    private final StateSerializer<State> stateSerializer = State.SERIALIZER;
+
+    // Threads of the runs in progress, only changed while holding the lock of the thread
+    private final Map<String, ThreadLog> threadLogs = new ConcurrentHashMap<>();
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    public FileCheckpointSaver(ResearchProperties researchProperties) {
+        this.checkpointProperties = researchProperties.getCheckpoint();
+        Arrays.setAll(locks, stripe -> new ReentrantLock());
+    }
+
+    @Override
+    public Collection<Checkpoint> list(RunnableConfig config) {
+        String threadId = threadId(config);
+        ReentrantLock lock = lockOf(threadId);
+        lock.lock();
+        try {
+            return Collections.unmodifiableCollection(new ArrayList<>(getThreadLog(threadId).checkpoints));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Optional<Checkpoint> get(RunnableConfig config) {
+        String threadId = threadId(config);
+        ReentrantLock lock = lockOf(threadId);
+        lock.lock();
+        try {
+            LinkedList<Checkpoint> checkpoints = getThreadLog(threadId).checkpoints;
+            if (config.checkPointId().isPresent()) {
+                String checkPointId = config.checkPointId().get();
+                return checkpoints.stream().filter(checkpoint -> checkpoint.getId().equals(checkPointId)).findFirst();
+            }
+            return Optional.ofNullable(checkpoints.peek());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public RunnableConfig put(RunnableConfig config, Checkpoint checkpoint) throws Exception {
+        String threadId = threadId(config);
+        ReentrantLock lock = lockOf(threadId);
+        lock.lock();
+        try {
+            ThreadLog threadLog = threadLogs.computeIfAbsent(threadId, this::load);
+            LinkedList<Checkpoint> checkpoints = threadLog.checkpoints;
+
+            RunnableConfig result;
+            if (config.checkPointId().isPresent()) {
+                String checkPointId = config.checkPointId().get();
+                int index = indexOf(checkpoints, checkPointId)
+                    .orElseThrow(() -> new NoSuchElementException("Checkpoint with id " + checkPointId + " not found!"));
+                // A new version of a checkpoint keeps its id but carries the given state
+                checkpoint = Checkpoint.builder()
+                    .id(checkPointId)
+                    .nodeId(checkpoint.getNodeId())
+                    .nextNodeId(checkpoint.getNextNodeId())
+                    .state(checkpoint.getState())
+                    .build();
+                checkpoints.set(index, checkpoint);
+                result = config;
+            } else {
+                checkpoints.push(checkpoint);
+                result = RunnableConfig.builder(config).checkPointId(checkpoint.getId()).build();
+            }
+
+            append(threadId, threadLog, checkpoint);
+
+            if (threadLog.recordCount > checkpointProperties.getCompactionThreshold()) {
+                compact(threadId, threadLog);
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Called once a run completed. Its checkpoints are no longer needed to resume it, so the log is deleted
+     * unless configured otherwise.
+     */
+    @Override
+    public Tag release(RunnableConfig config) throws Exception {
+        String threadId = threadId(config);
+        ReentrantLock lock = lockOf(threadId);
+        lock.lock();
+        try {
+            ThreadLog threadLog = threadLogs.remove(threadId);
+            if (checkpointProperties.isDeleteOnCompletion()) {
+                Files.deleteIfExists(logFile(threadId));
+            }
+            return new Tag(threadId, threadLog == null ? List.of() : threadLog.checkpoints);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops the checkpoints of a run that ended from memory, they are read back from its log if it is resumed.
+     */
+    public void evict(String threadId) {
+        ReentrantLock lock = lockOf(threadId);
+        lock.lock();
+        try {
+            threadLogs.remove(threadId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns whether there are checkpoints a run with the given thread id can be resumed from.
+     */
+    public boolean hasCheckpoints(String threadId) {
+        ReentrantLock lock = lockOf(threadId);
+        lock.lock();
+        try {
+            ThreadLog threadLog = threadLogs.get(threadId);
+            return !(threadLog == null ? load(threadId) : threadLog).checkpoints.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of threads whose checkpoints are kept in memory.
+     */
+    int threadsInMemory() {
+        return threadLogs.size();
+    }
+
+    /**
+     * The checkpoints of the thread, kept in memory only if there are any: a run reads them when it is resumed.
+     */
+    private ThreadLog getThreadLog(String threadId) {
+
+        ThreadLog threadLog = threadLogs.get(threadId);
+        if (threadLog == null) {
+            threadLog = load(threadId);
+            if (!threadLog.checkpoints.isEmpty()) {
+                threadLogs.put(threadId, threadLog);
+            }
+        }
+        return threadLog;
+    }
+
+    private ReentrantLock lockOf(String threadId) {
+        return locks[Math.floorMod(threadId.hashCode(), LOCK_STRIPES)];
+    }
+
+    private static Optional<Integer> indexOf(List<Checkpoint> checkpoints, String checkPointId) {
+        for (int i = 0; i < checkpoints.size(); i++) {
+            if (checkpoints.get(i).getId().equals(checkPointId)) {
+                return Optional.of(i);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private void append(String threadId, ThreadLog threadLog, Checkpoint checkpoint) throws IOException {
+
+        Path logFile = logFile(threadId);
+        Files.createDirectories(logFile.getParent());
+
+        try (FileChannel channel = FileChannel.open(logFile,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            writeRecord(channel, checkpoint);
+            if (checkpointProperties.isFsync()) {
+                channel.force(false);
+            }
+        }
+        threadLog.recordCount++;
+    }
+
+    private void compact(String threadId, ThreadLog threadLog) throws IOException {
+
+        List<Checkpoint> checkpoints = threadLog.checkpoints;
+        int retained = Math.min(checkpoints.size(), checkpointProperties.getRetainedCheckpoints());
+        List<Checkpoint> retainedCheckpoints = new ArrayList<>(checkpoints.subList(0, retained));
+
+        Path logFile = logFile(threadId);
+        Path compactedFile = logFile.resolveSibling(logFile.getFileName() + ".compacting");
+
+        try (FileChannel channel = FileChannel.open(compactedFile,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // Oldest first, so replaying the log pushes them back in the same order
+            for (Checkpoint checkpoint : retainedCheckpoints.reversed()) {
+                writeRecord(channel, checkpoint);
+            }
+            channel.force(false);
+        }
+        Files.move(compactedFile, logFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        checkpoints.retainAll(retainedCheckpoints);
+        threadLog.recordCount = retained;
+        log.debug("Compacted checkpoint log of thread [{}] to {} checkpoints", threadId, retained);
+    }
+
+    private void writeRecord(FileChannel channel, Checkpoint checkpoint) throws IOException {
+
+        byte[] payload = serialize(checkpoint);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + payload.length)
+            .putInt(payload.length)
+            .putInt((int) crc.getValue())
+            .put(payload)
+            .flip();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+    }
+
+    private ThreadLog load(String threadId) {
+
+        LinkedList<Checkpoint> checkpoints = new LinkedList<>();
+        Path logFile = logFile(threadId);
+        if (!Files.exists(logFile)) {
+            return new ThreadLog(checkpoints, 0);
+        }
+
+        int recordCount = 0;
+        long validLength = 0;
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (buffer.remaining() >= RECORD_HEADER_BYTES) {
+                Optional<Checkpoint> checkpoint = readRecord(buffer);
+                if (checkpoint.isEmpty()) {
+                    break;
+                }
+                // A record carrying the id of an earlier one is a new version of it
+                Checkpoint read = checkpoint.get();
+                indexOf(checkpoints, read.getId()).ifPresentOrElse(
+                    index -> checkpoints.set(index, read),
+                    () -> checkpoints.push(read));
+                recordCount++;
+                validLength = buffer.position();
+            }
+            if (validLength < channel.size()) {
+                log.warn("Discarding {} bytes of torn checkpoint records at the end of [{}]",
+                    channel.size() - validLength, logFile);
+                channel.truncate(validLength);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read checkpoint log [" + logFile + "]", e);
+        }
+        return new ThreadLog(checkpoints, recordCount);
+    }
+
+    private Optional<Checkpoint> readRecord(ByteBuffer buffer) {
+
+        try {
+            int length = buffer.getInt();
+            int expectedCrc = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                return Optional.empty();
+            }
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != expectedCrc) {
+                return Optional.empty();
+            }
+            return Optional.of(deserialize(payload));
+        } catch (BufferUnderflowException | IOException | ClassNotFoundException e) {
+            return Optional.empty();
+        }
+    }
+
+    private byte[] serialize(Checkpoint checkpoint) throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(checkpoint.getId());
+            writeNullableString(out, checkpoint.getNodeId());
+            writeNullableString(out, checkpoint.getNextNodeId());
+            byte[] state = stateSerializer.writeObject(new State(checkpoint.getState()));
+            out.writeInt(state.length);
+            out.write(state);
+        }
+        return bytes.toByteArray();
+    }
+
+    private Checkpoint deserialize(byte[] payload) throws IOException, ClassNotFoundException {
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        String id = in.readUTF();
+        String nodeId = readNullableString(in);
+        String nextNodeId = readNullableString(in);
+        byte[] state = in.readNBytes(in.readInt());
+
+        return Checkpoint.builder()
+            .id(id)
+            .nodeId(nodeId)
+            .nextNodeId(nextNodeId)
+            .state(stateSerializer.readObject(state).data())
+            .build();
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static String threadId(RunnableConfig config) {
+        return config.threadId().orElse(THREAD_ID_DEFAULT);
+    }
+
+    /**
+     * The log of the thread, named after the thread id if it makes a safe file name and after its hash otherwise,
+     * so a long id sent by a client cannot exceed the file name limit.
+     */
+    private Path logFile(String threadId) {
+        String fileName = SAFE_THREAD_ID.matcher(threadId).matches()
+            ? threadId
+            : HASHED_PREFIX + HexFormat.of().formatHex(sha256(threadId));
+        return checkpointProperties.getDirectory().resolve(fileName + EXTENSION);
+    }
+
+    private static byte[] sha256(String threadId) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(threadId.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is always available", e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.langraph4j_researcher.services;
+
+import com.example.langraph4j_researcher.config.ResearchProperties;
+
+/**
+ * Configuration a research graph is compiled with.
+ * Two graphs compiled from equal configurations behave identically, so reloading an equal
+ * configuration keeps the compiled graph.
+ */
+public record GraphConfig(int maxQueryCount, int maxResearchNodeExecutionCount) {
+
+    public GraphConfig {
+        if (maxQueryCount < 1) {
+            throw new IllegalArgumentException("maxQueryCount must be at least 1 but was " + maxQueryCount);
+        }
+        if (maxResearchNodeExecutionCount < 1) {
+            throw new IllegalArgumentException(
+                "maxResearchNodeExecutionCount must be at least 1 but was " + maxResearchNodeExecutionCount);
+        }
+    }
+
+    public static GraphConfig from(ResearchProperties.Graph graph) {
+        return new GraphConfig(graph.getMaxQueryCount(), graph.getMaxResearchNodeExecutionCount());
+    }
+}
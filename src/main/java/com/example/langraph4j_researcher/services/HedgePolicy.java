@@ -0,0 +1,93 @@
+package com.example.langraph4j_researcher.services;
+
+import com.example.langraph4j_researcher.config.ResearchProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.stereotype.Service;
+
+/**
+ * Decides when an LLM call is hedged: sent to a second Ollama backend because the first one is slower than usual.
+ * Only the calls of the nodes in {@code researcher.ollama.hedging.nodes} are hedged, once their latency exceeds the
+ * configured percentile of the recent calls of the node. Hedging at a high percentile costs a few extra calls, and
+ * cuts the tail latency a single slow or overloaded backend adds to every run.
+ */
+@Service
+public class HedgePolicy {
+
+    static final String HEDGES = "research.ollama.hedges";
+
+    private static final int WINDOW_SIZE = 256;
+
+    private final ResearchProperties.Ollama.Hedging hedgingProperties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, LatencyWindow> latencies = new ConcurrentHashMap<>();
+
+    public HedgePolicy(ResearchProperties researchProperties, MeterRegistry meterRegistry) {
+        this.hedgingProperties = researchProperties.getOllama().getHedging();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Time after which a call of the node is hedged, empty if its calls are not hedged.
+     */
+    public Optional<Duration> hedgeDelay(String node) {
+
+        if (!isHedged(node)) {
+            return Optional.empty();
+        }
+        LatencyWindow window = latencies.get(node);
+        if (window == null) {
+            return Optional.empty();
+        }
+        return window.percentile(hedgingProperties.getPercentile(), hedgingProperties.getMinSamples());
+    }
+
+    public void recordLatency(String node, Duration latency) {
+
+        if (isHedged(node)) {
+            latencies.computeIfAbsent(node, ignored -> new LatencyWindow()).add(latency.toNanos());
+        }
+    }
+
+    /**
+     * Counts a hedged call by the request that answered it, the first one or the hedge.
+     */
+    public void hedged(String winner) {
+        meterRegistry.counter(HEDGES, "winner", winner).increment();
+    }
+
+    private boolean isHedged(String node) {
+        return hedgingProperties.isEnabled() && hedgingProperties.getNodes().contains(node);
+    }
+
+    /**
+     * Latencies of the most recent calls of a node.
+     */
+    private static final class LatencyWindow {
+
+        private final long[] nanos = new long[WINDOW_SIZE];
+        private int count;
+        private int next;
+
+        synchronized void add(long latencyNanos) {
+            nanos[next] = latencyNanos;
+            next = (next + 1) % WINDOW_SIZE;
+            count = Math.min(count + 1, WINDOW_SIZE);
+        }
+
+        synchronized Optional<Duration> percentile(double percentile, int minSamples) {
+
+            if (count < minSamples || count == 0) {
+                return Optional.empty();
+            }
+            long[] sorted = Arrays.copyOf(nanos, count);
+            Arrays.sort(sorted);
+            int index = Math.max(0, (int) Math.ceil(percentile * count) - 1);
+            return Optional.of(Duration.ofNanos(sorted[index]));
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.langraph4j_researcher.services;
+
+import java.time.Duration;
+import lombok.Getter;
+
+/**
+ * Thrown when a research job cannot be queued because the scheduler queue is full.
+ */
+@Getter
+public class JobRejectedException extends RuntimeException {
+
+    // Estimated time until the queue has room again
+    private final Duration retryAfter;
+
+    public JobRejectedException(int queueCapacity, Duration retryAfter) {
+        super("The research queue is full (" + queueCapacity + " jobs), retry after " + retryAfter.toSeconds() + "s");
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,448 @@
+package com.example.langraph4j_researcher.services;
+
+import com.example.langraph4j_researcher.config.ResearchProperties;
+import com.example.langraph4j_researcher.model.Passage;
+import com.example.langraph4j_researcher.utils.IndexSegment;
+import com.example.langraph4j_researcher.utils.TextSimilarity;
+import com.example.langraph4j_researcher.utils.VectorIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+
+/**
+ * Research source retrieving passages from a local corpus of text documents, fully offline.
+ * <p>
+ * Documents are split into passages of about {@code max-passage-tokens} and kept in an index of immutable,
+ * memory-mapped {@link IndexSegment segments}. Ingestion is incremental: it only reads the documents added or changed
+ * since the last ingestion, writes them into a new segment and points the manifest, which records the segment holding
+ * the current version of every document, at it. Passages of older versions and of deleted documents are skipped by
+ * searches, and segments without current documents are deleted.
+ * <p>
+ * Passages are ranked by BM25 over their words. With vectors enabled they are also ranked by the cosine similarity of
+ * their embeddings to the query, and the two rankings are merged by reciprocal rank fusion.
+ */
+@Slf4j
+public class LocalIndexResearchSource implements ResearchSource {
+
+    static final String RETRIEVAL = "research.retrieval";
+
+    private static final String MANIFEST = "manifest.json";
+    private static final String SEGMENT_EXTENSION = ".seg";
+    private static final Pattern PARAGRAPH_BREAK = Pattern.compile("\\R\\s*\\R");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Set<String> DOCUMENT_EXTENSIONS = Set.of("txt", "md");
+
+    // BM25 parameters, the usual defaults
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // Reciprocal rank fusion constant, damps the weight of the top ranks
+    private static final int RRF_K = 60;
+    // Passages embedded per embedding call during ingestion
+    private static final int EMBEDDING_BATCH_SIZE = 32;
+
+    /**
+     * Where the current version of a document is indexed.
+     */
+    record DocumentEntry(String segment, long lastModified, long size) {}
+
+    record Manifest(int nextSegment, Map<String, DocumentEntry> documents) {}
+
+    /**
+     * Documents ingested and removed by an ingestion.
+     */
+    public record IngestionStats(int ingestedDocuments, int removedDocuments, int passages) {
+
+        public boolean changed() {
+            return ingestedDocuments > 0 || removedDocuments > 0;
+        }
+    }
+
+    /**
+     * Index as searched, replaced as a whole by every ingestion so searches never see one half way.
+     */
+    private record Snapshot(Map<String, IndexSegment> segments, Map<String, DocumentEntry> documents, int nextSegment,
+        long passageCount, double averageWords) {
+
+        static Snapshot of(Map<String, IndexSegment> segments, Map<String, DocumentEntry> documents, int nextSegment) {
+            // Like most search engines the statistics include superseded passages, which is close enough
+            long passageCount = segments.values().stream().mapToLong(IndexSegment::passageCount).sum();
+            long totalWords = segments.values().stream().mapToLong(IndexSegment::totalWords).sum();
+            return new Snapshot(segments, documents, nextSegment, passageCount,
+                passageCount == 0 ? 0 : (double) totalWords / passageCount);
+        }
+
+        boolean isCurrent(IndexSegment segment, int passage) {
+            DocumentEntry entry = documents.get(segment.documentName(passage));
+            return entry != null && entry.segment().equals(segmentName(segment));
+        }
+    }
+
+    private record Hit(IndexSegment segment, int passage, double score) {}
+
+    private final ResearchProperties.Retrieval.Local localProperties;
+    private final EmbeddingModel embeddingModel;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Timer retrievalTimer;
+
+    private volatile Snapshot snapshot;
+
+    public LocalIndexResearchSource(ResearchProperties researchProperties, EmbeddingModel embeddingModel,
+        MeterRegistry meterRegistry) {
+
+        this.localProperties = researchProperties.getRetrieval().getLocal();
+        this.embeddingModel = localProperties.isVectors() ? embeddingModel : null;
+        this.retrievalTimer = Timer.builder(RETRIEVAL)
+            .description("Retrieval of the passages of a research query from the local index")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        this.snapshot = load();
+    }
+
+    @Override
+    public List<Passage> retrieve(String query, int topK) {
+        return retrievalTimer.record(() -> search(snapshot, query, topK));
+    }
+
+    /**
+     * Ingests the documents of the corpus directory that were added, changed or deleted since the last ingestion.
+     */
+    public synchronized IngestionStats ingest() {
+
+        Snapshot current = snapshot;
+        Path corpusDirectory = localProperties.getCorpusDirectory();
+        Map<String, Path> corpus = listDocuments(corpusDirectory);
+
+        Map<String, DocumentEntry> documents = new HashMap<>(current.documents());
+        int removed = 0;
+        for (String name : current.documents().keySet()) {
+            if (!corpus.containsKey(name)) {
+                documents.remove(name);
+                removed++;
+            }
+        }
+
+        String segmentName = "segment-" + current.nextSegment();
+        List<IndexSegment.Document> changedDocuments = new ArrayList<>();
+        try {
+            for (Map.Entry<String, Path> document : corpus.entrySet()) {
+                long lastModified = Files.getLastModifiedTime(document.getValue()).toMillis();
+                long size = Files.size(document.getValue());
+                DocumentEntry entry = current.documents().get(document.getKey());
+                if (entry != null && entry.lastModified() == lastModified && entry.size() == size) {
+                    continue;
+                }
+                List<String> passages = splitPassages(Files.readString(document.getValue()),
+                    localProperties.getMaxPassageTokens());
+                changedDocuments.add(new IndexSegment.Document(document.getKey(), passages, null));
+                documents.put(document.getKey(), new DocumentEntry(segmentName, lastModified, size));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the corpus in [" + corpusDirectory + "]", e);
+        }
+
+        if (changedDocuments.isEmpty() && removed == 0) {
+            return new IngestionStats(0, 0, 0);
+        }
+
+        try {
+            Files.createDirectories(localProperties.getIndexDirectory());
+            Map<String, IndexSegment> segments = new HashMap<>(current.segments());
+            int passageCount = changedDocuments.stream().mapToInt(document -> document.passages().size()).sum();
+            if (!changedDocuments.isEmpty()) {
+                List<IndexSegment.Document> embedded = embed(changedDocuments);
+                segments.put(segmentName, IndexSegment.write(segmentFile(segmentName), embedded, dimensions(embedded)));
+            }
+
+            // Segments no current document refers to any more are no longer searched
+            Set<String> referencedSegments = new HashSet<>();
+            documents.values().forEach(entry -> referencedSegments.add(entry.segment()));
+            List<IndexSegment> obsoleteSegments = segments.values().stream()
+                .filter(segment -> !referencedSegments.contains(segmentName(segment)))
+                .toList();
+            obsoleteSegments.forEach(segment -> segments.remove(segmentName(segment)));
+
+            Snapshot ingested = Snapshot.of(segments, documents, current.nextSegment() + 1);
+            writeManifest(new Manifest(ingested.nextSegment(), documents));
+            snapshot = ingested;
+
+            for (IndexSegment segment : obsoleteSegments) {
+                // Searches still running on the previous snapshot keep their mapping of the deleted file
+                Files.deleteIfExists(segment.file());
+            }
+            log.info("Ingested {} documents in {} passages, removed {} documents", changedDocuments.size(),
+                passageCount, removed);
+            return new IngestionStats(changedDocuments.size(), removed, passageCount);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write the index in [" + localProperties.getIndexDirectory() + "]", e);
+        }
+    }
+
+    /**
+     * Number of documents in the index.
+     */
+    public int documentCount() {
+        return snapshot.documents().size();
+    }
+
+    private List<Passage> search(Snapshot snapshot, String query, int topK) {
+
+        List<Hit> lexicalHits = lexicalSearch(snapshot, query, topK * 2);
+        List<Hit> vectorHits = vectorSearch(snapshot, query, topK * 2);
+        List<Hit> hits = vectorHits.isEmpty() ? lexicalHits : fuse(lexicalHits, vectorHits);
+
+        return hits.stream()
+            .limit(topK)
+            .map(hit -> new Passage(hit.segment().documentName(hit.passage()), hit.segment().passageText(hit.passage()),
+                hit.score()))
+            .toList();
+    }
+
+    private static List<Hit> lexicalSearch(Snapshot snapshot, String query, int limit) {
+
+        Set<String> terms = TextSimilarity.terms(query);
+        Map<IndexSegment, Map<Integer, Double>> scores = new HashMap<>();
+        for (String term : terms) {
+            long documentFrequency = snapshot.segments().values().stream()
+                .mapToLong(segment -> segment.documentFrequency(term))
+                .sum();
+            if (documentFrequency == 0) {
+                continue;
+            }
+            double idf = Math.log(1 + (snapshot.passageCount() - documentFrequency + 0.5) / (documentFrequency + 0.5));
+            for (IndexSegment segment : snapshot.segments().values()) {
+                Map<Integer, Double> segmentScores = scores.computeIfAbsent(segment, ignored -> new HashMap<>());
+                segment.forEachPosting(term, (passage, termFrequency) -> {
+                    double lengthNorm = 1 - B + B * segment.passageWords(passage) / snapshot.averageWords();
+                    double score = idf * termFrequency * (K1 + 1) / (termFrequency + K1 * lengthNorm);
+                    segmentScores.merge(passage, score, Double::sum);
+                });
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>();
+        scores.forEach((segment, segmentScores) -> segmentScores.forEach((passage, score) ->
+            hits.add(new Hit(segment, passage, score))));
+        return topCurrent(snapshot, hits.stream(), limit);
+    }
+
+    private List<Hit> vectorSearch(Snapshot snapshot, String query, int limit) {
+
+        if (embeddingModel == null) {
+            return List.of();
+        }
+        float[] queryVector;
+        try {
+            queryVector = VectorIndex.normalise(embeddingModel.embed(query));
+        } catch (RuntimeException e) {
+            log.warn("Failed to embed research query [{}], retrieving by words only", query, e);
+            return List.of();
+        }
+        Stream<Hit> hits = snapshot.segments().values().stream()
+            .filter(segment -> segment.dimensions() == queryVector.length)
+            .flatMap(segment -> IntStream.range(0, segment.passageCount())
+                .mapToObj(passage -> new Hit(segment, passage, segment.similarity(passage, queryVector))));
+        return topCurrent(snapshot, hits, limit);
+    }
+
+    /**
+     * The best scoring hits on passages of current document versions, best first.
+     */
+    private static List<Hit> topCurrent(Snapshot snapshot, Stream<Hit> hits, int limit) {
+
+        PriorityQueue<Hit> top = new PriorityQueue<>(Comparator.comparingDouble(Hit::score));
+        hits.forEach(hit -> {
+            if ((top.size() < limit || hit.score() > top.peek().score()) && snapshot.isCurrent(hit.segment(), hit.passage())) {
+                top.add(hit);
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+        });
+        List<Hit> sorted = new ArrayList<>(top);
+        sorted.sort(Comparator.comparingDouble(Hit::score).reversed());
+        return sorted;
+    }
+
+    /**
+     * Merges two rankings by reciprocal rank fusion, which needs no calibration between BM25 and cosine scores.
+     */
+    private static List<Hit> fuse(List<Hit> lexicalHits, List<Hit> vectorHits) {
+
+        Map<String, Hit> fused = new LinkedHashMap<>();
+        for (List<Hit> ranking : List.of(lexicalHits, vectorHits)) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                Hit hit = ranking.get(rank);
+                double score = 1.0 / (RRF_K + rank + 1);
+                fused.merge(segmentName(hit.segment()) + '/' + hit.passage(), new Hit(hit.segment(), hit.passage(), score),
+                    (left, right) -> new Hit(left.segment(), left.passage(), left.score() + right.score()));
+            }
+        }
+        return fused.values().stream().sorted(Comparator.comparingDouble(Hit::score).reversed()).toList();
+    }
+
+    /**
+     * Adds the embeddings of their passages to the documents, or leaves them without if embedding fails.
+     */
+    private List<IndexSegment.Document> embed(List<IndexSegment.Document> documents) {
+
+        if (embeddingModel == null) {
+            return documents;
+        }
+        try {
+            List<IndexSegment.Document> embedded = new ArrayList<>(documents.size());
+            for (IndexSegment.Document document : documents) {
+                List<float[]> vectors = new ArrayList<>(document.passages().size());
+                for (int start = 0; start < document.passages().size(); start += EMBEDDING_BATCH_SIZE) {
+                    vectors.addAll(embeddingModel.embed(document.passages()
+                        .subList(start, Math.min(start + EMBEDDING_BATCH_SIZE, document.passages().size()))));
+                }
+                embedded.add(new IndexSegment.Document(document.name(), document.passages(), vectors));
+            }
+            return embedded;
+        } catch (RuntimeException e) {
+            log.warn("Failed to embed the ingested passages, they are retrieved by words only", e);
+            return documents;
+        }
+    }
+
+    private static int dimensions(List<IndexSegment.Document> documents) {
+        return documents.stream()
+            .filter(document -> document.vectors() != null && !document.vectors().isEmpty())
+            .mapToInt(document -> document.vectors().getFirst().length)
+            .findFirst()
+            .orElse(0);
+    }
+
+    /**
+     * Splits a document into passages of whole paragraphs up to the token limit, longer paragraphs are split by words.
+     */
+    static List<String> splitPassages(String text, int maxTokens) {
+
+        List<String> passages = new ArrayList<>();
+        StringBuilder passage = new StringBuilder();
+        for (String paragraph : PARAGRAPH_BREAK.split(text)) {
+            String normalised = WHITESPACE.matcher(paragraph.strip()).replaceAll(" ");
+            if (normalised.isEmpty()) {
+                continue;
+            }
+            if (!passage.isEmpty()
+                && TextSimilarity.estimateTokens(passage + " " + normalised) > maxTokens) {
+                passages.add(passage.toString());
+                passage.setLength(0);
+            }
+            for (String words : splitWords(normalised, maxTokens)) {
+                if (!passage.isEmpty()) {
+                    passage.append(' ');
+                }
+                passage.append(words);
+                if (TextSimilarity.estimateTokens(passage.toString()) >= maxTokens) {
+                    passages.add(passage.toString());
+                    passage.setLength(0);
+                }
+            }
+        }
+        if (!passage.isEmpty()) {
+            passages.add(passage.toString());
+        }
+        return passages;
+    }
+
+    private static List<String> splitWords(String paragraph, int maxTokens) {
+
+        List<String> parts = new ArrayList<>();
+        int maxLength = maxTokens * 4;
+        String rest = paragraph;
+        while (rest.length() > maxLength) {
+            int end = rest.lastIndexOf(' ', maxLength);
+            if (end <= 0) {
+                end = maxLength;
+            }
+            parts.add(rest.substring(0, end).strip());
+            rest = rest.substring(end).strip();
+        }
+        parts.add(rest);
+        return parts;
+    }
+
+    private Snapshot load() {
+
+        Path manifestFile = localProperties.getIndexDirectory().resolve(MANIFEST);
+        if (!Files.exists(manifestFile)) {
+            return Snapshot.of(Map.of(), Map.of(), 0);
+        }
+        try {
+            Manifest manifest = objectMapper.readValue(manifestFile.toFile(), Manifest.class);
+            Map<String, IndexSegment> segments = new HashMap<>();
+            for (DocumentEntry entry : manifest.documents().values()) {
+                if (!segments.containsKey(entry.segment())) {
+                    segments.put(entry.segment(), IndexSegment.open(segmentFile(entry.segment())));
+                }
+            }
+            return Snapshot.of(segments, manifest.documents(), manifest.nextSegment());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open the index in [" + localProperties.getIndexDirectory() + "]", e);
+        }
+    }
+
+    private void writeManifest(Manifest manifest) throws IOException {
+
+        Path manifestFile = localProperties.getIndexDirectory().resolve(MANIFEST);
+        Path tempFile = manifestFile.resolveSibling(MANIFEST + ".tmp");
+        objectMapper.writeValue(tempFile.toFile(), manifest);
+        Files.move(tempFile, manifestFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Path segmentFile(String segmentName) {
+        return localProperties.getIndexDirectory().resolve(segmentName + SEGMENT_EXTENSION);
+    }
+
+    private static String segmentName(IndexSegment segment) {
+        String fileName = segment.file().getFileName().toString();
+        return fileName.substring(0, fileName.length() - SEGMENT_EXTENSION.length());
+    }
+
+    /**
+     * The documents of the corpus by their path relative to the corpus directory.
+     */
+    private static Map<String, Path> listDocuments(Path corpusDirectory) {
+
+        if (!Files.isDirectory(corpusDirectory)) {
+            return Map.of();
+        }
+        try (Stream<Path> files = Files.walk(corpusDirectory)) {
+            Map<String, Path> documents = new HashMap<>();
+            files.filter(Files::isRegularFile)
+                .filter(file -> DOCUMENT_EXTENSIONS.contains(extension(file)))
+                .forEach(file -> documents.put(corpusDirectory.relativize(file).toString().replace('\\', '/'), file));
+            return documents;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list the corpus in [" + corpusDirectory + "]", e);
+        }
+    }
+
+    private static String extension(Path file) {
+        String fileName = file.getFileName().toString();
+        int dot = fileName.lastIndexOf('.');
+        return dot < 0 ? "" : fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.langraph4j_researcher.services;
+
+import com.example.langraph4j_researcher.config.ResearchProperties;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.stereotype.Service;
+
+/**
+ * Chooses the models that answer the LLM calls of each graph node.
+ * Every node can have its own route: a chain of models in order of preference with their options. A call goes to the
+ * first model of the chain and falls back to the next one when it fails. With a latency budget, models whose measured
+ * latency for the node exceeds the budget move to the end of the chain, so a cheap node is not held up by a slow
+ * model while the preferred model is still tried when the faster ones fail. Once every
+ * {@code researcher.routing.probe-interval} a call is routed to such a model first again, so its latency is measured
+ * anew and a model that got faster, for instance once another model was unloaded, is back in its place.
+ * <p>
+ * Ollama charges nothing per call, so there is no cost to route by beyond the capacity a model takes: list cheaper
+ * models first in a route to prefer them.
+ */
+@Service
+public class ModelRouter {
+
+    /**
+     * Model to call with its options, a null model and options stand for the default chat model.
+     */
+    public record ModelChoice(String model, ChatOptions options, Boolean think) {
+
+        static final ModelChoice DEFAULT = new ModelChoice(null, null, null);
+
+        /**
+         * The prompt with the switch qwen3 and similar reasoning models accept to turn thinking on or off.
+         */
+        public String prompt(String prompt) {
+            if (think == null) {
+                return prompt;
+            }
+            return prompt + (think ? "\n/think" : "\n/no_think");
+        }
+
+        public String modelName() {
+            return model == null ? "default" : model;
+        }
+    }
+
+    private final ResearchProperties.Routing routingProperties;
+
+    // Moving average of the latency in nanoseconds per node and model
+    private final Map<String, Double> averageLatencies = new ConcurrentHashMap<>();
+    // When each model was last measured or probed per node and model, in System.nanoTime
+    private final Map<String, Long> lastTried = new ConcurrentHashMap<>();
+
+    public ModelRouter(ResearchProperties researchProperties) {
+        this.routingProperties = researchProperties.getRouting();
+    }
+
+    /**
+     * The models to try for a call of the node, in order.
+     */
+    public List<ModelChoice> route(String node) {
+
+        ResearchProperties.Routing.Route route = routingProperties.getNodes().get(node);
+        if (route == null) {
+            return List.of(ModelChoice.DEFAULT);
+        }
+        // A route without models only sets the options of the default model
+        List<String> models = route.getModels().isEmpty() ? Collections.singletonList(null) : route.getModels();
+
+        List<ModelChoice> withinBudget = new ArrayList<>();
+        List<ModelChoice> overBudget = new ArrayList<>();
+        for (String model : models) {
+            ModelChoice choice = new ModelChoice(model, options(model, route), route.getThink());
+            if (isOverBudget(node, model, route.getLatencyBudget())) {
+                overBudget.add(choice);
+            } else {
+                withinBudget.add(choice);
+            }
+        }
+        withinBudget.addAll(overBudget);
+        return withinBudget;
+    }
+
+    /**
+     * Adds the latency of a successful call to the moving average of the model for the node.
+     */
+    public void recordLatency(String node, ModelChoice choice, Duration latency) {
+
+        double sample = latency.toNanos();
+        double smoothing = routingProperties.getLatencySmoothing();
+        String key = key(node, choice.modelName());
+        averageLatencies.merge(key, sample, (average, latest) -> average + smoothing * (latest - average));
+        lastTried.put(key, System.nanoTime());
+    }
+
+    /**
+     * Average latency of the model for the node, if it was called before.
+     */
+    public Duration averageLatency(String node, String model) {
+        Double average = averageLatencies.get(key(node, model));
+        return average == null ? null : Duration.ofNanos(average.longValue());
+    }
+
+    private boolean isOverBudget(String node, String model, Duration latencyBudget) {
+
+        if (latencyBudget == null || model == null) {
+            return false;
+        }
+        // Models that were not measured yet get the benefit of the doubt
+        Duration average = averageLatency(node, model);
+        return average != null && average.compareTo(latencyBudget) > 0 && !claimProbe(key(node, model));
+    }
+
+    /**
+     * Whether it is time to probe the model again, only one of concurrent calls gets the probe.
+     */
+    private boolean claimProbe(String key) {
+
+        long now = System.nanoTime();
+        Long last = lastTried.get(key);
+        if (last != null && now - last < routingProperties.getProbeInterval().toNanos()) {
+            return false;
+        }
+        return last == null ? lastTried.putIfAbsent(key, now) == null : lastTried.replace(key, last, now);
+    }
+
+    private static ChatOptions options(String model, ResearchProperties.Routing.Route route) {
+        return OllamaOptions.builder()
+            .model(model)
+            .temperature(route.getTemperature())
+            .numCtx(route.getNumCtx())
+            .build();
+    }
+
+    private static String key(String node, String model) {
+        return node + '\u0000' + model;
+    }
+}
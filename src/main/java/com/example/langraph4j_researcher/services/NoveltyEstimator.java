@@ -0,0 +1,89 @@
+package com.example.langraph4j_researcher.services;
+
+import com.example.langraph4j_researcher.config.ResearchProperties;
+import com.example.langraph4j_researcher.utils.TextSimilarity;
+import com.example.langraph4j_researcher.utils.VectorIndex;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+
+/**
+ * Measures how much new information a research round added to the rounds before it.
+ * The novelty of a summary is its distance from the most similar summary researched before it, and the novelty of a
+ * round the average over its summaries, so 1 means every summary told something new and 0 that the round only
+ * repeated what was known. Summaries are compared by the cosine similarity of their embeddings when embedding novelty
+ * is enabled and an embedding model is available, and by the words they share otherwise.
+ */
+@Slf4j
+@Service
+public class NoveltyEstimator {
+
+    private final EmbeddingModel embeddingModel;
+
+    // Summaries of a run are compared again in every later round, embed each one once
+    private final Cache<String, float[]> embeddings = Caffeine.newBuilder()
+        .maximumSize(10_000)
+        .expireAfterAccess(Duration.ofHours(1))
+        .build();
+
+    public NoveltyEstimator(ResearchProperties researchProperties, ObjectProvider<EmbeddingModel> embeddingModel) {
+        this.embeddingModel = researchProperties.getDepth().isEmbeddingNovelty() ? embeddingModel.getIfAvailable() : null;
+    }
+
+    /**
+     * Novelty of the latest summaries relative to the earlier ones, and to the latest ones before them.
+     */
+    public double novelty(List<String> earlier, List<String> latest) {
+
+        if (latest.isEmpty()) {
+            return 0;
+        }
+        if (embeddingModel != null) {
+            try {
+                return novelty(embed(earlier), embed(latest), VectorIndex::cosineSimilarity);
+            } catch (RuntimeException e) {
+                log.warn("Failed to embed research summaries, measuring novelty lexically", e);
+            }
+        }
+        return novelty(earlier.stream().map(TextSimilarity::terms).toList(),
+            latest.stream().map(TextSimilarity::terms).toList(), TextSimilarity::jaccard);
+    }
+
+    private static <T> double novelty(List<T> earlier, List<T> latest, BiFunction<T, T, Double> similarity) {
+
+        List<T> known = new ArrayList<>(earlier);
+        double totalNovelty = 0;
+        for (T summary : latest) {
+            double maxSimilarity = 0;
+            for (T knownSummary : known) {
+                maxSimilarity = Math.max(maxSimilarity, similarity.apply(summary, knownSummary));
+            }
+            totalNovelty += 1 - Math.min(1, maxSimilarity);
+            known.add(summary);
+        }
+        return totalNovelty / latest.size();
+    }
+
+    private List<float[]> embed(List<String> summaries) {
+
+        Map<String, float[]> vectors = new HashMap<>(embeddings.getAllPresent(summaries));
+        List<String> missing = summaries.stream().filter(summary -> !vectors.containsKey(summary)).distinct().toList();
+        if (!missing.isEmpty()) {
+            List<float[]> embedded = embeddingModel.embed(missing);
+            for (int i = 0; i < missing.size(); i++) {
+                vectors.put(missing.get(i), embedded.get(i));
+                embeddings.put(missing.get(i), embedded.get(i));
+            }
+        }
+        return summaries.stream().map(vectors::get).toList();
+    }
+}
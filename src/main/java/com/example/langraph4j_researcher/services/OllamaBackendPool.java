@@ -0,0 +1,351 @@
+package com.example.langraph4j_researcher.services;
+
+import com.example.langraph4j_researcher.config.OllamaApiFactory;
+import com.example.langraph4j_researcher.config.ResearchProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.stereotype.Service;
+
+/**
+ * The Ollama servers LLM calls are spread across.
+ * <p>
+ * Without configured backends every call goes to the auto-configured chat model, as a single backend. With
+ * {@code researcher.ollama.backends} every backend gets its own chat model, and each call goes to the backend with
+ * the fewest outstanding requests relative to its capacity, preferring backends that have the model of the call
+ * loaded: a backend that would have to load the model first takes seconds before it answers. The models a backend
+ * has loaded are learnt from its periodic health checks and from the calls it answered.
+ * <p>
+ * Configured backends are taken out of rotation, like an open circuit breaker, after
+ * {@code researcher.ollama.failure-threshold} consecutive failed calls or health checks. After
+ * {@code researcher.ollama.circuit-open-duration}, or as soon as a health check passes again, a single trial call may
+ * go to the backend; it is back in rotation when that call succeeds.
+ */
+@Slf4j
+@Service
+public class OllamaBackendPool {
+
+    static final String OUTSTANDING = "research.ollama.backend.outstanding";
+    static final String AVAILABLE = "research.ollama.backend.available";
+
+    private static final String DEFAULT_BACKEND = "default";
+
+    /**
+     * An Ollama server and the state of its circuit breaker.
+     */
+    public static final class Backend {
+
+        private final String name;
+        private final URI url;
+        private final ChatClient chatClient;
+        private final int maxInFlight;
+        private final AtomicInteger outstanding = new AtomicInteger();
+
+        // Models loaded into memory, null while unknown
+        private volatile Set<String> loadedModels;
+
+        private int consecutiveFailures;
+        private Instant openUntil;
+        private boolean trialInFlight;
+
+        private Backend(String name, URI url, ChatClient chatClient, int maxInFlight) {
+            this.name = name;
+            this.url = url;
+            this.chatClient = chatClient;
+            this.maxInFlight = maxInFlight;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public ChatClient chatClient() {
+            return chatClient;
+        }
+
+        int outstanding() {
+            return outstanding.get();
+        }
+
+        /**
+         * Whether calls may go to the backend: its circuit is closed, or half open without a trial call yet.
+         */
+        synchronized boolean isAvailable(Instant now) {
+            return openUntil == null || !now.isBefore(openUntil) && !trialInFlight;
+        }
+
+        private synchronized void acquired(Instant now) {
+            outstanding.incrementAndGet();
+            if (openUntil != null && !now.isBefore(openUntil)) {
+                trialInFlight = true;
+            }
+        }
+
+        private synchronized void succeeded() {
+            consecutiveFailures = 0;
+            openUntil = null;
+            trialInFlight = false;
+        }
+
+        /**
+         * Counts a failure, returns whether it took the backend out of rotation.
+         */
+        private synchronized boolean failed(Instant now, int failureThreshold, Duration openDuration) {
+            consecutiveFailures++;
+            boolean wasClosed = openUntil == null;
+            if (trialInFlight || consecutiveFailures >= failureThreshold) {
+                openUntil = now.plus(openDuration);
+                trialInFlight = false;
+            }
+            return wasClosed && openUntil != null;
+        }
+
+        /**
+         * A passing health check lets a trial call through to a backend out of rotation.
+         */
+        private synchronized void healthy(Instant now, Set<String> models) {
+            loadedModels = models;
+            if (openUntil == null) {
+                consecutiveFailures = 0;
+            } else if (now.isBefore(openUntil)) {
+                openUntil = now;
+            }
+        }
+
+        private boolean hasLoaded(String model) {
+            Set<String> models = loadedModels;
+            return models == null || models.contains(model);
+        }
+
+        private void loaded(String model) {
+            Set<String> models = loadedModels;
+            if (models != null && !models.contains(model)) {
+                Set<String> updated = new HashSet<>(models);
+                updated.add(model);
+                loadedModels = Set.copyOf(updated);
+            }
+        }
+    }
+
+    private final ResearchProperties.Ollama ollamaProperties;
+    private final List<Backend> backends = new ArrayList<>();
+    private final String defaultModel;
+    private final boolean circuitBreaking;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient healthCheckClient;
+    private final ScheduledExecutorService healthChecks;
+    private int nextBackend;
+
+    public OllamaBackendPool(ChatModel chatModel, ResearchProperties researchProperties,
+        OllamaApiFactory ollamaApiFactory, ObservationRegistry observationRegistry, MeterRegistry meterRegistry) {
+
+        this.ollamaProperties = researchProperties.getOllama();
+        ChatOptions defaultOptions = chatModel.getDefaultOptions();
+        this.defaultModel = defaultOptions == null ? null : defaultOptions.getModel();
+
+        if (ollamaProperties.getBackends().isEmpty()) {
+            backends.add(new Backend(DEFAULT_BACKEND, null, ChatClient.builder(chatModel).build(),
+                ollamaProperties.getMaxInFlight()));
+        }
+        for (ResearchProperties.Ollama.Backend backend : ollamaProperties.getBackends()) {
+            URI url = URI.create(backend.getUrl());
+            OllamaChatModel backendModel = OllamaChatModel.builder()
+                .ollamaApi(ollamaApiFactory.create(backend.getUrl()))
+                .defaultOptions(backendOptions(defaultOptions))
+                .observationRegistry(observationRegistry)
+                .build();
+            backends.add(new Backend(url.getAuthority(), url, ChatClient.builder(backendModel).build(),
+                backend.getMaxInFlight()));
+        }
+        // With a single Ollama there is nothing to fail over to, taking it out of rotation would only fail calls faster
+        this.circuitBreaking = !ollamaProperties.getBackends().isEmpty();
+
+        for (Backend backend : backends) {
+            Gauge.builder(OUTSTANDING, backend, Backend::outstanding)
+                .tag("backend", backend.name())
+                .register(meterRegistry);
+            Gauge.builder(AVAILABLE, backend, available -> available.isAvailable(Instant.now()) ? 1 : 0)
+                .tag("backend", backend.name())
+                .register(meterRegistry);
+        }
+
+        if (circuitBreaking) {
+            this.healthCheckClient = HttpClient.newBuilder().connectTimeout(ollamaProperties.getConnectTimeout()).build();
+            this.healthChecks = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                .name("ollama-health-check").daemon().factory());
+            long interval = ollamaProperties.getHealthCheckInterval().toMillis();
+            healthChecks.scheduleWithFixedDelay(this::checkHealth, 0, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.healthCheckClient = null;
+            this.healthChecks = null;
+        }
+    }
+
+    private static OllamaOptions backendOptions(ChatOptions defaultOptions) {
+
+        if (defaultOptions instanceof OllamaOptions ollamaOptions) {
+            return OllamaOptions.fromOptions(ollamaOptions);
+        }
+        return OllamaOptions.builder().model(defaultOptions == null ? null : defaultOptions.getModel()).build();
+    }
+
+    public int size() {
+        return backends.size();
+    }
+
+    /**
+     * Number of requests all backends take at the same time.
+     */
+    public int totalInFlight() {
+        return backends.stream().mapToInt(backend -> backend.maxInFlight).sum();
+    }
+
+    /**
+     * Chooses the backend for a call of the model, null for the default model, and counts the call as outstanding
+     * until it is {@linkplain #release released}.
+     *
+     * @param excluded backends the call must not go to, for instance because they already failed it
+     * @return the backend, null if none is available
+     */
+    public synchronized Backend acquire(String model, Collection<Backend> excluded) {
+
+        Instant now = Instant.now();
+        String tag = modelTag(model);
+        Backend best = null;
+        int bestTier = Integer.MAX_VALUE;
+        double bestLoad = Double.MAX_VALUE;
+        // Starting at the next backend in turn spreads calls across backends with the same load
+        int start = nextBackend++ % backends.size();
+        for (int i = 0; i < backends.size(); i++) {
+            Backend backend = backends.get((start + i) % backends.size());
+            if (excluded.contains(backend) || circuitBreaking && !backend.isAvailable(now)) {
+                continue;
+            }
+            int outstanding = backend.outstanding.get();
+            boolean hasCapacity = outstanding < backend.maxInFlight;
+            int tier = hasCapacity && backend.hasLoaded(tag) ? 0 : hasCapacity ? 1 : 2;
+            double load = (double) outstanding / backend.maxInFlight;
+            if (tier < bestTier || tier == bestTier && load < bestLoad) {
+                best = backend;
+                bestTier = tier;
+                bestLoad = load;
+            }
+        }
+        if (best != null) {
+            best.acquired(now);
+        }
+        return best;
+    }
+
+    /**
+     * Ends a call acquired from the pool.
+     *
+     * @param failure the exception the call failed with, null if it succeeded
+     */
+    public void release(Backend backend, String model, RuntimeException failure) {
+
+        backend.outstanding.decrementAndGet();
+        if (failure == null) {
+            backend.succeeded();
+            backend.loaded(modelTag(model));
+        } else if (circuitBreaking && !(failure instanceof NonTransientAiException)) {
+            // A rejected request, such as for a model that is not pulled, says nothing about the health of the backend
+            backendFailed(backend);
+        }
+    }
+
+    private void backendFailed(Backend backend) {
+
+        if (backend.failed(Instant.now(), ollamaProperties.getFailureThreshold(),
+            ollamaProperties.getCircuitOpenDuration())) {
+            log.warn("Ollama backend [{}] is out of rotation for {}", backend.name(),
+                ollamaProperties.getCircuitOpenDuration());
+        }
+    }
+
+    /**
+     * Checks every configured backend, learning which models it has loaded.
+     */
+    void checkHealth() {
+
+        for (Backend backend : backends) {
+            try {
+                HttpResponse<String> response = healthCheckClient.send(
+                    HttpRequest.newBuilder(backend.url.resolve("/api/ps"))
+                        .timeout(ollamaProperties.getConnectTimeout())
+                        .GET()
+                        .build(),
+                    HttpResponse.BodyHandlers.ofString());
+                if (response.statusCode() != 200) {
+                    throw new IOException("Health check returned " + response.statusCode());
+                }
+                backend.healthy(Instant.now(), loadedModels(response.body()));
+            } catch (IOException e) {
+                log.debug("Health check of Ollama backend [{}] failed", backend.name(), e);
+                backendFailed(backend);
+            } catch (RuntimeException e) {
+                // Thrown out of the scheduled task it would cancel every later health check
+                log.warn("Health check of Ollama backend [{}] failed", backend.name(), e);
+                backendFailed(backend);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private Set<String> loadedModels(String runningModels) throws IOException {
+
+        Set<String> models = new HashSet<>();
+        for (JsonNode model : objectMapper.readTree(runningModels).path("models")) {
+            models.add(modelTag(model.path("name").asText()));
+        }
+        return Set.copyOf(models);
+    }
+
+    /**
+     * The model name as Ollama reports loaded models, with its tag.
+     */
+    private String modelTag(String model) {
+
+        String name = model == null ? defaultModel : model;
+        if (name == null) {
+            return "";
+        }
+        return name.contains(":") ? name : name + ":latest";
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (healthChecks != null) {
+            healthChecks.shutdownNow();
+            healthCheckClient.close();
+        }
+    }
+}
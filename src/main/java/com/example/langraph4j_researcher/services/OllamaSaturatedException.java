@@ -0,0 +1,16 @@
+package com.example.langraph4j_researcher.services;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when an LLM call is rejected because Ollama has no capacity for it: the backends already have as many
+ * requests in flight and queued as they are allowed to, or every backend is out of rotation.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class OllamaSaturatedException extends RuntimeException {
+
+    public OllamaSaturatedException(String message) {
+        super(message);
+    }
+}
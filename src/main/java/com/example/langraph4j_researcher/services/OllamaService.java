@@ -1,21 +1,371 @@
 package com.example.langraph4j_researcher.services;
 
-import lombok.RequiredArgsConstructor;
+import com.example.langraph4j_researcher.config.ResearchProperties;
+import io.micrometer.observation.Observation;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 
+/**
+ * Gateway to the Ollama servers.
+ * All calls go through an admission queue: at most as many requests as the {@link OllamaBackendPool} takes are sent
+ * to Ollama at once and at most {@code maxQueued} more wait for a slot. Beyond that calls are rejected straight away
+ * with an {@link OllamaSaturatedException}, so saturated servers push back on callers instead of piling up threads.
+ * Every call is observed as a child of the graph node that made it, see {@link ResearchObservations}, and goes to
+ * the models the {@link ModelRouter} chose for the node. A call that fails on one backend is retried on the others
+ * before falling back to the next model, and a call the {@link HedgePolicy} finds slow is also sent to a second
+ * backend, the first response wins.
+ */
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class OllamaService {
 
-    private final OllamaChatModel ollamaChatModel;
+    private final OllamaBackendPool backendPool;
 
-    public String getLLMResponse(String prompt) {
+    private final ResearchProperties.Ollama ollamaProperties;
 
-        ChatClient chatClient = ChatClient.builder(ollamaChatModel).build();
+    private final Semaphore inFlightPermits;
 
-        return chatClient.prompt(prompt).call().content();
+    private final AtomicInteger queuedCount = new AtomicInteger();
 
+    private final ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final ResearchObservations researchObservations;
+
+    private final ModelRouter modelRouter;
+
+    private final HedgePolicy hedgePolicy;
+
+    public OllamaService(OllamaBackendPool backendPool, ResearchProperties researchProperties,
+        ResearchObservations researchObservations, ModelRouter modelRouter, HedgePolicy hedgePolicy) {
+        this.backendPool = backendPool;
+        this.ollamaProperties = researchProperties.getOllama();
+        this.inFlightPermits = new Semaphore(backendPool.totalInFlight(), true);
+        this.researchObservations = researchObservations;
+        this.modelRouter = modelRouter;
+        this.hedgePolicy = hedgePolicy;
+    }
+
+    /**
+     * Answers the prompt with the models routed for the graph node, falling back to the next model when one fails.
+     */
+    public String getLLMResponse(String node, String prompt) {
+        return getLLMResponse(node, prompt, researchObservations.currentObservation());
+    }
+
+    private String getLLMResponse(String node, String prompt, Observation parent) {
+
+        RuntimeException failure = null;
+        for (ModelRouter.ModelChoice choice : modelRouter.route(node)) {
+            try {
+                return callModel(node, choice, prompt, parent);
+            } catch (OllamaSaturatedException e) {
+                // Every model is served by the same backends, falling back would not help
+                throw e;
+            } catch (RuntimeException e) {
+                log.warn("Model [{}] failed for node [{}], trying the next model", choice.modelName(), node, e);
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        throw failure;
+    }
+
+    private String callModel(String node, ModelRouter.ModelChoice choice, String prompt, Observation parent) {
+
+        Optional<Duration> hedgeDelay = backendPool.size() > 1 ? hedgePolicy.hedgeDelay(node) : Optional.empty();
+        if (hedgeDelay.isPresent()) {
+            return callModelHedged(node, choice, prompt, parent, hedgeDelay.get());
+        }
+        admit();
+        try {
+            return callBackends(node, choice, prompt, parent, new HashSet<>());
+        } finally {
+            inFlightPermits.release();
+        }
+    }
+
+    /**
+     * Calls the model and, if it has not answered after the hedge delay, calls it again on another backend.
+     * The response that comes first is used; the other call cannot be interrupted and runs to completion unused.
+     */
+    private String callModelHedged(String node, ModelRouter.ModelChoice choice, String prompt, Observation parent,
+        Duration hedgeDelay) {
+
+        admit();
+        // Shared, so neither call goes to a backend the other one already uses
+        Set<OllamaBackendPool.Backend> tried = ConcurrentHashMap.newKeySet();
+        CompletableFuture<String> first = callAdmittedAsync(node, choice, prompt, parent, tried);
+        try {
+            return first.get(hedgeDelay.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // Slower than usual, hedge below
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for Ollama", e);
+        }
+
+        // A hedge only takes a slot nobody waits for, it must not add to the load of a busy Ollama
+        if (!tryAdmitHedge()) {
+            return join(first);
+        }
+        CompletableFuture<String> hedge = callAdmittedAsync(node, choice, prompt, parent, tried);
+        CompletableFuture<String> response = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        first.whenComplete((text, e) -> completeHedged(response, "first", text, e, failures));
+        hedge.whenComplete((text, e) -> completeHedged(response, "hedge", text, e, failures));
+        return join(response);
+    }
+
+    private CompletableFuture<String> callAdmittedAsync(String node, ModelRouter.ModelChoice choice, String prompt,
+        Observation parent, Set<OllamaBackendPool.Backend> tried) {
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return callBackends(node, choice, prompt, parent, tried);
+            } finally {
+                inFlightPermits.release();
+            }
+        }, executorService);
+    }
+
+    private void completeHedged(CompletableFuture<String> response, String winner, String text, Throwable failure,
+        AtomicInteger failures) {
+
+        if (failure == null) {
+            synchronized (response) {
+                if (!response.isDone()) {
+                    // Counted before the caller gets the response
+                    hedgePolicy.hedged(winner);
+                    response.complete(text);
+                }
+            }
+        } else if (failures.incrementAndGet() == 2) {
+            response.completeExceptionally(failure);
+        }
+    }
+
+    /**
+     * Calls the model on the best backend, failing over to the other backends that have not been tried yet.
+     */
+    private String callBackends(String node, ModelRouter.ModelChoice choice, String prompt, Observation parent,
+        Set<OllamaBackendPool.Backend> tried) {
+
+        RuntimeException failure = null;
+        OllamaBackendPool.Backend backend;
+        while ((backend = backendPool.acquire(choice.model(), tried)) != null) {
+            tried.add(backend);
+            try {
+                return callBackend(node, choice, prompt, parent, backend);
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+                log.warn("Ollama backend [{}] failed for node [{}]", backend.name(), node, e);
+            }
+        }
+        throw failure != null ? failure : unavailable();
+    }
+
+    private String callBackend(String node, ModelRouter.ModelChoice choice, String prompt, Observation parent,
+        OllamaBackendPool.Backend backend) {
+
+        // Observed once admitted, so the timer measures the model and not the admission queue
+        Observation observation = researchObservations.startLlmCall(parent, choice.modelName(), backend.name());
+        long startNanos = System.nanoTime();
+        RuntimeException failure = null;
+        try (Observation.Scope scope = observation.openScope()) {
+            ChatResponse chatResponse = request(backend, choice, prompt).call().chatResponse();
+            Duration latency = Duration.ofNanos(System.nanoTime() - startNanos);
+            modelRouter.recordLatency(node, choice, latency);
+            hedgePolicy.recordLatency(node, latency);
+            if (chatResponse == null || chatResponse.getResult() == null
+                || chatResponse.getResult().getOutput().getText() == null) {
+                // A failure of the backend, so it is counted against it and the call fails over
+                throw new IllegalStateException("Ollama backend [" + backend.name() + "] returned an empty response"
+                    + " from model [" + choice.modelName() + "] for node [" + node + "]");
+            }
+            researchObservations.recordTokenUsage(observation, chatResponse.getMetadata().getUsage());
+            return chatResponse.getResult().getOutput().getText();
+        } catch (RuntimeException e) {
+            failure = e;
+            observation.error(e);
+            throw e;
+        } finally {
+            observation.stop();
+            backendPool.release(backend, choice.model(), failure);
+        }
+    }
+
+    /**
+     * Non-blocking variant of {@link #getLLMResponse(String, String)}. The call waits for its in-flight slot on a
+     * virtual thread; a call the queue has no room for completes exceptionally without being queued.
+     */
+    public CompletableFuture<String> getLLMResponseAsync(String node, String prompt) {
+
+        if (queuedCount.get() >= ollamaProperties.getMaxQueued()) {
+            return CompletableFuture.failedFuture(saturated());
+        }
+        Observation parent = researchObservations.currentObservation();
+        return CompletableFuture.supplyAsync(() -> getLLMResponse(node, prompt, parent), executorService);
+    }
+
+    /**
+     * Streams the response of the LLM token by token as the model generates it.
+     * The in-flight slot is taken on subscription and held until the stream terminates. A model that fails before
+     * it produced any text falls back to the next model of the route, after that the failure is passed on.
+     */
+    public Flux<String> streamLLMResponse(String node, String prompt) {
+
+        return Flux.defer(() -> streamLLMResponse(node, prompt, modelRouter.route(node), 0,
+            researchObservations.currentObservation()));
+    }
+
+    private Flux<String> streamLLMResponse(String node, String prompt, List<ModelRouter.ModelChoice> choices, int index,
+        Observation parent) {
+
+        ModelRouter.ModelChoice choice = choices.get(index);
+        AtomicBoolean emitted = new AtomicBoolean();
+        Flux<String> response = streamModel(node, choice, prompt, parent).doOnNext(text -> emitted.set(true));
+        if (index + 1 == choices.size()) {
+            return response;
+        }
+        return response.onErrorResume(e -> !emitted.get() && !(e instanceof OllamaSaturatedException), e -> {
+            log.warn("Model [{}] failed for node [{}], trying the next model", choice.modelName(), node, e);
+            return streamLLMResponse(node, prompt, choices, index + 1, parent);
+        });
+    }
+
+    private Flux<String> streamModel(String node, ModelRouter.ModelChoice choice, String prompt, Observation parent) {
+
+        return Flux.defer(() -> {
+            admit();
+            OllamaBackendPool.Backend backend = backendPool.acquire(choice.model(), Set.of());
+            if (backend == null) {
+                inFlightPermits.release();
+                return Flux.error(unavailable());
+            }
+            Observation observation = researchObservations.startLlmCall(parent, choice.modelName(), backend.name());
+            long startNanos = System.nanoTime();
+            // Ollama reports the token counts with the last chunk
+            AtomicReference<Usage> usage = new AtomicReference<>();
+            AtomicReference<RuntimeException> failure = new AtomicReference<>();
+            return request(backend, choice, prompt).stream().chatResponse()
+                .doOnNext(chatResponse -> {
+                    Usage chunkUsage = chatResponse.getMetadata().getUsage();
+                    if (chunkUsage != null && chunkUsage.getTotalTokens() != null && chunkUsage.getTotalTokens() > 0) {
+                        usage.set(chunkUsage);
+                    }
+                })
+                .filter(chatResponse -> chatResponse.getResult() != null
+                    && chatResponse.getResult().getOutput().getText() != null)
+                .map(chatResponse -> chatResponse.getResult().getOutput().getText())
+                .doOnError(e -> {
+                    observation.error(e);
+                    failure.set(e instanceof RuntimeException runtimeException
+                        ? runtimeException : new IllegalStateException(e));
+                })
+                .doOnComplete(() -> modelRouter.recordLatency(node, choice, Duration.ofNanos(System.nanoTime() - startNanos)))
+                .doFinally(signal -> {
+                    researchObservations.recordTokenUsage(observation, usage.get());
+                    observation.stop();
+                    backendPool.release(backend, choice.model(), failure.get());
+                    inFlightPermits.release();
+                });
+        });
+    }
+
+    private ChatClient.ChatClientRequestSpec request(OllamaBackendPool.Backend backend, ModelRouter.ModelChoice choice,
+        String prompt) {
+
+        ChatClient.ChatClientRequestSpec request = backend.chatClient().prompt(choice.prompt(prompt));
+        return choice.options() == null ? request : request.options(choice.options());
+    }
+
+    private void admit() {
+
+        if (queuedCount.incrementAndGet() > ollamaProperties.getMaxQueued()) {
+            queuedCount.decrementAndGet();
+            throw saturated();
+        }
+        try {
+            if (!inFlightPermits.tryAcquire(ollamaProperties.getAdmissionTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+                throw saturated();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an Ollama slot", e);
+        } finally {
+            queuedCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Takes an in-flight slot for a hedge if one is free and no call is waiting for it.
+     */
+    private boolean tryAdmitHedge() {
+
+        try {
+            // Unlike tryAcquire(), a timed tryAcquire does not barge ahead of queued calls
+            return inFlightPermits.tryAcquire(0, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private OllamaSaturatedException saturated() {
+        return new OllamaSaturatedException("Ollama is saturated: " + backendPool.totalInFlight()
+            + " requests in flight and " + queuedCount.get() + " queued, try again later");
+    }
+
+    private OllamaSaturatedException unavailable() {
+        return new OllamaSaturatedException("No Ollama backend is available, try again later");
+    }
+
+    private static String join(CompletableFuture<String> response) {
+
+        try {
+            return response.join();
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private static RuntimeException unwrap(Exception e) {
+        return e.getCause() instanceof RuntimeException cause ? cause : new IllegalStateException(e.getCause());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executorService.shutdownNow();
     }
 }
@@ -0,0 +1,188 @@
+package com.example.langraph4j_researcher.services;
+
+import com.example.langraph4j_researcher.config.ResearchProperties;
+import com.example.langraph4j_researcher.utils.PromptTemplate;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * The prompts of the graph nodes, compiled once at startup into {@link PromptTemplate}s.
+ * <p>
+ * Every prompt has the built-in version {@value #BUILT_IN_VERSION} from {@link SystemPrompts}. Further versions are
+ * read from {@code researcher.prompts.directory}, one file per version at {@code <prompt>/<version>.txt}, and may use
+ * the parameters of the built-in version. With {@code researcher.prompts.variants.<prompt>.<version>=<weight>} runs
+ * are split between versions of a prompt by weight, for instance to try a new version on a share of the runs. The
+ * version is chosen by a selection key, the run id or the research query, so a run sticks to the version it started
+ * with, also when it is resumed or its final answer is speculated.
+ * <p>
+ * Every rendered prompt is measured in estimated tokens under {@value #TOKENS}, by prompt and version, and prompts
+ * over {@code researcher.prompts.max-prompt-tokens} are counted under {@value #OVER_BUDGET}: Ollama silently cuts
+ * prompts that do not fit the context window of the model.
+ */
+@Slf4j
+@Service
+public class PromptCatalog {
+
+    public static final String BUILT_IN_VERSION = "v1";
+
+    static final String GENERATE_QUERY = "generateQuery";
+    static final String RESEARCH = "research";
+    static final String GROUNDED_RESEARCH = "groundedResearch";
+    static final String REFLECTION = "reflection";
+    static final String INCREMENTAL_REFLECTION = "incrementalReflection";
+    static final String FINAL_ANSWER = "finalAnswer";
+
+    static final String CURRENT_DATE = "current_date";
+
+    static final String TOKENS = "research.prompt.tokens";
+    static final String OVER_BUDGET = "research.prompt.over.budget";
+
+    private static final Map<String, String> BUILT_IN_PROMPTS = Map.of(
+        GENERATE_QUERY, SystemPrompts.GENERATE_QUERY_PROMPT,
+        RESEARCH, SystemPrompts.RESEARCH_PROMPT,
+        GROUNDED_RESEARCH, SystemPrompts.GROUNDED_RESEARCH_PROMPT,
+        REFLECTION, SystemPrompts.REFLECTION_PROMPT,
+        INCREMENTAL_REFLECTION, SystemPrompts.INCREMENTAL_REFLECTION_PROMPT,
+        FINAL_ANSWER, SystemPrompts.FINAL_ANSWER_PROMPT);
+
+    private final ResearchProperties.Prompts promptProperties;
+    private final MeterRegistry meterRegistry;
+
+    // Versions of every prompt by prompt name and version
+    private final Map<String, Map<String, PromptTemplate>> prompts = new HashMap<>();
+
+    public PromptCatalog(ResearchProperties researchProperties, MeterRegistry meterRegistry) {
+
+        this.promptProperties = researchProperties.getPrompts();
+        this.meterRegistry = meterRegistry;
+        BUILT_IN_PROMPTS.forEach((prompt, template) -> prompts.computeIfAbsent(prompt, ignored -> new LinkedHashMap<>())
+            .put(BUILT_IN_VERSION, PromptTemplate.compile(template)));
+        loadVersions(promptProperties.getDirectory());
+        validateVariants();
+    }
+
+    /**
+     * Renders the version of the prompt chosen for the selection key.
+     * The {@code current_date} parameter is filled in with today's date unless it is given.
+     *
+     * @param selectionKey key the version is chosen by, a random version is chosen if it is null
+     */
+    public String render(String prompt, String selectionKey, Map<String, ?> values) {
+
+        String version = selectVersion(prompt, selectionKey);
+        PromptTemplate template = prompts.get(prompt).get(version);
+
+        Map<String, Object> parameters = new HashMap<>(values);
+        parameters.putIfAbsent(CURRENT_DATE, LocalDate.now());
+        PromptTemplate.Rendered rendered = template.render(parameters);
+
+        meterRegistry.summary(TOKENS, "prompt", prompt, "version", version).record(rendered.tokens());
+        int maxTokens = promptProperties.getMaxPromptTokens();
+        if (maxTokens > 0 && rendered.tokens() > maxTokens) {
+            meterRegistry.counter(OVER_BUDGET, "prompt", prompt, "version", version).increment();
+            log.warn("Prompt [{}] version [{}] has about {} tokens, more than the {} allowed", prompt, version,
+                rendered.tokens(), maxTokens);
+        }
+        return rendered.text();
+    }
+
+    /**
+     * The version of the prompt for the selection key, weighted by the configured variants of the prompt.
+     */
+    String selectVersion(String prompt, String selectionKey) {
+
+        if (!prompts.containsKey(prompt)) {
+            throw new IllegalArgumentException("Unknown prompt [" + prompt + "]");
+        }
+        Map<String, Integer> variants = promptProperties.getVariants().get(prompt);
+        if (variants == null || variants.isEmpty()) {
+            return BUILT_IN_VERSION;
+        }
+        int totalWeight = variants.values().stream().mapToInt(Integer::intValue).sum();
+        int point = selectionKey == null
+            ? ThreadLocalRandom.current().nextInt(totalWeight)
+            : Math.floorMod((prompt + '/' + selectionKey).hashCode(), totalWeight);
+        // Sorted, so the same key selects the same version however the variants map is ordered
+        for (Map.Entry<String, Integer> variant : variants.entrySet().stream().sorted(Map.Entry.comparingByKey()).toList()) {
+            point -= variant.getValue();
+            if (point < 0) {
+                return variant.getKey();
+            }
+        }
+        throw new IllegalStateException("Unreachable, the weights add up to " + totalWeight);
+    }
+
+    private void loadVersions(Path directory) {
+
+        if (directory == null || !Files.isDirectory(directory)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(directory, 2)) {
+            List<Path> versionFiles = files
+                .filter(path -> directory.relativize(path).getNameCount() == 2)
+                .filter(path -> path.getFileName().toString().endsWith(".txt"))
+                .toList();
+            for (Path file : versionFiles) {
+                String prompt = file.getParent().getFileName().toString();
+                String fileName = file.getFileName().toString();
+                String version = fileName.substring(0, fileName.length() - ".txt".length());
+                addVersion(prompt, version, Files.readString(file));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the prompts in [" + directory + "]", e);
+        }
+    }
+
+    private void addVersion(String prompt, String version, String text) {
+
+        Map<String, PromptTemplate> versions = prompts.get(prompt);
+        if (versions == null) {
+            throw new IllegalStateException("Unknown prompt [" + prompt + "], prompts are " + BUILT_IN_PROMPTS.keySet());
+        }
+        if (versions.containsKey(version)) {
+            throw new IllegalStateException("Version [" + version + "] of prompt [" + prompt + "] is built in");
+        }
+        PromptTemplate template = PromptTemplate.compile(text);
+        Set<String> knownParameters = new HashSet<>(versions.get(BUILT_IN_VERSION).parameters());
+        knownParameters.add(CURRENT_DATE);
+        if (!knownParameters.containsAll(template.parameters())) {
+            throw new IllegalStateException("Version [" + version + "] of prompt [" + prompt + "] uses parameters "
+                + template.parameters() + ", the prompt has " + knownParameters);
+        }
+        versions.put(version, template);
+        log.info("Loaded version [{}] of prompt [{}]", version, prompt);
+    }
+
+    private void validateVariants() {
+
+        promptProperties.getVariants().forEach((prompt, variants) -> {
+            Map<String, PromptTemplate> versions = prompts.get(prompt);
+            if (versions == null) {
+                throw new IllegalStateException("Variants of unknown prompt [" + prompt + "]");
+            }
+            variants.forEach((version, weight) -> {
+                if (!versions.containsKey(version)) {
+                    throw new IllegalStateException("Prompt [" + prompt + "] has no version [" + version + "]");
+                }
+                if (weight == null || weight <= 0) {
+                    throw new IllegalStateException("Version [" + version + "] of prompt [" + prompt
+                        + "] needs a positive weight");
+                }
+            });
+        });
+    }
+}
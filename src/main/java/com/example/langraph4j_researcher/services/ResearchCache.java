@@ -0,0 +1,152 @@
+package com.example.langraph4j_researcher.services;
+
+import com.example.langraph4j_researcher.config.ResearchProperties;
+import com.example.langraph4j_researcher.utils.VectorIndex;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Service;
+
+/**
+ * Cache of research summaries in front of the research LLM call.
+ * Queries are first looked up by their normalised text. When semantic lookup is enabled, a miss falls back
+ * to the summary of the most similar cached query according to the Ollama embedding model, so rephrased
+ * queries are answered from the cache too. Entries expire after a TTL and the cache is bounded in size,
+ * with W-TinyLFU eviction.
+ * <p>
+ * The cache holds futures of the summaries: a query being researched is in the cache while it is researched, so
+ * concurrent lookups of it wait for its summary, and the research call, which takes minutes, runs outside of the
+ * cache and never holds a lock of it. Failed research is not cached.
+ */
+@Slf4j
+@Service
+public class ResearchCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern TRAILING_PUNCTUATION = Pattern.compile("[\\p{Punct}\\s]+$");
+
+    private final ResearchProperties.Cache cacheProperties;
+    private final AsyncCache<String, String> summaries;
+    private final VectorIndex<String> queryEmbeddings = new VectorIndex<>();
+    private final EmbeddingModel embeddingModel;
+    private final Counter semanticHits;
+
+    public ResearchCache(ResearchProperties researchProperties, ObjectProvider<EmbeddingModel> embeddingModel,
+        MeterRegistry meterRegistry) {
+
+        this.cacheProperties = researchProperties.getCache();
+        this.embeddingModel = cacheProperties.getSemantic().isEnabled() ? embeddingModel.getIfAvailable() : null;
+        this.summaries = Caffeine.newBuilder()
+            .maximumSize(cacheProperties.getMaximumSize())
+            .expireAfterWrite(cacheProperties.getTtl())
+            .<String, String>removalListener((key, summary, cause) -> queryEmbeddings.remove(key))
+            .recordStats()
+            .buildAsync();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, summaries, "researchSummaries");
+        this.semanticHits = Counter.builder("research.cache.semantic.hits")
+            .description("Research queries answered with the summary of a similar cached query")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached summary of the query or of a similar query, or researches the query and caches
+     * its summary. Concurrent calls for the same normalised query share a single research call.
+     */
+    public String getOrResearch(String researchQuery, Function<String, String> research) {
+
+        if (!cacheProperties.isEnabled()) {
+            return research.apply(researchQuery);
+        }
+
+        String key = normalise(researchQuery);
+
+        CompletableFuture<String> cached = summaries.getIfPresent(key);
+        if (cached != null) {
+            return join(cached);
+        }
+
+        float[] embedding = embed(researchQuery);
+        Optional<String> similarSummary = findSimilar(embedding);
+        if (similarSummary.isPresent()) {
+            semanticHits.increment();
+            return similarSummary.get();
+        }
+
+        CompletableFuture<String> summary = new CompletableFuture<>();
+        CompletableFuture<String> existing = summaries.asMap().putIfAbsent(key, summary);
+        if (existing != null) {
+            return join(existing);
+        }
+        try {
+            String researched = research.apply(researchQuery);
+            if (embedding != null) {
+                queryEmbeddings.put(key, embedding);
+            }
+            summary.complete(researched);
+            return researched;
+        } catch (RuntimeException | Error e) {
+            // Removed from the cache as it fails, so the next lookup researches the query again
+            summary.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public void invalidateAll() {
+        summaries.synchronous().invalidateAll();
+    }
+
+    private static String join(CompletableFuture<String> summary) {
+        try {
+            return summary.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private Optional<String> findSimilar(float[] embedding) {
+
+        if (embedding == null) {
+            return Optional.empty();
+        }
+        // Only summaries researched already, a similar query being researched may still fail
+        return queryEmbeddings.nearest(embedding, cacheProperties.getSemantic().getSimilarityThreshold())
+            .map(match -> summaries.getIfPresent(match.key()))
+            .filter(summary -> summary.isDone() && !summary.isCompletedExceptionally())
+            .map(CompletableFuture::join);
+    }
+
+    private float[] embed(String researchQuery) {
+
+        if (embeddingModel == null) {
+            return null;
+        }
+        try {
+            return embeddingModel.embed(researchQuery);
+        } catch (RuntimeException e) {
+            // The cache must never fail the research, fall back to exact matching
+            log.warn("Failed to embed research query [{}], skipping semantic lookup", researchQuery, e);
+            return null;
+        }
+    }
+
+    /**
+     * Normalises a query so trivially different spellings of it share a cache entry.
+     */
+    static String normalise(String researchQuery) {
+
+        String normalised = WHITESPACE.matcher(researchQuery.strip().toLowerCase(Locale.ROOT)).replaceAll(" ");
+        return TRAILING_PUNCTUATION.matcher(normalised).replaceAll("");
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.langraph4j_researcher.services;
+
+import com.example.langraph4j_researcher.config.ResearchProperties;
+import com.example.langraph4j_researcher.model.ReflectionVerdict;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * Decides after every reflection whether a run researches another round or answers.
+ * Besides the reflection verdict and the maximum number of rounds of the graph, an adaptive decision takes into
+ * account:
+ * <ul>
+ *     <li>The novelty of the latest round, see {@link NoveltyEstimator}: a round that mostly repeated the earlier ones
+ *     ends the research even if the LLM is not satisfied, as the next round is unlikely to do better</li>
+ *     <li>The latency budget of the run: no round is started that would likely not leave time for the final answer</li>
+ *     <li>A round that still found a lot of new information widens the search by up to a few rounds beyond the maximum
+ *     of the graph, as long as the LLM asks for more</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+public class ResearchDepthController {
+
+    static final String DECISIONS = "research.depth.decisions";
+
+    /**
+     * Whether to research another round, and why.
+     */
+    public record Decision(boolean continueResearch, String reason) {
+
+        static Decision finish(String reason) {
+            return new Decision(false, reason);
+        }
+
+        static Decision searchMore(String reason) {
+            return new Decision(true, reason);
+        }
+    }
+
+    private final ResearchProperties.Depth depthProperties;
+    private final MeterRegistry meterRegistry;
+
+    public ResearchDepthController(ResearchProperties researchProperties, MeterRegistry meterRegistry) {
+        this.depthProperties = researchProperties.getDepth();
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Decides on the next step of a run after the given number of research rounds.
+     *
+     * @param novelty novelty of the latest round
+     * @param elapsed time the run took so far, null if unknown
+     */
+    public Decision decide(ReflectionVerdict verdict, int rounds, double novelty, GraphConfig graphConfig,
+        Duration elapsed) {
+
+        Decision decision = evaluate(verdict, rounds, novelty, graphConfig, elapsed);
+        log.debug("Research round {} had novelty {}, {}", rounds, novelty, decision);
+        meterRegistry.counter(DECISIONS, "reason", decision.reason()).increment();
+        return decision;
+    }
+
+    private Decision evaluate(ReflectionVerdict verdict, int rounds, double novelty, GraphConfig graphConfig,
+        Duration elapsed) {
+
+        if (verdict.isSufficient()) {
+            return Decision.finish("sufficient");
+        }
+        int maxRounds = graphConfig.maxResearchNodeExecutionCount();
+        if (!depthProperties.isAdaptive()) {
+            return rounds >= maxRounds ? Decision.finish("max-rounds") : Decision.searchMore("insufficient");
+        }
+
+        // The first round has nothing to be compared with
+        if (rounds > 1 && novelty < depthProperties.getMinNovelty()) {
+            return Decision.finish("low-novelty");
+        }
+        if (!fitsLatencyBudget(rounds, elapsed)) {
+            return Decision.finish("latency-budget");
+        }
+        if (rounds >= maxRounds) {
+            boolean widen = rounds < maxRounds + depthProperties.getMaxExtraRounds()
+                && novelty >= depthProperties.getWidenNovelty()
+                && !verdict.followUpQueries().isEmpty();
+            return widen ? Decision.searchMore("widen") : Decision.finish("max-rounds");
+        }
+        return Decision.searchMore("insufficient");
+    }
+
+    /**
+     * Whether another round and the final answer likely fit the rest of the budget, estimating each of them to take
+     * as long as the rounds so far took on average.
+     */
+    private boolean fitsLatencyBudget(int rounds, Duration elapsed) {
+
+        Duration budget = depthProperties.getRunLatencyBudget();
+        if (budget == null || elapsed == null || rounds == 0) {
+            return true;
+        }
+        Duration averageRound = elapsed.dividedBy(rounds);
+        return elapsed.plus(averageRound.multipliedBy(2)).compareTo(budget) <= 0;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.langraph4j_researcher.services;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Progress event emitted while a research run is streamed.
+ *
+ * @param type event name, one of the constants below
+ * @param data event payload
+ */
+public record ResearchEvent(String type, Object data) {
+
+    public static final String RUN = "run";
+    public static final String QUERIES = "queries";
+    public static final String SUMMARY = "summary";
+    public static final String REFLECTION = "reflection";
+    public static final String TOKEN = "token";
+    public static final String FINAL_ANSWER = "finalAnswer";
+
+    public static ResearchEvent run(String runId) {
+        return new ResearchEvent(RUN, runId);
+    }
+
+    public static ResearchEvent queries(List<String> researchQueries) {
+        return new ResearchEvent(QUERIES, researchQueries);
+    }
+
+    public static ResearchEvent summary(String summary) {
+        return new ResearchEvent(SUMMARY, summary);
+    }
+
+    /**
+     * @param isSufficient whether the model found the research sufficient
+     * @param continueResearch whether the run researches another round, which also depends on the rounds it took
+     * @param followUpQueries queries of the next round, empty when the run goes on to the final answer
+     */
+    public static ResearchEvent reflection(boolean isSufficient, boolean continueResearch, List<String> followUpQueries) {
+        return new ResearchEvent(REFLECTION, Map.of(
+            "isSufficient", isSufficient,
+            "continueResearch", continueResearch,
+            "followUpQueries", continueResearch ? followUpQueries : List.of()));
+    }
+
+    public static ResearchEvent token(String token) {
+        return new ResearchEvent(TOKEN, token);
+    }
+
+    public static ResearchEvent finalAnswer(String finalAnswer) {
+        return new ResearchEvent(FINAL_ANSWER, finalAnswer);
+    }
+}
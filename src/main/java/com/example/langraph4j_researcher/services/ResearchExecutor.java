@@ -0,0 +1,118 @@
+package com.example.langraph4j_researcher.services;
+
+import com.example.langraph4j_researcher.config.ResearchProperties;
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs the research queries of a research round in parallel on virtual threads.
+ * Concurrency is bounded both per request and across the whole application, so a single request
+ * cannot starve the others and the LLM server is never sent more than the global limit of queries.
+ * Queries run in the context of the thread that submitted them, so their LLM calls are observed as part of the node.
+ */
+@Slf4j
+@Service
+public class ResearchExecutor {
+
+    private final ExecutorService executorService = ContextExecutorService.wrap(
+        Executors.newVirtualThreadPerTaskExecutor(), ContextSnapshotFactory.builder().build());
+
+    private final ResearchProperties.Research researchProperties;
+
+    private final Semaphore globalPermits;
+
+    public ResearchExecutor(ResearchProperties researchProperties) {
+        this.researchProperties = researchProperties.getResearch();
+        this.globalPermits = new Semaphore(this.researchProperties.getGlobalConcurrency(), true);
+    }
+
+    /**
+     * Applies the research function to every query in parallel.
+     * Results are returned in the order of the queries. A query that fails or times out is logged and
+     * left out of the results, so the round yields a partial result instead of failing the whole run.
+     */
+    public <R> List<R> executeAll(List<String> queries, Function<String, R> research) {
+
+        Semaphore requestPermits = new Semaphore(researchProperties.getPerRequestConcurrency(), true);
+
+        List<Future<R>> futures = new ArrayList<>(queries.size());
+        for (String query : queries) {
+            futures.add(executorService.submit(() -> execute(query, research, requestPermits)));
+        }
+
+        List<R> results = new ArrayList<>(queries.size());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                results.add(futures.get(i).get());
+            } catch (ExecutionException e) {
+                log.warn("Research query [{}] failed, continuing with partial results", queries.get(i), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(future -> future.cancel(true));
+                throw new IllegalStateException("Interrupted while waiting for research query results", e);
+            }
+        }
+        return results;
+    }
+
+    private <R> R execute(String query, Function<String, R> research, Semaphore requestPermits) throws Exception {
+
+        // Take the request permit first so queued queries of one request do not hold global permits
+        requestPermits.acquire();
+        try {
+            globalPermits.acquire();
+            // Whoever claims the call releases its global permit: the call once it ends, or the caller if the call
+            // timed out before it started. A blocking LLM call ignores the interrupt of a timeout and keeps running,
+            // so it holds the permit until it really ends and the global limit still bounds the calls in flight
+            AtomicBoolean claimed = new AtomicBoolean();
+            Future<R> call;
+            try {
+                call = executorService.submit(() -> {
+                    if (!claimed.compareAndSet(false, true)) {
+                        return null;
+                    }
+                    try {
+                        return research.apply(query);
+                    } finally {
+                        globalPermits.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                globalPermits.release();
+                throw e;
+            }
+            try {
+                return call.get(researchProperties.getQueryTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                call.cancel(true);
+                if (claimed.compareAndSet(false, true)) {
+                    globalPermits.release();
+                }
+                throw new TimeoutException("Research query timed out after " + researchProperties.getQueryTimeout());
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        } finally {
+            requestPermits.release();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executorService.shutdownNow();
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.langraph4j_researcher.services;
+
+import com.example.langraph4j_researcher.config.ResearchProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+/**
+ * Admission and scheduling of research jobs.
+ * <p>
+ * A research job fires dozens of LLM calls, so only a few run at a time and the rest wait in a bounded queue.
+ * Waiting jobs are dispatched with weighted fair queueing across tenants: every tenant accumulates virtual time
+ * inversely proportional to its weight for each job it is given, and the next slot goes to the waiting tenant that
+ * used the least. A tenant submitting a burst therefore cannot starve the others. Within a tenant, jobs with a higher
+ * priority run first and equal priorities run in submission order. When the queue is full, jobs are rejected with an
+ * estimate of when to retry.
+ * <p>
+ * Clients are assigned their tenant by API key in {@code researcher.scheduler.api-keys}. Unknown keys share the tenant
+ * {@value #SHARED_TENANT}, so a client cannot get the share of a new idle tenant by sending a new key.
+ */
+@Slf4j
+@Service
+public class ResearchJobScheduler {
+
+    public static final String SHARED_TENANT = "anonymous";
+
+    private final ResearchProperties.Scheduler schedulerProperties;
+    private final ExecutorService executorService = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Map<String, TenantQueue> tenantQueues = new HashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private int queuedCount;
+    private int runningCount;
+    // Virtual time of the last dispatched job, tenants becoming active start from here
+    private double virtualTime;
+    // Exponentially weighted moving average of job durations in milliseconds
+    private double averageJobMillis;
+
+    private final Timer waitTimer;
+    private final Counter rejectedCounter;
+
+    public ResearchJobScheduler(ResearchProperties researchProperties, MeterRegistry meterRegistry) {
+
+        this.schedulerProperties = researchProperties.getScheduler();
+        this.averageJobMillis = schedulerProperties.getInitialJobDurationEstimate().toMillis();
+        if (schedulerProperties.getApiKeys().containsValue(BatchResearchService.BATCH_TENANT)) {
+            throw new IllegalStateException("API keys cannot be assigned the tenant [" + BatchResearchService.BATCH_TENANT
+                + "] of batch jobs");
+        }
+
+        Gauge.builder("research.scheduler.queue.depth", this, ResearchJobScheduler::getQueuedCount)
+            .description("Research jobs waiting to run")
+            .register(meterRegistry);
+        Gauge.builder("research.scheduler.running", this, ResearchJobScheduler::getRunningCount)
+            .description("Research jobs running")
+            .register(meterRegistry);
+        this.waitTimer = Timer.builder("research.scheduler.wait")
+            .description("Time research jobs waited in the queue")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("research.scheduler.rejected")
+            .description("Research jobs rejected because the queue was full")
+            .register(meterRegistry);
+    }
+
+    /**
+     * The tenant the API key is assigned, {@value #SHARED_TENANT} if there is no key or it is not known.
+     */
+    public String tenantOf(String apiKey) {
+        return apiKey == null ? SHARED_TENANT : schedulerProperties.getApiKeys().getOrDefault(apiKey, SHARED_TENANT);
+    }
+
+    /**
+     * A slot to run one research job in, it must be released when the job is done.
+     */
+    public interface JobSlot {
+
+        void release();
+    }
+
+    /**
+     * Queues the job and runs it once it is its turn.
+     *
+     * @throws JobRejectedException if the queue is full
+     */
+    public <T> CompletableFuture<T> submit(String tenant, int priority, Callable<T> job) {
+
+        return acquire(tenant, priority).thenApplyAsync(slot -> {
+            try {
+                return job.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            } finally {
+                slot.release();
+            }
+        }, executorService);
+    }
+
+    /**
+     * Queues a request for a job slot, for jobs that do not run on a single thread such as streamed research.
+     * Cancelling the returned future while it waits removes it from the queue.
+     *
+     * @throws JobRejectedException if the queue is full
+     */
+    public synchronized CompletableFuture<JobSlot> acquire(String tenant, int priority) {
+
+        if (queuedCount >= schedulerProperties.getQueueCapacity()) {
+            rejectedCounter.increment();
+            throw new JobRejectedException(schedulerProperties.getQueueCapacity(), estimateRetryAfter());
+        }
+
+        TenantQueue tenantQueue = tenantQueues.computeIfAbsent(tenant, TenantQueue::new);
+        if (tenantQueue.waiting.isEmpty()) {
+            // An idle tenant must not bank credit from the time it did not use
+            tenantQueue.virtualTime = Math.max(tenantQueue.virtualTime, virtualTime);
+        }
+
+        QueuedJob queuedJob = new QueuedJob(priority, sequence.incrementAndGet(), System.nanoTime(), new CompletableFuture<>());
+        tenantQueue.waiting.add(queuedJob);
+        queuedCount++;
+
+        queuedJob.slot().whenComplete((slot, e) -> {
+            if (queuedJob.slot().isCancelled()) {
+                cancelled(tenantQueue, queuedJob);
+            }
+        });
+
+        dispatch();
+        return queuedJob.slot();
+    }
+
+    public synchronized int getQueuedCount() {
+        return queuedCount;
+    }
+
+    public synchronized int getRunningCount() {
+        return runningCount;
+    }
+
+    /**
+     * Number of tenants with waiting or running jobs.
+     */
+    synchronized int getTenantCount() {
+        return tenantQueues.size();
+    }
+
+    private synchronized void cancelled(TenantQueue tenantQueue, QueuedJob queuedJob) {
+        if (tenantQueue.waiting.remove(queuedJob)) {
+            queuedCount--;
+            removeIfIdle(tenantQueue);
+        }
+    }
+
+    /**
+     * Forgets a tenant that has no jobs left. Tenants are named by a client supplied header, so they must not pile
+     * up; a tenant that comes back starts from the current virtual time, as an idle tenant does anyway.
+     */
+    private void removeIfIdle(TenantQueue tenantQueue) {
+        if (tenantQueue.waiting.isEmpty() && tenantQueue.running == 0) {
+            tenantQueues.remove(tenantQueue.tenant, tenantQueue);
+        }
+    }
+
+    private synchronized void dispatch() {
+
+        while (runningCount < schedulerProperties.getMaxConcurrentJobs() && queuedCount > 0) {
+
+            TenantQueue next = tenantQueues.values().stream()
+                .filter(tenantQueue -> !tenantQueue.waiting.isEmpty())
+                .min(Comparator.comparingDouble((TenantQueue tenantQueue) -> tenantQueue.virtualTime)
+                    .thenComparingLong(tenantQueue -> tenantQueue.waiting.peek().sequence()))
+                .orElseThrow();
+
+            QueuedJob queuedJob = next.waiting.poll();
+            queuedCount--;
+            virtualTime = next.virtualTime;
+            next.virtualTime += 1.0 / weightOf(next.tenant);
+
+            long startNanos = System.nanoTime();
+            waitTimer.record(Duration.ofNanos(startNanos - queuedJob.enqueuedNanos()));
+            runningCount++;
+            next.running++;
+
+            // Completed off the lock so that callers continuing on the slot never run while holding it
+            Slot slot = new Slot(next, startNanos);
+            executorService.execute(() -> {
+                if (!queuedJob.slot().complete(slot)) {
+                    // Cancelled while being dispatched
+                    slot.release();
+                }
+            });
+        }
+    }
+
+    private synchronized void released(TenantQueue tenantQueue, long startNanos) {
+
+        runningCount--;
+        tenantQueue.running--;
+        removeIfIdle(tenantQueue);
+        long jobMillis = Duration.ofNanos(System.nanoTime() - startNanos).toMillis();
+        averageJobMillis = 0.8 * averageJobMillis + 0.2 * jobMillis;
+        dispatch();
+    }
+
+    private int weightOf(String tenant) {
+        return Math.max(1, schedulerProperties.getTenantWeights().getOrDefault(tenant, 1));
+    }
+
+    /**
+     * Time until the next running job is expected to finish and make room in the queue, assuming the average job
+     * duration.
+     */
+    private Duration estimateRetryAfter() {
+        long millis = Math.round(averageJobMillis / schedulerProperties.getMaxConcurrentJobs());
+        return Duration.ofSeconds(Math.max(1, (millis + 999) / 1000));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    private class Slot implements JobSlot {
+
+        private final TenantQueue tenantQueue;
+        private final long startNanos;
+        private boolean released;
+
+        Slot(TenantQueue tenantQueue, long startNanos) {
+            this.tenantQueue = tenantQueue;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void release() {
+            synchronized (ResearchJobScheduler.this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+                released(tenantQueue, startNanos);
+            }
+        }
+    }
+
+    private record QueuedJob(int priority, long sequence, long enqueuedNanos, CompletableFuture<JobSlot> slot) {}
+
+    private static class TenantQueue {
+
+        private final String tenant;
+        // Highest priority first, then first come first served
+        private final PriorityQueue<QueuedJob> waiting = new PriorityQueue<>(
+            Comparator.comparingInt(QueuedJob::priority).reversed().thenComparingLong(QueuedJob::sequence));
+        private double virtualTime;
+        private int running;
+
+        TenantQueue(String tenant) {
+            this.tenant = tenant;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.langraph4j_researcher.services;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Research summaries shared by the runs of a batch, by normalised research query.
+ * Unlike the {@link ResearchCache}, which may be disabled, bounded or expire entries, the memo keeps every summary for
+ * as long as the batch runs, so a research query shared by many questions of the batch is researched exactly once.
+ * Runs researching a query another run is still researching wait for its summary instead of researching it again.
+ * Failures are not remembered, the next run researching the query tries again.
+ */
+public class ResearchMemo {
+
+    private final ConcurrentMap<String, CompletableFuture<String>> summaries = new ConcurrentHashMap<>();
+
+    public String getOrResearch(String researchQuery, Function<String, String> research) {
+
+        String key = ResearchCache.normalise(researchQuery);
+        CompletableFuture<String> summary = new CompletableFuture<>();
+        CompletableFuture<String> existing = summaries.putIfAbsent(key, summary);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            summary.complete(research.apply(researchQuery));
+            return summary.join();
+        } catch (RuntimeException e) {
+            summaries.remove(key, summary);
+            summary.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Number of distinct research queries researched.
+     */
+    public int size() {
+        return summaries.size();
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.langraph4j_researcher.services;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import lombok.RequiredArgsConstructor;
+import org.bsc.langgraph4j.RunnableConfig;
+import org.bsc.langgraph4j.action.AsyncNodeActionWithConfig;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.stereotype.Service;
+
+/**
+ * Instrumentation of research runs.
+ * A run, every node it executes and every LLM call of a node are observed, which records a timer per observation
+ * and, with tracing on the classpath, a span. Spans of a run form one trace: nodes are children of the run and LLM
+ * calls are children of the node that made them, and all of them carry the run id.
+ * The run observation is passed to the nodes in the {@link RunnableConfig} metadata because the graph runner
+ * continues a run on whichever thread completed the previous node.
+ */
+@Service
+@RequiredArgsConstructor
+public class ResearchObservations {
+
+    /**
+     * {@link RunnableConfig} metadata key of the {@link Observation} of the run.
+     */
+    public static final String RUN_OBSERVATION = "runObservation";
+
+    static final String RUN = "research.run";
+    static final String NODE = "research.node";
+    static final String LLM_CALL = "research.llm";
+    static final String TOKENS = "research.llm.tokens";
+    static final String PARSE_FAILURES = "research.parse.failures";
+    static final String RESEARCH_ITERATIONS = "research.iterations";
+
+    static final String NODE_KEY = "node";
+    static final String RUN_ID_KEY = "run.id";
+    static final String MODEL_KEY = "model";
+    static final String BACKEND_KEY = "backend";
+
+    private static final String NONE = "none";
+
+    private final ObservationRegistry observationRegistry;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Starts the observation of a run, it must be stopped when the run completes.
+     */
+    public Observation startRun(String runId) {
+
+        return Observation.createNotStarted(RUN, observationRegistry)
+            .highCardinalityKeyValue(RUN_ID_KEY, runId)
+            .start();
+    }
+
+    /**
+     * Wraps a node action so each execution is observed as a child of the run.
+     */
+    public AsyncNodeActionWithConfig<State> observeNode(String nodeName, AsyncNodeActionWithConfig<State> action) {
+
+        return (state, config) -> {
+
+            Observation observation = Observation.createNotStarted(NODE, observationRegistry)
+                .contextualName(nodeName)
+                .lowCardinalityKeyValue(NODE_KEY, nodeName)
+                .highCardinalityKeyValue(RUN_ID_KEY, config.threadId().orElse(NONE));
+            config.getMetadata(RUN_OBSERVATION).ifPresent(run -> observation.parentObservation((Observation) run));
+            observation.start();
+
+            CompletableFuture<Map<String, Object>> result;
+            // The scope makes the node the parent of the LLM calls it starts before returning its future
+            try (Observation.Scope scope = observation.openScope()) {
+                result = action.apply(state, config);
+            } catch (Exception e) {
+                observation.error(e);
+                observation.stop();
+                throw e;
+            }
+            return result.whenComplete((update, e) -> {
+                if (e != null) {
+                    observation.error(e);
+                }
+                observation.stop();
+            });
+        };
+    }
+
+    /**
+     * Starts the observation of an LLM call to the model on the Ollama backend as a child of the current node, it must
+     * be stopped when the call completes. Calls made outside a node are observed on their own.
+     */
+    public Observation startLlmCall(Observation parent, String model, String backend) {
+
+        Observation observation = Observation.createNotStarted(LLM_CALL, observationRegistry)
+            .lowCardinalityKeyValue(NODE_KEY, nodeOf(parent))
+            .lowCardinalityKeyValue(MODEL_KEY, model)
+            .lowCardinalityKeyValue(BACKEND_KEY, backend);
+        if (parent != null) {
+            observation.parentObservation(parent);
+            runIdOf(parent).ifPresent(runId -> observation.highCardinalityKeyValue(RUN_ID_KEY, runId));
+        }
+        return observation.start();
+    }
+
+    /**
+     * The observation current on the calling thread, to be passed on to calls completing on other threads.
+     */
+    public Observation currentObservation() {
+        return observationRegistry.getCurrentObservation();
+    }
+
+    /**
+     * Records the prompt and completion token counts of an LLM call, if the model reported them.
+     */
+    public void recordTokenUsage(Observation llmCall, Usage usage) {
+
+        if (usage == null) {
+            return;
+        }
+        String node = nodeOf(llmCall);
+        recordTokens(node, "prompt", usage.getPromptTokens());
+        recordTokens(node, "completion", usage.getCompletionTokens());
+    }
+
+    /**
+     * Counts an LLM response that could not be parsed.
+     */
+    public void parseFailed(String nodeName) {
+        meterRegistry.counter(PARSE_FAILURES, NODE_KEY, nodeName).increment();
+    }
+
+    /**
+     * Records how many research and reflection rounds a run took to reach its final answer.
+     */
+    public void recordResearchIterations(int iterations) {
+
+        DistributionSummary.builder(RESEARCH_ITERATIONS)
+            .description("Research and reflection rounds per run")
+            .register(meterRegistry)
+            .record(iterations);
+    }
+
+    private void recordTokens(String node, String type, Integer tokens) {
+
+        if (tokens == null || tokens <= 0) {
+            return;
+        }
+        DistributionSummary.builder(TOKENS)
+            .description("Tokens of the prompts and completions of LLM calls")
+            .baseUnit("tokens")
+            .tags(NODE_KEY, node, "type", type)
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(tokens);
+    }
+
+    private static String nodeOf(Observation observation) {
+
+        if (observation == null) {
+            return NONE;
+        }
+        KeyValue node = observation.getContextView().getLowCardinalityKeyValue(NODE_KEY);
+        return node == null ? NONE : node.getValue();
+    }
+
+    private static Optional<String> runIdOf(Observation observation) {
+        return Optional.ofNullable(observation.getContextView().getHighCardinalityKeyValue(RUN_ID_KEY))
+            .map(KeyValue::getValue);
+    }
+}
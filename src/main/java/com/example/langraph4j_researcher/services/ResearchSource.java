@@ -0,0 +1,23 @@
+package com.example.langraph4j_researcher.services;
+
+import com.example.langraph4j_researcher.model.Passage;
+import java.util.List;
+
+/**
+ * Source of the passages a research query is answered from.
+ * With passages the research node asks the LLM to summarise what they say, a short prompt grounded in the documents,
+ * instead of asking it to answer from what it remembers. Implementations must be thread-safe, the queries of a
+ * research round are retrieved in parallel.
+ */
+public interface ResearchSource {
+
+    /**
+     * Source without documents, research queries are answered by the LLM alone.
+     */
+    ResearchSource NONE = (query, topK) -> List.of();
+
+    /**
+     * The passages most relevant to the query, most relevant first, at most {@code topK} of them.
+     */
+    List<Passage> retrieve(String query, int topK);
+}
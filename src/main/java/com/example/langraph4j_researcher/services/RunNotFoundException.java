@@ -0,0 +1,16 @@
+package com.example.langraph4j_researcher.services;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when a run is to be resumed but there is no checkpoint to resume it from,
+ * either because it never started, it already completed or checkpointing is disabled.
+ */
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class RunNotFoundException extends RuntimeException {
+
+    public RunNotFoundException(String runId) {
+        super("No checkpoint to resume run [" + runId + "] from");
+    }
+}
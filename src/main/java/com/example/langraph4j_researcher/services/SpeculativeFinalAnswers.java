@@ -0,0 +1,85 @@
+package com.example.langraph4j_researcher.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Service;
+
+/**
+ * Final answers generated speculatively while the last reflection of a run is still running.
+ * When the reflection ends the research, the final answer node takes the speculative answer instead of calling the
+ * LLM again, so the run does not wait for reflection and synthesis one after the other. When more research follows
+ * the answer is discarded. Speculations are kept in memory by run id, one per run, and expire if their run fails
+ * before taking or discarding them.
+ */
+@Service
+public class SpeculativeFinalAnswers {
+
+    static final String SPECULATIONS = "research.speculation";
+
+    private record Speculation(String prompt, CompletableFuture<String> response) {}
+
+    private final MeterRegistry meterRegistry;
+    private final Cache<String, Speculation> speculations;
+
+    public SpeculativeFinalAnswers(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.speculations = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofMinutes(30))
+            .<String, Speculation>removalListener((runId, speculation, cause) -> {
+                if (cause != RemovalCause.EXPLICIT && speculation != null) {
+                    discarded(speculation);
+                }
+            })
+            .build();
+    }
+
+    /**
+     * Starts generating the final answer of the run for the prompt, replacing an earlier speculation of the run.
+     */
+    public void start(String runId, String prompt, Supplier<CompletableFuture<String>> llmCall) {
+
+        discard(runId);
+        speculations.put(runId, new Speculation(prompt, llmCall.get()));
+    }
+
+    /**
+     * Takes the speculative response of the run, if it was generated for the same prompt.
+     */
+    public Optional<CompletableFuture<String>> take(String runId, String prompt) {
+
+        Speculation speculation = speculations.asMap().remove(runId);
+        if (speculation == null) {
+            return Optional.empty();
+        }
+        if (!speculation.prompt().equals(prompt)) {
+            discarded(speculation);
+            return Optional.empty();
+        }
+        meterRegistry.counter(SPECULATIONS, "outcome", "used").increment();
+        return Optional.of(speculation.response());
+    }
+
+    /**
+     * Discards the speculative response of the run, if there is one.
+     */
+    public void discard(String runId) {
+
+        Speculation speculation = speculations.asMap().remove(runId);
+        if (speculation != null) {
+            discarded(speculation);
+        }
+    }
+
+    private void discarded(Speculation speculation) {
+
+        // The LLM call itself cannot be interrupted, but nothing waits for it any more
+        speculation.response().cancel(false);
+        meterRegistry.counter(SPECULATIONS, "outcome", "discarded").increment();
+    }
+}
@@ -1,35 +1,51 @@
 package com.example.langraph4j_researcher.services;
 
-import java.util.ArrayList;
+import com.example.langraph4j_researcher.model.ReflectionVerdict;
+import com.example.langraph4j_researcher.model.ResearchQuery;
+import com.example.langraph4j_researcher.model.ResearchResult;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Predicate;
+import org.bsc.langgraph4j.serializer.StateSerializer;
 import org.bsc.langgraph4j.state.AgentState;
 import org.bsc.langgraph4j.state.Channel;
 import org.bsc.langgraph4j.state.Channels;
 
+/**
+ * State of a research run.
+ * The history of a run is kept in append-only channels of immutable records: nodes return only the queries, results
+ * and verdicts they add, and snapshots of the state share them instead of copying.
+ */
 public class State extends AgentState {
 
     public static final String USER_QUERY = "userQuery";
-    public static final String LLM_RESPONSE = "llmResponse";
-    public static final String IS_SUFFICIENT = "isSufficient";
+    // List of ResearchQuery, the initial queries and the follow-up queries of every round
     public static final String RESEARCH_QUERIES = "researchQueries";
-    public static final String RESEARCH_QUERIES_RESULT = "researchQueriesResult";
-    public static final String FOLLOW_UP_QUERIES = "followUpQueries";
+    // List of ResearchResult, in the order the queries were researched
+    public static final String RESEARCH_RESULTS = "researchResults";
+    // List of ReflectionVerdict, one per reflection
+    public static final String REFLECTIONS = "reflections";
     public static final String FINAL_ANSWER = "finalAnswer";
     public static final String RESEARCH_NODE_EXECUTION_COUNT = "researchNodeExecutionCount";
+    // Number of research results incremental reflection has reflected on
+    public static final String REFLECTED_RESULT_COUNT = "reflectedResultCount";
+    // Whether the latest reflection decided to research another round
+    public static final String CONTINUE_RESEARCH = "continueResearch";
 
     public static final Map<String, Channel<?>> SCHEMA = Map.of(
         USER_QUERY, Channels.base(() -> ""),
-        LLM_RESPONSE, Channels.base(() -> new ArrayList()),
-        RESEARCH_QUERIES, Channels.base(() -> new ArrayList()),
-        RESEARCH_QUERIES_RESULT, Channels.base(() -> new ArrayList()),
-        FOLLOW_UP_QUERIES, Channels.base(() -> new ArrayList()),
-        IS_SUFFICIENT, Channels.base(() -> false),
+        RESEARCH_QUERIES, new AppendOnlyChannel<ResearchQuery>(),
+        RESEARCH_RESULTS, new AppendOnlyChannel<ResearchResult>(),
+        REFLECTIONS, new AppendOnlyChannel<ReflectionVerdict>(),
         FINAL_ANSWER, Channels.base(() -> ""),
-        RESEARCH_NODE_EXECUTION_COUNT, Channels.base(() -> 0)
+        RESEARCH_NODE_EXECUTION_COUNT, Channels.base(() -> 0),
+        REFLECTED_RESULT_COUNT, Channels.base(() -> 0),
+        CONTINUE_RESEARCH, Channels.base(() -> false)
     );
 
+    public static final StateSerializer<State> SERIALIZER = new StructureSharingStateSerializer();
+
     public State(Map<String, Object> initState) {
         super(initState);
     }
@@ -44,9 +60,9 @@ public class State extends AgentState {
         return valOpt.orElse(null);
     }
 
-    public List<String> getListOfStringValueFromMap(String key) {
-        Optional<List<String>> valOpt = value(key);
-        return valOpt.orElse(new ArrayList<String>());
+    public <T> List<T> getListValueFromMap(String key) {
+        Optional<List<T>> valOpt = value(key);
+        return valOpt.orElse(List.of());
     }
 
     public Boolean getBoolValueFromMap(String key) {
@@ -54,4 +70,45 @@ public class State extends AgentState {
         return valOpt.orElse(null);
     }
 
+    /**
+     * The queries to research in the given round.
+     */
+    public List<String> getResearchQueries(int round) {
+        return this.<ResearchQuery>getListValueFromMap(RESEARCH_QUERIES).stream()
+            .filter(researchQuery -> researchQuery.round() == round)
+            .map(ResearchQuery::query)
+            .toList();
+    }
+
+    public List<String> getResearchSummaries() {
+        return this.<ResearchResult>getListValueFromMap(RESEARCH_RESULTS).stream()
+            .map(ResearchResult::summary)
+            .toList();
+    }
+
+    /**
+     * The summaries researched in the given round.
+     */
+    public List<String> getResearchSummaries(int round) {
+        return getResearchSummaries(researchResult -> researchResult.round() == round);
+    }
+
+    /**
+     * The summaries researched in the rounds before the given one.
+     */
+    public List<String> getResearchSummariesBefore(int round) {
+        return getResearchSummaries(researchResult -> researchResult.round() < round);
+    }
+
+    private List<String> getResearchSummaries(Predicate<ResearchResult> filter) {
+        return this.<ResearchResult>getListValueFromMap(RESEARCH_RESULTS).stream()
+            .filter(filter)
+            .map(ResearchResult::summary)
+            .toList();
+    }
+
+    public Optional<ReflectionVerdict> getLastReflection() {
+        List<ReflectionVerdict> reflections = getListValueFromMap(REFLECTIONS);
+        return reflections.isEmpty() ? Optional.empty() : Optional.of(reflections.getLast());
+    }
 }
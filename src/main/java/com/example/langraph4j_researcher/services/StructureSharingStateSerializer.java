@@ -0,0 +1,21 @@
+package com.example.langraph4j_researcher.services;
+
+import java.util.HashMap;
+import org.bsc.langgraph4j.serializer.std.ObjectStreamStateSerializer;
+
+/**
+ * Serializes {@link State} with Java object streams, like the default serializer of the graph, but clones it by
+ * copying the map only. The graph clones the state for every node and snapshot, and all state values are immutable,
+ * so a clone can share them instead of deep-copying the whole research history through a byte stream.
+ */
+class StructureSharingStateSerializer extends ObjectStreamStateSerializer<State> {
+
+    StructureSharingStateSerializer() {
+        super(State::new);
+    }
+
+    @Override
+    public State cloneObject(State state) {
+        return new State(new HashMap<>(state.data()));
+    }
+}
@@ -1,5 +1,10 @@
 package com.example.langraph4j_researcher.services;
 
+/**
+ * Built-in prompt templates, version {@value PromptCatalog#BUILT_IN_VERSION} of every prompt of the
+ * {@link PromptCatalog}. Parameters are written as {@code {name}}, see
+ * {@link com.example.langraph4j_researcher.utils.PromptTemplate}.
+ */
 public interface SystemPrompts {
 
     String GENERATE_QUERY_PROMPT = """ 
@@ -8,7 +13,7 @@ public interface SystemPrompts {
             Instructions:
                 - Always prefer a single search query, only add another query if the original question requests multiple aspects or elements and one query is not enough.
                 - Each query should focus on one specific aspect of the original question.
-                - Don't produce more than %d queries.
+                - Don't produce more than {max_queries} queries.
                 - Queries should be diverse, if the topic is broad, generate more than 1 query.
                 - Don't generate multiple similar queries, 1 is enough.
                 - Query should ensure that the most current information is gathered. The current date is {current_date}.
@@ -30,10 +35,10 @@ public interface SystemPrompts {
         }}
         </json>
         
-        Context: %s""";
+        Context: {user_question}""";
 
     String RESEARCH_PROMPT = """
-        Conduct targeted Searches to gather the most recent, credible information on "%s" and synthesize it into a verifiable text artifact.
+        Conduct targeted Searches to gather the most recent, credible information on "{research_topic}" and synthesize it into a verifiable text artifact.
         
         Instructions:
         - Query should ensure that the most current information is gathered.
@@ -58,11 +63,37 @@ public interface SystemPrompts {
         </json>
         
         Research Topic:
-        %s
+        {research_topic}
+        """;
+
+    String GROUNDED_RESEARCH_PROMPT = """
+        Summarize what the passages below say about "{research_topic}" into a short, verifiable text artifact.
+        
+        Instructions:
+        - Only include information found in the passages, don't make up any information.
+        - Cite the source of each piece of information in square brackets, e.g. [guide.md].
+        - If the passages don't cover the topic, say so in one sentence.
+        - Keep the summary brief, at most 150 words.
+        - Please provide explanations using plain text only, without mathematical notation or LaTeX expressions.
+        
+        Format:
+        - Format your response as a JSON object with this exact key:
+           - "summary": Summary of the findings
+        - Enclose the JSON object in <json></json> tags.
+        
+        Example:
+        <json>
+        {
+            "summary": Summary of the findings
+        }
+        </json>
+        
+        Passages:
+        {passages}
         """;
 
     String REFLECTION_PROMPT = """
-        You are an expert research assistant analyzing summaries about "%s".
+        You are an expert research assistant analyzing summaries about "{user_question}".
         
         Instructions:
         - Identify knowledge gaps or areas that need deeper exploration and generate a follow-up query. (1 or multiple).
@@ -95,7 +126,57 @@ public interface SystemPrompts {
         Reflect carefully on the Summaries to identify knowledge gaps and produce a follow-up query. Then, produce your output following this JSON format:
         
         Summaries:
-        %s
+        {summaries}
+        """;
+
+    String INCREMENTAL_REFLECTION_PROMPT = """
+        You are an expert research assistant analyzing summaries about "{user_question}".
+        
+        Earlier research rounds were already analyzed. What they established and the knowledge gap they left are given below,
+        followed by the new summaries of the latest research round.
+        
+        Instructions:
+        - Update what is known with the findings of the new summaries.
+        - Decide whether the new summaries close the knowledge gap, identify the knowledge gaps that remain and generate a follow-up query. (1 or multiple).
+        - If what is known is sufficient to answer the user's question, don't generate a follow-up query.
+        - Don't generate follow-up queries for information that is already known.
+        - Focus on technical details, implementation specifics, or emerging trends that weren't fully covered.
+        - Please provide explanations using plain text only, without mathematical notation or LaTeX expressions.
+        
+        
+        Requirements:
+        - Ensure the follow-up query is self-contained and includes necessary context for web search.
+        - Keep the coverage brief, at most 200 words, it replaces the earlier summaries in the next round.
+        
+        Output Format:
+        - Format your response as a JSON object with these exact keys:
+           - "isSufficient": true or false
+           - "knowledgeGap": Describe what information is missing or needs clarification
+           - "followUpQueries": Write a specific question to address this gap
+           - "coverage": Brief summary of everything that is known so far, including the findings of the new summaries
+        - Enclose the JSON object in <json></json> tags.
+        - Please provide followUpQueries using plain text only, without mathematical notation or LaTeX expressions.
+        
+        Example:
+        <json>
+        {
+            "isSufficient": false,
+            "knowledgeGap": "The summary lacks information about performance metrics and benchmarks", // "" if is_sufficient is true
+            "followUpQueries": ["What are typical performance benchmarks and metrics used to evaluate [specific technology]?"], // [] if is_sufficient is true
+            "coverage": "The technology was introduced in 2021 and is used for ..."
+        }
+        </json>
+        
+        Reflect carefully on the new Summaries to identify knowledge gaps and produce a follow-up query. Then, produce your output following this JSON format:
+        
+        Known so far:
+        {coverage}
+        
+        Knowledge gap:
+        {knowledge_gap}
+        
+        New Summaries:
+        {summaries}
         """;
 
     String FINAL_ANSWER_PROMPT = """
@@ -127,9 +208,9 @@ public interface SystemPrompts {
         </json>
         
         User Context:
-        - %s
+        - {user_question}
         
         Summaries:
-        %s
+        {summaries}
         """;
 }
@@ -0,0 +1,121 @@
+package com.example.langraph4j_researcher.utils;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Immutable list that shares its elements with the lists it was appended from.
+ * <p>
+ * Every version is a prefix of one backing array. Appending to the newest version writes behind its end in place and
+ * returns a longer view, so appending is amortised constant time and older versions, such as state snapshots, keep
+ * seeing exactly their own elements without being copied. Only when two versions are appended to from the same
+ * prefix, as concurrent graph branches do, the second one copies the prefix into a new array, so neither append is
+ * lost.
+ */
+public final class AppendOnlyList<T> extends AbstractList<T> implements RandomAccess, Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private static final int MIN_CAPACITY = 8;
+
+    private transient Buffer buffer;
+    private transient int size;
+
+    private AppendOnlyList(Buffer buffer, int size) {
+        this.buffer = buffer;
+        this.size = size;
+    }
+
+    public static <T> AppendOnlyList<T> of() {
+        return new AppendOnlyList<>(new Buffer(new Object[0], 0), 0);
+    }
+
+    /**
+     * The list itself if it is an append-only list already, or an append-only copy of it.
+     */
+    public static <T> AppendOnlyList<T> copyOf(Collection<? extends T> values) {
+
+        if (values instanceof AppendOnlyList<? extends T> list) {
+            @SuppressWarnings("unchecked")
+            AppendOnlyList<T> appendOnlyList = (AppendOnlyList<T>) list;
+            return appendOnlyList;
+        }
+        return AppendOnlyList.<T>of().appendAll(values);
+    }
+
+    /**
+     * Returns a list of the elements of this list followed by the given values, leaving this list unchanged.
+     */
+    public AppendOnlyList<T> appendAll(Collection<? extends T> values) {
+
+        if (values.isEmpty()) {
+            return this;
+        }
+        int newSize = size + values.size();
+        Buffer target = buffer;
+        // Claim the slots behind this version, which fails if another version was appended from here before
+        if (newSize > target.elements.length || !target.claimed.compareAndSet(size, newSize)) {
+            Object[] elements = new Object[Math.max(newSize, Math.max(MIN_CAPACITY, size * 2))];
+            System.arraycopy(buffer.elements, 0, elements, 0, size);
+            target = new Buffer(elements, newSize);
+        }
+        int index = size;
+        for (T value : values) {
+            target.elements[index++] = value;
+        }
+        return new AppendOnlyList<>(target, newSize);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        Objects.checkIndex(index, size);
+        return (T) buffer.elements[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Serial
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeObject(buffer.elements[i]);
+        }
+    }
+
+    @Serial
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        size = in.readInt();
+        Object[] elements = new Object[size];
+        for (int i = 0; i < size; i++) {
+            elements[i] = in.readObject();
+        }
+        buffer = new Buffer(elements, size);
+    }
+
+    private static final class Buffer {
+
+        private final Object[] elements;
+        // Number of slots taken by the longest version of the list
+        private final AtomicInteger claimed;
+
+        Buffer(Object[] elements, int claimed) {
+            this.elements = elements;
+            this.claimed = new AtomicInteger(claimed);
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package com.example.langraph4j_researcher.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable on-disk segment of a passage index: the passages of a batch of documents, an inverted index of their
+ * words and, optionally, their embeddings.
+ * <p>
+ * A segment is written once and read through a memory-mapped buffer, so opening one only reads its term dictionary
+ * and document names while postings, passage texts and vectors are paged in by the OS as searches touch them.
+ * Layout of the file, all numbers big-endian:
+ * <pre>
+ * passages    per passage: document index, word count, UTF-8 length, UTF-8 text
+ * offsets     per passage: file offset of the passage
+ * documents   document count, per document: name
+ * vectors     per passage: dimensions floats of its normalised embedding
+ * postings    per term, per passage containing it in passage order: passage index, term frequency
+ * dictionary  term count, per term in order: term, document frequency, file offset of its postings
+ * footer      the offsets of the sections, passage count, total word count, dimensions and a magic number
+ * </pre>
+ * Segments are limited to 2 GB, the size of a single mapped buffer.
+ */
+public final class IndexSegment {
+
+    private static final int MAGIC = 0x52534731;
+    private static final int FOOTER_BYTES = Long.BYTES * 5 + Integer.BYTES * 3 + Long.BYTES;
+
+    /**
+     * Document to write into a segment, split into passages.
+     *
+     * @param vectors embeddings of the passages, null to write the segment without vectors
+     */
+    public record Document(String name, List<String> passages, List<float[]> vectors) {}
+
+    /**
+     * Receives the postings of a term.
+     */
+    @FunctionalInterface
+    public interface PostingConsumer {
+        void accept(int passage, int termFrequency);
+    }
+
+    private record Term(int documentFrequency, long postingsOffset) {}
+
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final Map<String, Term> dictionary;
+    private final List<String> documentNames;
+    private final long offsetsOffset;
+    private final long vectorsOffset;
+    private final int passageCount;
+    private final long totalWords;
+    private final int dimensions;
+
+    private IndexSegment(Path file, MappedByteBuffer buffer) {
+
+        this.file = file;
+        this.buffer = buffer;
+        int footer = buffer.capacity() - FOOTER_BYTES;
+        this.offsetsOffset = buffer.getLong(footer);
+        long documentsOffset = buffer.getLong(footer + 8);
+        this.vectorsOffset = buffer.getLong(footer + 16);
+        long dictionaryOffset = buffer.getLong(footer + 32);
+        this.passageCount = buffer.getInt(footer + 40);
+        this.totalWords = buffer.getLong(footer + 44);
+        this.dimensions = buffer.getInt(footer + 52);
+        if (buffer.getInt(footer + 56) != MAGIC) {
+            throw new IllegalStateException("Index segment [" + file + "] is corrupt");
+        }
+
+        Reader reader = new Reader((int) documentsOffset);
+        int documentCount = reader.readInt();
+        this.documentNames = new ArrayList<>(documentCount);
+        for (int i = 0; i < documentCount; i++) {
+            documentNames.add(reader.readString());
+        }
+
+        reader = new Reader((int) dictionaryOffset);
+        int termCount = reader.readInt();
+        this.dictionary = new HashMap<>(termCount * 2);
+        for (int i = 0; i < termCount; i++) {
+            dictionary.put(reader.readString(), new Term(reader.readInt(), reader.readLong()));
+        }
+    }
+
+    /**
+     * Maps an existing segment file.
+     */
+    public static IndexSegment open(Path file) throws IOException {
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Index segment [" + file + "] is larger than 2 GB");
+            }
+            return new IndexSegment(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes the documents into a new segment file and maps it. The file only appears under its name once complete.
+     *
+     * @param dimensions dimensions of the vectors of the documents, 0 if they have none
+     */
+    public static IndexSegment write(Path file, List<Document> documents, int dimensions) throws IOException {
+
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        Map<String, List<int[]>> postings = new TreeMap<>();
+        List<Long> passageOffsets = new ArrayList<>();
+        long totalWords = 0;
+
+        try (CountingOutput out = new CountingOutput(tempFile)) {
+
+            for (int document = 0; document < documents.size(); document++) {
+                for (String passage : documents.get(document).passages()) {
+                    List<String> words = TextSimilarity.words(passage);
+                    Map<String, Integer> termFrequencies = new HashMap<>();
+                    words.forEach(word -> termFrequencies.merge(word, 1, Integer::sum));
+                    int passageIndex = passageOffsets.size();
+                    termFrequencies.forEach((term, frequency) ->
+                        postings.computeIfAbsent(term, ignored -> new ArrayList<>()).add(new int[] {passageIndex, frequency}));
+                    totalWords += words.size();
+
+                    passageOffsets.add(out.position);
+                    byte[] text = passage.getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(document);
+                    out.writeInt(words.size());
+                    out.writeInt(text.length);
+                    out.write(text);
+                }
+            }
+
+            long offsetsOffset = out.position;
+            for (long offset : passageOffsets) {
+                out.writeLong(offset);
+            }
+
+            long documentsOffset = out.position;
+            out.writeInt(documents.size());
+            for (Document document : documents) {
+                out.writeString(document.name());
+            }
+
+            long vectorsOffset = out.position;
+            if (dimensions > 0) {
+                for (Document document : documents) {
+                    for (float[] vector : document.vectors()) {
+                        for (float value : VectorIndex.normalise(vector)) {
+                            out.writeFloat(value);
+                        }
+                    }
+                }
+            }
+
+            long postingsOffset = out.position;
+            Map<String, Long> termOffsets = new HashMap<>();
+            for (Map.Entry<String, List<int[]>> term : postings.entrySet()) {
+                termOffsets.put(term.getKey(), out.position);
+                for (int[] posting : term.getValue()) {
+                    out.writeInt(posting[0]);
+                    out.writeInt(posting[1]);
+                }
+            }
+
+            long dictionaryOffset = out.position;
+            out.writeInt(postings.size());
+            for (Map.Entry<String, List<int[]>> term : postings.entrySet()) {
+                out.writeString(term.getKey());
+                out.writeInt(term.getValue().size());
+                out.writeLong(termOffsets.get(term.getKey()));
+            }
+
+            out.writeLong(offsetsOffset);
+            out.writeLong(documentsOffset);
+            out.writeLong(vectorsOffset);
+            out.writeLong(postingsOffset);
+            out.writeLong(dictionaryOffset);
+            out.writeInt(passageOffsets.size());
+            out.writeLong(totalWords);
+            out.writeInt(dimensions);
+            out.writeInt(MAGIC);
+        }
+
+        Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return open(file);
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    public int passageCount() {
+        return passageCount;
+    }
+
+    public long totalWords() {
+        return totalWords;
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    public int documentFrequency(String term) {
+        Term entry = dictionary.get(term);
+        return entry == null ? 0 : entry.documentFrequency();
+    }
+
+    /**
+     * Passes the index and frequency of the term of every passage containing the term to the consumer.
+     */
+    public void forEachPosting(String term, PostingConsumer consumer) {
+
+        Term entry = dictionary.get(term);
+        if (entry == null) {
+            return;
+        }
+        int offset = (int) entry.postingsOffset();
+        for (int i = 0; i < entry.documentFrequency(); i++) {
+            consumer.accept(buffer.getInt(offset), buffer.getInt(offset + Integer.BYTES));
+            offset += Integer.BYTES * 2;
+        }
+    }
+
+    /**
+     * Name of the document the passage belongs to.
+     */
+    public String documentName(int passage) {
+        return documentNames.get(buffer.getInt(passageOffset(passage)));
+    }
+
+    public int passageWords(int passage) {
+        return buffer.getInt(passageOffset(passage) + Integer.BYTES);
+    }
+
+    public String passageText(int passage) {
+
+        int offset = passageOffset(passage);
+        byte[] text = new byte[buffer.getInt(offset + Integer.BYTES * 2)];
+        buffer.get(offset + Integer.BYTES * 3, text);
+        return new String(text, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Cosine similarity of the passage to a normalised vector, the segment must have vectors.
+     */
+    public double similarity(int passage, float[] normalisedVector) {
+
+        int offset = (int) vectorsOffset + passage * dimensions * Float.BYTES;
+        double dot = 0;
+        for (int i = 0; i < dimensions; i++) {
+            dot += buffer.getFloat(offset + i * Float.BYTES) * normalisedVector[i];
+        }
+        return dot;
+    }
+
+    private int passageOffset(int passage) {
+        return (int) buffer.getLong((int) offsetsOffset + passage * Long.BYTES);
+    }
+
+    /**
+     * Sequential reader of the sections read when the segment is opened.
+     */
+    private final class Reader {
+
+        private int position;
+
+        Reader(int position) {
+            this.position = position;
+        }
+
+        int readInt() {
+            int value = buffer.getInt(position);
+            position += Integer.BYTES;
+            return value;
+        }
+
+        long readLong() {
+            long value = buffer.getLong(position);
+            position += Long.BYTES;
+            return value;
+        }
+
+        String readString() {
+            byte[] bytes = new byte[readInt()];
+            buffer.get(position, bytes);
+            position += bytes.length;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Output stream keeping track of the file offset it writes at.
+     */
+    private static final class CountingOutput implements AutoCloseable {
+
+        private final FileOutputStream file;
+        private final DataOutputStream out;
+        private long position;
+
+        CountingOutput(Path path) throws IOException {
+            this.file = new FileOutputStream(path.toFile());
+            this.out = new DataOutputStream(new BufferedOutputStream(file));
+        }
+
+        void writeInt(int value) throws IOException {
+            out.writeInt(value);
+            position += Integer.BYTES;
+        }
+
+        void writeLong(long value) throws IOException {
+            out.writeLong(value);
+            position += Long.BYTES;
+        }
+
+        void writeFloat(float value) throws IOException {
+            out.writeFloat(value);
+            position += Float.BYTES;
+        }
+
+        void write(byte[] bytes) throws IOException {
+            out.write(bytes);
+            position += bytes.length;
+        }
+
+        void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeInt(bytes.length);
+            write(bytes);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try (out) {
+                out.flush();
+                // The segment must be on disk before the manifest can refer to it
+                file.getFD().sync();
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.langraph4j_researcher.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Prompt template parsed once into literal text and named parameters.
+ * <p>
+ * A parameter is written as its name in braces, e.g. {@code {user_question}}, where the name consists of lowercase
+ * letters, digits and underscores. Every other brace is literal text, so JSON examples need no escaping, while a
+ * doubled brace stands for a single literal one where a brace would otherwise start a parameter.
+ * <p>
+ * Rendering only copies the segments into a builder sized to the exact length of the prompt, and estimates the tokens
+ * of the prompt from that length the way {@link TextSimilarity#estimateTokens(String)} does.
+ */
+public final class PromptTemplate {
+
+    /**
+     * A rendered prompt and its estimated number of tokens.
+     */
+    public record Rendered(String text, int tokens) {}
+
+    private final String[] literals;
+    private final String[] parameters;
+    private final int literalLength;
+
+    private PromptTemplate(List<String> literals, List<String> parameters) {
+        this.literals = literals.toArray(String[]::new);
+        this.parameters = parameters.toArray(String[]::new);
+        this.literalLength = literals.stream().mapToInt(String::length).sum();
+    }
+
+    /**
+     * Parses the template text.
+     */
+    public static PromptTemplate compile(String template) {
+
+        // literals[i] precedes parameters[i], the last literal follows the last parameter
+        List<String> literals = new ArrayList<>();
+        List<String> parameters = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < template.length()) {
+            char c = template.charAt(i);
+            if ((c == '{' || c == '}') && i + 1 < template.length() && template.charAt(i + 1) == c) {
+                literal.append(c);
+                i += 2;
+                continue;
+            }
+            int end = c == '{' ? parameterEnd(template, i) : -1;
+            if (end < 0) {
+                literal.append(c);
+                i++;
+                continue;
+            }
+            literals.add(literal.toString());
+            literal.setLength(0);
+            parameters.add(template.substring(i + 1, end));
+            i = end + 1;
+        }
+        literals.add(literal.toString());
+        return new PromptTemplate(literals, parameters);
+    }
+
+    /**
+     * Index of the closing brace of the parameter starting at the opening brace, -1 if no parameter starts there.
+     */
+    private static int parameterEnd(String template, int start) {
+
+        int i = start + 1;
+        while (i < template.length()) {
+            char c = template.charAt(i);
+            if (c == '}') {
+                return i > start + 1 ? i : -1;
+            }
+            if (!(c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '_')) {
+                return -1;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    /**
+     * Names of the parameters of the template, in order of first use.
+     */
+    public Set<String> parameters() {
+        return new LinkedHashSet<>(List.of(parameters));
+    }
+
+    /**
+     * Renders the template with the values of its parameters.
+     *
+     * @throws IllegalArgumentException if a parameter of the template has no value
+     */
+    public Rendered render(Map<String, ?> values) {
+
+        String[] renderedValues = new String[parameters.length];
+        int length = literalLength;
+        for (int i = 0; i < parameters.length; i++) {
+            Object value = values.get(parameters[i]);
+            if (value == null) {
+                throw new IllegalArgumentException("No value for prompt parameter {" + parameters[i] + "}");
+            }
+            renderedValues[i] = value.toString();
+            length += renderedValues[i].length();
+        }
+
+        StringBuilder prompt = new StringBuilder(length);
+        for (int i = 0; i < parameters.length; i++) {
+            prompt.append(literals[i]).append(renderedValues[i]);
+        }
+        prompt.append(literals[parameters.length]);
+        return new Rendered(prompt.toString(), (length + 3) / 4);
+    }
+}
@@ -1,34 +1,138 @@
 package com.example.langraph4j_researcher.utils;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import java.io.IOException;
+import java.io.Reader;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ResponseUtils {
 
+    static final String THINK_END_TAG = "</think>";
+    static final String JSON_START_TAG = "<json>";
+    static final String JSON_END_TAG = "</json>";
+
+    // Small models do not always produce strict JSON, accept what is unambiguous
+    private static final ObjectMapper OBJECT_MAPPER = JsonMapper.builder()
+        .enable(JsonReadFeature.ALLOW_TRAILING_COMMA)
+        .enable(JsonReadFeature.ALLOW_JAVA_COMMENTS)
+        .enable(JsonReadFeature.ALLOW_SINGLE_QUOTES)
+        .enable(JsonReadFeature.ALLOW_UNESCAPED_CONTROL_CHARS)
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+        .build();
+
+    private static final ObjectReader MAP_READER = OBJECT_MAPPER.readerFor(new TypeReference<Map<String, Object>>() {});
+
+    private static final Map<Class<?>, ObjectReader> TYPED_READERS = new ConcurrentHashMap<>();
+
     private ResponseUtils() {}
 
     public static Map<String, Object> extractJsonFromLLMResponse(String llmResponse) {
-        // Find the content between <json> tags
-        int jsonStart = llmResponse.indexOf("<json>");
-        int jsonEnd = llmResponse.indexOf("</json>");
+        return readJson(llmResponse, MAP_READER);
+    }
+
+    /**
+     * Extracts the JSON object of an LLM response and binds it to the given response record.
+     */
+    public static <T> T extractJsonFromLLMResponse(String llmResponse, Class<T> type) {
+        return readJson(llmResponse, TYPED_READERS.computeIfAbsent(type, OBJECT_MAPPER::readerFor));
+    }
+
+    private static <T> T readJson(String llmResponse, ObjectReader reader) {
 
-        if (jsonStart == -1 || jsonEnd == -1) {
+        long bounds = findJson(llmResponse);
+        if (bounds < 0) {
             throw new IllegalArgumentException("No JSON tags found in LLM response [" + llmResponse + "]");
         }
+        int start = (int) (bounds >>> 32);
+        int end = (int) bounds;
+
+        try (Reader json = new StringRegionReader(llmResponse, start, end)) {
+            return reader.readValue(json);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to parse JSON from LLM response [ " + llmResponse.substring(start, end) + " ]", e);
+        }
+    }
+
+    /**
+     * Locates the JSON object in a single pass over the response and returns its start and end packed into a long,
+     * or -1 if there is none.
+     * Reasoning models such as qwen3 open with a {@code <think>} block that may quote the instructions, tags
+     * included, so the search starts after the end of that block. A missing closing tag extends the JSON to the end
+     * of the response, and a response without tags falls back to its outermost braces.
+     */
+    static long findJson(String llmResponse) {
+
+        int thinkEnd = llmResponse.indexOf(THINK_END_TAG);
+        int from = thinkEnd == -1 ? 0 : thinkEnd + THINK_END_TAG.length();
+
+        int start = -1;
+        int firstBrace = -1;
+        int lastBrace = -1;
+        for (int i = from; i < llmResponse.length(); i++) {
+            char c = llmResponse.charAt(i);
+            if (c == '<') {
+                if (start == -1 && llmResponse.startsWith(JSON_START_TAG, i)) {
+                    start = i + JSON_START_TAG.length();
+                    i = start - 1;
+                } else if (start != -1 && llmResponse.startsWith(JSON_END_TAG, i)) {
+                    return pack(start, i);
+                }
+            } else if (c == '{') {
+                if (firstBrace == -1) {
+                    firstBrace = i;
+                }
+            } else if (c == '}') {
+                lastBrace = i;
+            }
+        }
+        if (start != -1) {
+            return pack(start, llmResponse.length());
+        }
+        if (firstBrace != -1 && lastBrace > firstBrace) {
+            return pack(firstBrace, lastBrace + 1);
+        }
+        return -1;
+    }
 
-        // Extract the JSON string from between the tags (add 6 to skip "<json>" tag)
-        String jsonStr = llmResponse.substring(jsonStart + 6, jsonEnd).trim();
+    private static long pack(int start, int end) {
+        return ((long) start << 32) | end;
+    }
+
+    /**
+     * Reader over a region of a string, so the JSON is parsed without copying it out of the response first.
+     */
+    private static final class StringRegionReader extends Reader {
+
+        private final String text;
+        private final int end;
+        private int position;
 
-        // Create ObjectMapper instance
-        ObjectMapper objectMapper = new ObjectMapper();
+        StringRegionReader(String text, int start, int end) {
+            this.text = text;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (position >= end) {
+                return -1;
+            }
+            int count = Math.min(length, end - position);
+            text.getChars(position, position + count, buffer, offset);
+            position += count;
+            return count;
+        }
 
-        try {
-            // Convert JSON string to Map
-            return objectMapper.readValue(jsonStr, new TypeReference<Map<String, Object>>() {});
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Failed to parse JSON from LLM response [ " + jsonStr + " ]", e);
+        @Override
+        public void close() {
+            // Nothing to release
         }
     }
 }
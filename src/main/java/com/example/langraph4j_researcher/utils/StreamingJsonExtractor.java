@@ -0,0 +1,171 @@
+package com.example.langraph4j_researcher.utils;
+
+/**
+ * Extracts the value of one string field of the JSON object in an LLM response while the response is streamed.
+ * Chunks are fed as they arrive and every call returns the characters of the field's value that became available,
+ * already unescaped, so they can be forwarded to the user before the response is complete. Anything before the
+ * end of a {@code <think>} block is skipped. The full response is kept to be parsed once the stream completes.
+ */
+public class StreamingJsonExtractor {
+
+    private enum Phase { SEEK_FIELD, SEEK_VALUE, IN_VALUE, DONE }
+
+    private static final String THINK_START_TAG = "<think>";
+
+    private final String fieldKey;
+    private final StringBuilder response = new StringBuilder();
+
+    private Phase phase = Phase.SEEK_FIELD;
+    private int position;
+    // While seeking the field, the end of the response searched so far and whether that is within a think block
+    private int scanned;
+    private boolean thinking;
+
+    public StreamingJsonExtractor(String field) {
+        this.fieldKey = '"' + field + '"';
+    }
+
+    /**
+     * Adds a chunk of the response and returns the newly available characters of the field's value,
+     * empty if there are none yet.
+     */
+    public String feed(String chunk) {
+
+        response.append(chunk);
+        StringBuilder value = new StringBuilder();
+
+        while (true) {
+            switch (phase) {
+                case SEEK_FIELD -> {
+                    if (!seekField()) {
+                        return value.toString();
+                    }
+                }
+                case SEEK_VALUE -> {
+                    if (!seekValue()) {
+                        return value.toString();
+                    }
+                }
+                case IN_VALUE -> {
+                    readValue(value);
+                    return value.toString();
+                }
+                case DONE -> {
+                    return value.toString();
+                }
+            }
+        }
+    }
+
+    /**
+     * The response fed so far.
+     */
+    public String response() {
+        return response.toString();
+    }
+
+    /**
+     * Searches the response from where the previous chunk left off, backing up only far enough to find a tag or the
+     * field split across chunks, so a long preamble is searched once rather than once per chunk.
+     */
+    private boolean seekField() {
+
+        while (true) {
+            // Models that think first may quote the field in their reasoning, wait until thinking is over
+            if (thinking) {
+                int thinkEnd = response.indexOf(ResponseUtils.THINK_END_TAG,
+                    resumeFrom(ResponseUtils.THINK_END_TAG.length()));
+                if (thinkEnd == -1) {
+                    scanned = response.length();
+                    return false;
+                }
+                thinking = false;
+                position = thinkEnd + ResponseUtils.THINK_END_TAG.length();
+                scanned = position;
+                continue;
+            }
+
+            int from = resumeFrom(Math.max(THINK_START_TAG.length(), fieldKey.length()));
+            int thinkStart = response.indexOf(THINK_START_TAG, from);
+            int fieldStart = response.indexOf(fieldKey, from);
+            if (thinkStart != -1 && (fieldStart == -1 || thinkStart < fieldStart)) {
+                thinking = true;
+                position = thinkStart + THINK_START_TAG.length();
+                scanned = position;
+                continue;
+            }
+            if (fieldStart == -1) {
+                scanned = response.length();
+                return false;
+            }
+            position = fieldStart + fieldKey.length();
+            phase = Phase.SEEK_VALUE;
+            return true;
+        }
+    }
+
+    private int resumeFrom(int markerLength) {
+        return Math.max(position, scanned - markerLength + 1);
+    }
+
+    private boolean seekValue() {
+
+        while (position < response.length()) {
+            char c = response.charAt(position++);
+            if (c == '"') {
+                phase = Phase.IN_VALUE;
+                return true;
+            }
+            if (c != ':' && !Character.isWhitespace(c)) {
+                // Not a string value, nothing to stream
+                phase = Phase.DONE;
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private void readValue(StringBuilder value) {
+
+        while (position < response.length()) {
+            char c = response.charAt(position);
+            if (c == '"') {
+                phase = Phase.DONE;
+                return;
+            }
+            if (c != '\\') {
+                value.append(c);
+                position++;
+                continue;
+            }
+            // Only consume an escape sequence once it is complete
+            if (position + 1 >= response.length()) {
+                return;
+            }
+            char escaped = response.charAt(position + 1);
+            if (escaped == 'u') {
+                if (position + 6 > response.length()) {
+                    return;
+                }
+                String hex = response.substring(position + 2, position + 6);
+                try {
+                    value.append((char) Integer.parseInt(hex, 16));
+                } catch (NumberFormatException e) {
+                    // Malformed escape, pass it through as the lenient final parse will see it
+                    value.append("\\u").append(hex);
+                }
+                position += 6;
+                continue;
+            }
+            value.append(switch (escaped) {
+                case 'n' -> '\n';
+                case 't' -> '\t';
+                case 'r' -> '\r';
+                case 'b' -> '\b';
+                case 'f' -> '\f';
+                default -> escaped;
+            });
+            position += 2;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.langraph4j_researcher.utils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Lexical text similarity for when embeddings are not worth their cost.
+ */
+public class TextSimilarity {
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private TextSimilarity() {}
+
+    /**
+     * The distinct lowercase words of the text, ignoring single characters.
+     */
+    public static Set<String> terms(String text) {
+        return new HashSet<>(words(text));
+    }
+
+    /**
+     * The lowercase words of the text in order, ignoring single characters.
+     */
+    public static List<String> words(String text) {
+
+        List<String> words = new ArrayList<>();
+        for (String word : NON_WORD.split(text.toLowerCase(Locale.ROOT))) {
+            if (word.length() > 1) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Share of the terms two texts have in common, 1 for identical term sets and 0 for disjoint ones.
+     */
+    public static double jaccard(Set<String> a, Set<String> b) {
+
+        if (a.isEmpty() && b.isEmpty()) {
+            return 1;
+        }
+        Set<String> smaller = a.size() <= b.size() ? a : b;
+        Set<String> larger = smaller == a ? b : a;
+        int common = 0;
+        for (String term : smaller) {
+            if (larger.contains(term)) {
+                common++;
+            }
+        }
+        return (double) common / (a.size() + b.size() - common);
+    }
+
+    /**
+     * Rough token count of the text, about four characters per token for English text.
+     * Good enough to budget prompts without the tokenizer of the model.
+     */
+    public static int estimateTokens(String text) {
+        return (text.length() + 3) / 4;
+    }
+}
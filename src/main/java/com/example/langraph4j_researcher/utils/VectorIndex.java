@@ -0,0 +1,114 @@
+package com.example.langraph4j_researcher.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Small in-process vector index with exact cosine similarity search.
+ * Vectors are normalised on insertion so a search is a single dot product per entry, which is fast enough
+ * for the tens of thousands of entries a single instance holds.
+ *
+ * @param <K> type of the keys the vectors are stored under
+ */
+public class VectorIndex<K> {
+
+    private final Map<K, float[]> vectors = new LinkedHashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Match of a search, the key of the most similar vector and its cosine similarity to the searched vector.
+     */
+    public record Match<K>(K key, double similarity) {}
+
+    public void put(K key, float[] vector) {
+        float[] normalised = normalise(vector);
+        lock.writeLock().lock();
+        try {
+            vectors.put(key, normalised);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(K key) {
+        lock.writeLock().lock();
+        try {
+            vectors.remove(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return vectors.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the entry most similar to the given vector, if its similarity reaches the threshold.
+     */
+    public Optional<Match<K>> nearest(float[] vector, double minSimilarity) {
+        float[] normalised = normalise(vector);
+        K bestKey = null;
+        double bestSimilarity = minSimilarity;
+
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<K, float[]> entry : vectors.entrySet()) {
+                double similarity = dot(normalised, entry.getValue());
+                if (similarity >= bestSimilarity) {
+                    bestKey = entry.getKey();
+                    bestSimilarity = similarity;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return bestKey == null ? Optional.empty() : Optional.of(new Match<>(bestKey, bestSimilarity));
+    }
+
+    /**
+     * Cosine similarity of two vectors of the same dimension.
+     */
+    public static double cosineSimilarity(float[] left, float[] right) {
+        return dot(normalise(left), normalise(right));
+    }
+
+    private static double dot(float[] left, float[] right) {
+        if (left.length != right.length) {
+            // Vectors of another embedding model can never be similar
+            return -1;
+        }
+        double dot = 0;
+        for (int i = 0; i < left.length; i++) {
+            dot += left[i] * right[i];
+        }
+        return dot;
+    }
+
+    /**
+     * The vector scaled to unit length, so the dot product of two normalised vectors is their cosine similarity.
+     */
+    public static float[] normalise(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+        float[] normalised = new float[vector.length];
+        if (norm == 0) {
+            return normalised;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            normalised[i] = (float) (vector[i] / norm);
+        }
+        return normalised;
+    }
+}
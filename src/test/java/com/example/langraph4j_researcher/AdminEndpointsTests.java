@@ -0,0 +1,71 @@
+package com.example.langraph4j_researcher;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+/**
+ * The endpoints that change the application for every user are not authenticated and only mapped when enabled.
+ */
+@SpringBootTest(properties = {
+	"researcher.cache.enabled=false",
+	"researcher.answers.enabled=false",
+	"researcher.checkpoint.enabled=false"
+})
+@AutoConfigureMockMvc
+class AdminEndpointsTests {
+
+	private static final String GRAPH_CONFIG = "{\"maxQueryCount\": 3, \"maxResearchNodeExecutionCount\": 2}";
+
+	@Nested
+	class Disabled {
+
+		@Autowired
+		private MockMvc mockMvc;
+
+		@Test
+		void doesNotReloadTheGraphConfig() throws Exception {
+
+			mockMvc.perform(put("/graph/config").contentType(MediaType.APPLICATION_JSON).content(GRAPH_CONFIG))
+				.andExpect(status().isMethodNotAllowed());
+		}
+
+		@Test
+		void doesNotDropStoredAnswers() throws Exception {
+
+			mockMvc.perform(delete("/answers/all")).andExpect(status().isNotFound());
+		}
+	}
+
+	@Nested
+	@TestPropertySource(properties = "researcher.admin.enabled=true")
+	class Enabled {
+
+		@Autowired
+		private MockMvc mockMvc;
+
+		@Test
+		void reloadsTheGraphConfig() throws Exception {
+
+			mockMvc.perform(put("/graph/config").contentType(MediaType.APPLICATION_JSON).content(GRAPH_CONFIG))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.maxQueryCount").value(3));
+		}
+
+		@Test
+		void dropsStoredAnswers() throws Exception {
+
+			mockMvc.perform(delete("/answers/all")).andExpect(status().isNoContent());
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package com.example.langraph4j_researcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * The context the benchmarks start: Spring AI's Ollama models are disabled and another chat model is used.
+ */
+@SpringBootTest(properties = {
+	"spring.ai.model.chat=none",
+	"spring.ai.model.embedding=none",
+	"spring.ai.ollama.base-url=http://ollama:11434"
+})
+class ModelsDisabledApplicationTests {
+
+	@Autowired
+	private OllamaApi ollamaApi;
+
+	@Test
+	void contextLoads() {
+		assertThat(ollamaApi).isNotNull();
+	}
+
+	@TestConfiguration
+	static class ChatModelConfiguration {
+
+		@Bean
+		ChatModel chatModel() {
+			return prompt -> new ChatResponse(List.of());
+		}
+	}
+}
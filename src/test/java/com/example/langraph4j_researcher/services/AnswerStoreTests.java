@@ -0,0 +1,139 @@
+package com.example.langraph4j_researcher.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.langraph4j_researcher.config.ResearchProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class AnswerStoreTests {
+
+	@TempDir
+	private Path answerDirectory;
+
+	private final ResearchProperties researchProperties = new ResearchProperties();
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@BeforeEach
+	void setUp() {
+		researchProperties.getAnswers().setDirectory(answerDirectory);
+		researchProperties.getAnswers().setFsync(false);
+	}
+
+	@Test
+	void concurrentRunsOfTheSameQuestionShareOneRun() throws Exception {
+		AnswerStore store = new AnswerStore(researchProperties, meterRegistry);
+		AtomicInteger runs = new AtomicInteger();
+		CountDownLatch researching = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		CompletableFuture<Optional<String>> first = CompletableFuture.supplyAsync(() ->
+			store.getOrResearch("Why is the sky blue?", () -> {
+				runs.incrementAndGet();
+				researching.countDown();
+				await(release);
+				return Optional.of("Rayleigh scattering.");
+			}));
+		assertThat(researching.await(5, TimeUnit.SECONDS)).isTrue();
+
+		CompletableFuture<Optional<String>> second = CompletableFuture.supplyAsync(() ->
+			store.getOrResearch("why is the  sky blue", () -> {
+				runs.incrementAndGet();
+				return Optional.of("Another run.");
+			}));
+		while (meterRegistry.counter(AnswerStore.REQUESTS, "outcome", AnswerStore.COALESCED).count() == 0) {
+			Thread.sleep(10);
+		}
+		release.countDown();
+
+		assertThat(first.get(5, TimeUnit.SECONDS)).contains("Rayleigh scattering.");
+		assertThat(second.get(5, TimeUnit.SECONDS)).contains("Rayleigh scattering.");
+		assertThat(runs).hasValue(1);
+		assertThat(store.getOrResearch("Why is the sky blue?", Optional::empty)).contains("Rayleigh scattering.");
+		assertThat(meterRegistry.counter(AnswerStore.REQUESTS, "outcome", AnswerStore.RESEARCHED).count()).isEqualTo(1);
+		assertThat(meterRegistry.counter(AnswerStore.REQUESTS, "outcome", AnswerStore.HIT).count()).isEqualTo(1);
+	}
+
+	@Test
+	void keepsAnswersAcrossRestartsUntilTheyAreInvalidated() throws IOException {
+		AnswerStore store = new AnswerStore(researchProperties, meterRegistry);
+		store.getOrResearch("Why is the sky blue?", () -> Optional.of("Rayleigh scattering."));
+		store.getOrResearch("Why are sunsets red?", () -> Optional.of("Longer path through the air."));
+		store.getOrResearch("What is a glory?", Optional::empty);
+		// A crash in the middle of an append leaves a torn record behind
+		Files.write(answerDirectory.resolve("answers.log"), new byte[] {0, 0, 1, 0, 42},
+			StandardOpenOption.APPEND);
+
+		AnswerStore restarted = new AnswerStore(researchProperties, meterRegistry);
+		assertThat(restarted.getOrResearch("Why is the sky blue?", Optional::empty)).contains("Rayleigh scattering.");
+		assertThat(restarted.getOrResearch("What is a glory?", Optional::empty)).isEmpty();
+		assertThat(restarted.invalidate("why are sunsets red?")).isTrue();
+		assertThat(restarted.invalidate("What is a halo?")).isFalse();
+
+		AnswerStore restartedAgain = new AnswerStore(researchProperties, meterRegistry);
+		assertThat(restartedAgain.getOrResearch("Why are sunsets red?", Optional::empty)).isEmpty();
+		assertThat(restartedAgain.getOrResearch("Why is the sky blue?", Optional::empty)).contains("Rayleigh scattering.");
+		restartedAgain.invalidateAll();
+
+		assertThat(new AnswerStore(researchProperties, meterRegistry).getOrResearch("Why is the sky blue?",
+			Optional::empty)).isEmpty();
+	}
+
+	@Test
+	void researchesAgainOnceTheAnswerExpired() {
+		researchProperties.getAnswers().setTtl(Duration.ofMillis(-1));
+		AnswerStore store = new AnswerStore(researchProperties, meterRegistry);
+		store.getOrResearch("Why is the sky blue?", () -> Optional.of("Rayleigh scattering."));
+
+		assertThat(store.getOrResearch("Why is the sky blue?", () -> Optional.of("Light scatters."))).contains("Light scatters.");
+		assertThat(new AnswerStore(researchProperties, meterRegistry).getOrResearch("Why is the sky blue?",
+			Optional::empty)).isEmpty();
+	}
+
+	@Test
+	void doesNotStoreAnAnswerOfARunThatStartedBeforeAnInvalidation() {
+		AnswerStore store = new AnswerStore(researchProperties, meterRegistry);
+		long startedAt = store.generation();
+		store.invalidateAll();
+
+		store.put("Why is the sky blue?", "Stale.", startedAt);
+		store.put("Why are sunsets red?", "Longer path through the air.", store.generation());
+
+		assertThat(store.getOrResearch("Why is the sky blue?", Optional::empty)).isEmpty();
+		assertThat(store.getOrResearch("Why are sunsets red?", Optional::empty)).contains("Longer path through the air.");
+	}
+
+	@Test
+	void invalidatingAnAnswerDoesNotDropTheAnswersOfRunsOfOtherQuestions() {
+		AnswerStore store = new AnswerStore(researchProperties, meterRegistry);
+		long startedAt = store.generation();
+		store.invalidate("Why are sunsets red?");
+
+		store.put("Why is the sky blue?", "Light scatters.", startedAt);
+		store.put("Why are sunsets red?", "Stale.", startedAt);
+
+		assertThat(store.getOrResearch("Why is the sky blue?", Optional::empty)).contains("Light scatters.");
+		assertThat(store.getOrResearch("Why are sunsets red?", Optional::empty)).isEmpty();
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
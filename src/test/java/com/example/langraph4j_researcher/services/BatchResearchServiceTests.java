@@ -0,0 +1,197 @@
+package com.example.langraph4j_researcher.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.langraph4j_researcher.config.ResearchProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+@SpringBootTest(properties = {
+	"spring.ai.model.chat=none",
+	"researcher.cache.enabled=false",
+	"researcher.answers.enabled=false",
+	"researcher.checkpoint.enabled=false",
+	"researcher.batch.directory=target/test-batches/${random.uuid}"
+})
+class BatchResearchServiceTests {
+
+	@Autowired
+	private BatchResearchService batchResearchService;
+
+	@Autowired
+	private ResearchProperties researchProperties;
+
+	@Autowired
+	private RecordingChatModel chatModel;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private ChatService chatService;
+
+	@Autowired
+	private ResearchJobScheduler researchJobScheduler;
+
+	@Test
+	void researchesWorkSharedByTheQuestionsOfABatchOnce() throws Exception {
+		String questions = """
+			{"id": "a", "query": "Why is the sky blue?"}
+			{"request_id": "b", "title": "Sunsets", "body": "Why are sunsets red?"}
+
+			{"id": "c", "query": "why is the  sky blue?"}
+			""";
+
+		BatchResearchService.BatchStatus submitted = batchResearchService.submit(
+			new ByteArrayInputStream(questions.getBytes(StandardCharsets.UTF_8)));
+		BatchResearchService.BatchStatus status = awaitCompletion(submitted.batchId());
+
+		assertThat(status.total()).isEqualTo(3);
+		assertThat(status.answered()).isEqualTo(3);
+		assertThat(status.deduplicated()).isEqualTo(1);
+		// Both distinct questions plan the same research query, which is researched once for the whole batch
+		assertThat(chatModel.prompts("Why is the sky blue?", "Generate a high-quality answer")).hasSize(1);
+		assertThat(chatModel.prompts("Why are sunsets red?", "Generate a high-quality answer")).hasSize(1);
+		assertThat(chatModel.prompts("light scattering", "Conduct targeted Searches")).hasSize(1);
+		assertThat(meterRegistry.counter(BatchResearchService.ITEMS, "outcome", "answered").count()).isEqualTo(3);
+
+		List<String> results = Files.readAllLines(batchResearchService.resultsFile(submitted.batchId()));
+		assertThat(results).hasSize(3)
+			.anySatisfy(result -> assertThat(result).contains("\"line\":1", "\"id\":\"a\"", "\"answer\":\"Light scatters.\""))
+			.anySatisfy(result -> assertThat(result).contains("\"line\":2", "\"id\":\"b\"", "Sunsets\\n\\nWhy are sunsets red?"))
+			.anySatisfy(result -> assertThat(result).contains("\"line\":4", "\"id\":\"c\"", "\"answer\":\"Light scatters.\""));
+	}
+
+	@Test
+	void resumesWithTheQuestionsThatHaveNoAnswerYet() throws Exception {
+		String batchId = "interrupted-batch";
+		Path directory = Files.createDirectories(researchProperties.getBatch().getDirectory().resolve(batchId));
+		Files.writeString(directory.resolve(BatchResearchService.INPUT), """
+			{"query": "What is a rainbow?"}
+			{"query": "What is a halo?"}
+			{"query": "What is a glory?"}
+			""");
+		Files.writeString(directory.resolve(BatchResearchService.RESULTS), """
+			{"line":1,"query":"What is a rainbow?","answer":"Refraction."}
+			{"line":2,"query":"What is a halo?","error":"Ollama is down"}
+			{"line":3,"query":"What is a glory
+			""");
+
+		assertThat(batchResearchService.status(batchId).state()).isEqualTo(BatchResearchService.BatchState.INTERRUPTED);
+		batchResearchService.resume(batchId);
+		BatchResearchService.BatchStatus status = awaitCompletion(batchId);
+
+		assertThat(status.answered()).isEqualTo(3);
+		assertThat(chatModel.prompts("What is a rainbow?", "Generate a high-quality answer")).isEmpty();
+		assertThat(chatModel.prompts("What is a halo?", "Generate a high-quality answer")).hasSize(1);
+		assertThat(chatModel.prompts("What is a glory?", "Generate a high-quality answer")).hasSize(1);
+	}
+
+	@Test
+	void writesTheResultsOfTheQuestionsInFlightWhenInterrupted() throws Exception {
+		BatchResearchService interruptedService = new BatchResearchService(chatService, researchJobScheduler, researchProperties,
+			meterRegistry);
+		researchProperties.getBatch().setConcurrency(1);
+		try {
+			BatchResearchService.BatchStatus submitted = interruptedService.submit(new ByteArrayInputStream("""
+				{"query": "Does the planning hang?"}
+				{"query": "Is this ever researched?"}
+				""".getBytes(StandardCharsets.UTF_8)));
+			assertThat(chatModel.hanging.await(5, TimeUnit.SECONDS)).isTrue();
+			// The question researched takes a slot of the scheduler interactive requests share
+			assertThat(researchJobScheduler.getRunningCount()).isEqualTo(1);
+
+			interruptedService.shutdown();
+			BatchResearchService.BatchStatus status = awaitCompletion(interruptedService, submitted.batchId());
+
+			assertThat(status.state()).isEqualTo(BatchResearchService.BatchState.INTERRUPTED);
+			assertThat(status.failed()).isEqualTo(1);
+			assertThat(Files.readAllLines(interruptedService.resultsFile(submitted.batchId())))
+				.singleElement().asString().contains("\"line\":1", "\"error\":");
+			assertThat(researchJobScheduler.getRunningCount()).isZero();
+		} finally {
+			researchProperties.getBatch().setConcurrency(0);
+		}
+	}
+
+	private BatchResearchService.BatchStatus awaitCompletion(String batchId) throws InterruptedException {
+		return awaitCompletion(batchResearchService, batchId);
+	}
+
+	private static BatchResearchService.BatchStatus awaitCompletion(BatchResearchService batchResearchService,
+		String batchId) throws InterruptedException {
+		for (int i = 0; i < 200; i++) {
+			BatchResearchService.BatchStatus status = batchResearchService.status(batchId);
+			if (status.state() != BatchResearchService.BatchState.RUNNING) {
+				return status;
+			}
+			Thread.sleep(50);
+		}
+		throw new AssertionError("Batch [" + batchId + "] did not complete");
+	}
+
+	@TestConfiguration
+	static class BatchResearchTestConfiguration {
+
+		@Bean
+		RecordingChatModel chatModel() {
+			return new RecordingChatModel();
+		}
+	}
+
+	static class RecordingChatModel implements ChatModel {
+
+		private final List<String> prompts = new CopyOnWriteArrayList<>();
+		// Counted down once planning a question that hangs started, the planning hangs until it is interrupted
+		private final CountDownLatch hanging = new CountDownLatch(1);
+
+		List<String> prompts(String... markers) {
+			return prompts.stream().filter(prompt -> List.of(markers).stream().allMatch(prompt::contains)).toList();
+		}
+
+		@Override
+		public ChatResponse call(Prompt prompt) {
+			prompts.add(prompt.getContents());
+			if (prompt.getContents().contains("Does the planning hang?")) {
+				hanging.countDown();
+				try {
+					new CountDownLatch(1).await();
+				} catch (InterruptedException e) {
+					throw new IllegalStateException("Planning interrupted", e);
+				}
+			}
+			return new ChatResponse(List.of(new Generation(new AssistantMessage(respond(prompt.getContents())))));
+		}
+
+		private static String respond(String prompt) {
+			if (prompt.contains("generate sophisticated and diverse web search queries")) {
+				return "<json>{\"rationale\": \"\", \"query\": [\"light scattering\"]}</json>";
+			}
+			if (prompt.contains("analyzing summaries about")) {
+				return "<json>{\"isSufficient\": true, \"knowledgeGap\": \"\", \"followUpQueries\": [], \"coverage\": \"\"}</json>";
+			}
+			if (prompt.contains("Generate a high-quality answer")) {
+				return "<json>{\"synthesisedResponse\": \"Light scatters.\"}</json>";
+			}
+			return "<json>{\"summary\": \"Light scatters off air molecules.\"}</json>";
+		}
+	}
+}
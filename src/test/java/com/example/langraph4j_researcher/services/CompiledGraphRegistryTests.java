@@ -0,0 +1,74 @@
+package com.example.langraph4j_researcher.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+import org.bsc.langgraph4j.CompiledGraph;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+@SpringBootTest(properties = {
+	"spring.ai.model.chat=none",
+	"researcher.cache.enabled=false",
+	"researcher.answers.enabled=false",
+	"researcher.checkpoint.enabled=false",
+	"researcher.graph.max-query-count=2",
+	"researcher.graph.max-research-node-execution-count=3"
+})
+class CompiledGraphRegistryTests {
+
+	private static final GraphConfig CONFIGURED = new GraphConfig(2, 3);
+
+	@Autowired
+	private CompiledGraphRegistry compiledGraphRegistry;
+
+	@AfterEach
+	void restoreConfiguredGraph() throws Exception {
+		compiledGraphRegistry.reload(CONFIGURED);
+	}
+
+	@Test
+	void sharesTheGraphCompiledAtStartupBetweenConcurrentRequests() {
+		CompiledGraph<State> compiled = compiledGraphRegistry.getGraph();
+
+		List<CompiledGraph<State>> graphs = IntStream.range(0, 8)
+			.mapToObj(request -> CompletableFuture.supplyAsync(compiledGraphRegistry::getGraph))
+			.map(CompletableFuture::join)
+			.toList();
+
+		assertThat(compiledGraphRegistry.getActiveConfig()).isEqualTo(CONFIGURED);
+		assertThat(graphs).allSatisfy(graph -> assertThat(graph).isSameAs(compiled));
+	}
+
+	@Test
+	void swapsTheGraphOnReloadAndKeepsItForTheActiveConfiguration() throws Exception {
+		CompiledGraph<State> compiled = compiledGraphRegistry.getGraph();
+
+		assertThat(compiledGraphRegistry.reload(CONFIGURED)).isEqualTo(CONFIGURED);
+		assertThat(compiledGraphRegistry.getGraph()).isSameAs(compiled);
+
+		GraphConfig reloaded = new GraphConfig(1, 2);
+		assertThat(compiledGraphRegistry.reload(reloaded)).isEqualTo(CONFIGURED);
+		assertThat(compiledGraphRegistry.getActiveConfig()).isEqualTo(reloaded);
+		assertThat(compiledGraphRegistry.getGraph()).isNotSameAs(compiled).isSameAs(compiledGraphRegistry.getGraph());
+	}
+
+	@TestConfiguration
+	static class GraphRegistryTestConfiguration {
+
+		@Bean
+		ChatModel chatModel() {
+			return prompt -> new ChatResponse(List.of(new Generation(new AssistantMessage(""))));
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package com.example.langraph4j_researcher.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.langraph4j_researcher.config.ResearchProperties;
+import com.example.langraph4j_researcher.utils.TextSimilarity;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ContextAssemblerTests {
+
+	private static final String QUERY = "Why is the sky blue?";
+
+	private final ResearchProperties researchProperties = new ResearchProperties();
+
+	@Test
+	void dropsNearIdenticalSummaries() {
+		ContextAssembler assembler = new ContextAssembler(researchProperties);
+
+		String context = assembler.assemble(QUERY, List.of(
+			"The sky is blue because air scatters short wavelengths of sunlight more than long ones.",
+			"Sunsets are red because sunlight travels through more air at low angles.",
+			"The sky is blue because air scatters the short wavelengths of sunlight more than long ones."));
+
+		assertThat(context.split(ContextAssembler.SEPARATOR)).containsExactly(
+			"The sky is blue because air scatters short wavelengths of sunlight more than long ones.",
+			"Sunsets are red because sunlight travels through more air at low angles.");
+	}
+
+	@Test
+	void skipsMissingSummaries() {
+		ContextAssembler assembler = new ContextAssembler(researchProperties);
+
+		String context = assembler.assemble(QUERY, Arrays.asList(
+			null,
+			"The sky is blue because air scatters short wavelengths of sunlight more than long ones.",
+			" "));
+
+		assertThat(context).isEqualTo("The sky is blue because air scatters short wavelengths of sunlight more than long ones.");
+	}
+
+	@Test
+	void keepsTheMostRelevantSummariesInResearchOrder() {
+		researchProperties.getContext().setTokenBudget(60);
+		ContextAssembler assembler = new ContextAssembler(researchProperties);
+
+		String first = "Oceans reflect the colour of the sky and absorb red light in deep water.";
+		String second = "Mars has a butterscotch sky because of fine iron oxide dust in its atmosphere.";
+		String third = "The sky is blue because nitrogen scatters blue light, an effect named after Rayleigh.";
+
+		assertThat(assembler.assemble(QUERY, List.of(first, second, third)).split(ContextAssembler.SEPARATOR))
+			.containsExactly(first, third);
+	}
+
+	@Test
+	void truncatesLongSummariesAtASentenceEnd() {
+		researchProperties.getContext().setMaxSummaryTokens(20);
+		ContextAssembler assembler = new ContextAssembler(researchProperties);
+
+		String context = assembler.assemble(QUERY, List.of(
+			"The sky is blue because of Rayleigh scattering. Shorter wavelengths scatter more strongly than longer "
+				+ "ones, so blue light reaches our eyes from every direction of the sky."));
+
+		assertThat(context).isEqualTo("The sky is blue because of Rayleigh scattering." + ContextAssembler.TRUNCATION_MARK);
+		assertThat(TextSimilarity.estimateTokens(context)).isLessThanOrEqualTo(20);
+	}
+}
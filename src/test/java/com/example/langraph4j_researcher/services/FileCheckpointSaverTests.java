@@ -0,0 +1,135 @@
+package com.example.langraph4j_researcher.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.langraph4j_researcher.config.ResearchProperties;
+import com.example.langraph4j_researcher.model.ResearchResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import org.bsc.langgraph4j.RunnableConfig;
+import org.bsc.langgraph4j.checkpoint.Checkpoint;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileCheckpointSaverTests {
+
+	private static final RunnableConfig RUN = RunnableConfig.builder().threadId("run-1").build();
+
+	@TempDir
+	Path directory;
+
+	private final ResearchProperties researchProperties = new ResearchProperties();
+
+	@BeforeEach
+	void configure() {
+		researchProperties.getCheckpoint().setDirectory(directory);
+		researchProperties.getCheckpoint().setFsync(false);
+	}
+
+	@Test
+	void restoresCheckpointsAfterRestart() throws Exception {
+		FileCheckpointSaver saver = new FileCheckpointSaver(researchProperties);
+		saver.put(RUN, checkpoint("generateQueryNode", "researchNode", 1));
+		saver.put(RUN, checkpoint("researchNode", "reflectionNode", 2));
+
+		FileCheckpointSaver restarted = new FileCheckpointSaver(researchProperties);
+
+		Checkpoint last = restarted.get(RUN).orElseThrow();
+		assertThat(last.getNodeId()).isEqualTo("researchNode");
+		assertThat(last.getNextNodeId()).isEqualTo("reflectionNode");
+		assertThat(last.getState()).containsEntry(State.RESEARCH_NODE_EXECUTION_COUNT, 2)
+			.containsEntry(State.RESEARCH_RESULTS, List.of(new ResearchResult("sky colour", "summary 2", 2)));
+		assertThat(restarted.list(RUN)).hasSize(2);
+	}
+
+	@Test
+	void discardsTornRecordAtTheEndOfTheLog() throws Exception {
+		FileCheckpointSaver saver = new FileCheckpointSaver(researchProperties);
+		saver.put(RUN, checkpoint("generateQueryNode", "researchNode", 1));
+		Path log = directory.resolve("run-1.cplog");
+		long validLength = Files.size(log);
+		Files.write(log, new byte[] {0, 0, 1, 0, 42, 42}, StandardOpenOption.APPEND);
+
+		FileCheckpointSaver restarted = new FileCheckpointSaver(researchProperties);
+
+		assertThat(restarted.get(RUN).orElseThrow().getNodeId()).isEqualTo("generateQueryNode");
+		assertThat(Files.size(log)).isEqualTo(validLength);
+	}
+
+	@Test
+	void compactsLogToMostRecentCheckpoints() throws Exception {
+		researchProperties.getCheckpoint().setCompactionThreshold(5);
+		researchProperties.getCheckpoint().setRetainedCheckpoints(2);
+		FileCheckpointSaver saver = new FileCheckpointSaver(researchProperties);
+		for (int i = 1; i <= 6; i++) {
+			saver.put(RUN, checkpoint("researchNode", "reflectionNode", i));
+		}
+
+		FileCheckpointSaver restarted = new FileCheckpointSaver(researchProperties);
+
+		assertThat(restarted.list(RUN))
+			.extracting(checkpoint -> checkpoint.getState().get(State.RESEARCH_NODE_EXECUTION_COUNT))
+			.containsExactly(6, 5);
+	}
+
+	@Test
+	void deletesLogOnceRunCompleted() throws Exception {
+		FileCheckpointSaver saver = new FileCheckpointSaver(researchProperties);
+		saver.put(RUN, checkpoint("finalAnswerNode", "__END__", 1));
+
+		saver.release(RUN);
+
+		assertThat(Files.exists(directory.resolve("run-1.cplog"))).isFalse();
+		assertThat(new FileCheckpointSaver(researchProperties).hasCheckpoints("run-1")).isFalse();
+	}
+
+	@Test
+	void keepsOnlyTheCheckpointsOfRunsInProgressInMemory() throws Exception {
+		FileCheckpointSaver saver = new FileCheckpointSaver(researchProperties);
+		saver.put(RUN, checkpoint("generateQueryNode", "researchNode", 1));
+
+		assertThat(saver.hasCheckpoints("unknown-run")).isFalse();
+		assertThat(saver.get(RunnableConfig.builder().threadId("unknown-run").build())).isEmpty();
+		assertThat(saver.threadsInMemory()).isEqualTo(1);
+
+		// A failed run is evicted and read back from its log when it is resumed
+		saver.evict("run-1");
+		assertThat(saver.threadsInMemory()).isZero();
+		assertThat(saver.hasCheckpoints("run-1")).isTrue();
+		assertThat(saver.get(RUN).orElseThrow().getNodeId()).isEqualTo("generateQueryNode");
+		assertThat(saver.threadsInMemory()).isEqualTo(1);
+
+		saver.release(RUN);
+		assertThat(saver.threadsInMemory()).isZero();
+	}
+
+	@Test
+	void namesTheLogOfAnUnsafeThreadIdAfterItsHash() throws Exception {
+		String longRunId = "run/" + "x".repeat(300);
+		RunnableConfig run = RunnableConfig.builder().threadId(longRunId).build();
+		FileCheckpointSaver saver = new FileCheckpointSaver(researchProperties);
+		saver.put(run, checkpoint("generateQueryNode", "researchNode", 1));
+
+		try (Stream<Path> logs = Files.list(directory)) {
+			assertThat(logs.toList()).singleElement()
+				.satisfies(log -> assertThat(log.getFileName().toString()).hasSize(1 + 64 + ".cplog".length()));
+		}
+		assertThat(new FileCheckpointSaver(researchProperties).hasCheckpoints(longRunId)).isTrue();
+	}
+
+	private static Checkpoint checkpoint(String nodeId, String nextNodeId, int round) {
+		return Checkpoint.builder()
+			.nodeId(nodeId)
+			.nextNodeId(nextNodeId)
+			.state(Map.of(
+				State.USER_QUERY, "Why is the sky blue?",
+				State.RESEARCH_RESULTS, List.of(new ResearchResult("sky colour", "summary " + round, round)),
+				State.RESEARCH_NODE_EXECUTION_COUNT, round))
+			.build();
+	}
+}
@@ -0,0 +1,93 @@
+package com.example.langraph4j_researcher.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.langraph4j_researcher.model.Passage;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+
+@SpringBootTest(properties = {
+	"spring.ai.model.chat=none",
+	"researcher.cache.enabled=false",
+	"researcher.answers.enabled=false",
+	"researcher.checkpoint.enabled=false",
+	"researcher.retrieval.top-k=1"
+})
+class GroundedResearchTests {
+
+	@Autowired
+	private ChatService chatService;
+
+	@Autowired
+	private RecordingChatModel chatModel;
+
+	@Autowired
+	private StubResearchSource researchSource;
+
+	@Test
+	void answersResearchQueriesFromTheRetrievedPassages() {
+		assertThat(chatService.research("Why is the sky blue?", "run-grounded")).isEqualTo("Rayleigh scattering.");
+
+		assertThat(researchSource.queries).containsExactly("sky colour");
+		List<String> researchPrompts = chatModel.prompts.stream()
+			.filter(prompt -> prompt.contains("Summarize what the passages below say about \"sky colour\""))
+			.toList();
+		assertThat(researchPrompts).singleElement().asString()
+			.contains("[physics.md]\nAir scatters blue light the most.")
+			.doesNotContain("Sunsets are red.")
+			.doesNotContain("Conduct targeted Searches");
+	}
+
+	@TestConfiguration
+	static class GroundedResearchTestConfiguration {
+
+		@Bean
+		RecordingChatModel chatModel() {
+			return new RecordingChatModel();
+		}
+
+		@Bean
+		@Primary
+		StubResearchSource stubResearchSource() {
+			return new StubResearchSource(Map.of("sky colour", List.of(
+				new Passage("physics.md", "Air scatters blue light the most.", 2.0),
+				new Passage("sunsets.md", "Sunsets are red.", 1.0))));
+		}
+	}
+
+	static class RecordingChatModel implements ChatModel {
+
+		private final List<String> prompts = new CopyOnWriteArrayList<>();
+
+		@Override
+		public ChatResponse call(Prompt prompt) {
+			prompts.add(prompt.getContents());
+			return new ChatResponse(List.of(new Generation(new AssistantMessage(respond(prompt.getContents())))));
+		}
+
+		private static String respond(String prompt) {
+			if (prompt.contains("generate sophisticated and diverse web search queries")) {
+				return "<json>{\"rationale\": \"\", \"query\": [\"sky colour\"]}</json>";
+			}
+			if (prompt.contains("analyzing summaries about")) {
+				return "<json>{\"isSufficient\": true, \"knowledgeGap\": \"\", \"followUpQueries\": [], \"coverage\": \"\"}</json>";
+			}
+			if (prompt.contains("Generate a high-quality answer")) {
+				return "<json>{\"synthesisedResponse\": \"Rayleigh scattering.\"}</json>";
+			}
+			return "<json>{\"summary\": \"Air scatters blue light the most [physics.md].\"}</json>";
+		}
+	}
+}
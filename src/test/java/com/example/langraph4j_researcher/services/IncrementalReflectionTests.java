@@ -0,0 +1,91 @@
+package com.example.langraph4j_researcher.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+@SpringBootTest(properties = {
+	"spring.ai.model.chat=none",
+	"researcher.cache.enabled=false",
+	"researcher.answers.enabled=false",
+	"researcher.checkpoint.enabled=false",
+	"researcher.reflection.incremental=true"
+})
+class IncrementalReflectionTests {
+
+	@Autowired
+	private ChatService chatService;
+
+	@Autowired
+	private RecordingChatModel chatModel;
+
+	@Test
+	void reflectsOnlyOnTheLatestResearchRound() {
+		assertThat(chatService.research("Why is the sky blue?", "run-incremental")).isEqualTo("Rayleigh scattering.");
+
+		List<String> reflectionPrompts = chatModel.prompts.stream()
+			.filter(prompt -> prompt.contains("analyzing summaries about"))
+			.toList();
+		assertThat(reflectionPrompts).hasSize(2);
+
+		assertThat(reflectionPrompts.get(0)).contains("Blue light scatters more.");
+		assertThat(reflectionPrompts.get(1))
+			.contains("Sunlight is scattered by air.", "Why sunsets are red is unknown.", "Sunsets are red at low angles.")
+			.doesNotContain("Blue light scatters more.");
+	}
+
+	@TestConfiguration
+	static class ReflectionTestConfiguration {
+
+		@Bean
+		RecordingChatModel chatModel() {
+			return new RecordingChatModel();
+		}
+	}
+
+	/**
+	 * Researches one query per round and asks for one follow-up query after the first round.
+	 */
+	static class RecordingChatModel implements ChatModel {
+
+		private final List<String> prompts = new CopyOnWriteArrayList<>();
+
+		@Override
+		public ChatResponse call(Prompt prompt) {
+			prompts.add(prompt.getContents());
+			return new ChatResponse(List.of(new Generation(new AssistantMessage(respond(prompt.getContents())))));
+		}
+
+		private static String respond(String prompt) {
+			if (prompt.contains("generate sophisticated and diverse web search queries")) {
+				return "<json>{\"rationale\": \"\", \"query\": [\"sky colour\"]}</json>";
+			}
+			if (prompt.contains("analyzing summaries about") && prompt.contains("None yet.")) {
+				return """
+					<json>{"isSufficient": false, "knowledgeGap": "Why sunsets are red is unknown.",
+					"followUpQueries": ["sunset colour"], "coverage": "Sunlight is scattered by air."}</json>""";
+			}
+			if (prompt.contains("analyzing summaries about")) {
+				return "<json>{\"isSufficient\": true, \"knowledgeGap\": \"\", \"followUpQueries\": [], \"coverage\": \"\"}</json>";
+			}
+			if (prompt.contains("Generate a high-quality answer")) {
+				return "<json>{\"synthesisedResponse\": \"Rayleigh scattering.\"}</json>";
+			}
+			if (prompt.contains("sunset colour")) {
+				return "<json>{\"summary\": \"Sunsets are red at low angles.\"}</json>";
+			}
+			return "<json>{\"summary\": \"Blue light scatters more.\"}</json>";
+		}
+	}
+}
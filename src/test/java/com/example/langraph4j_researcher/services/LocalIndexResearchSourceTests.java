@@ -0,0 +1,151 @@
+package com.example.langraph4j_researcher.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.langraph4j_researcher.config.ResearchProperties;
+import com.example.langraph4j_researcher.model.Passage;
+import com.example.langraph4j_researcher.utils.TextSimilarity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+class LocalIndexResearchSourceTests {
+
+	@TempDir
+	private Path directory;
+
+	private final ResearchProperties researchProperties = new ResearchProperties();
+
+	private Path corpus;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		corpus = Files.createDirectories(directory.resolve("corpus"));
+		researchProperties.getRetrieval().getLocal().setCorpusDirectory(corpus);
+		researchProperties.getRetrieval().getLocal().setIndexDirectory(directory.resolve("index"));
+		researchProperties.getRetrieval().getLocal().setMaxPassageTokens(25);
+
+		Files.writeString(corpus.resolve("sky.md"), """
+			# Sky
+
+			The sky is blue because air molecules scatter blue sunlight more than red sunlight.
+
+			At sunset the light crosses more air, so the sky turns red and orange.""");
+		Files.createDirectories(corpus.resolve("ocean"));
+		Files.writeString(corpus.resolve("ocean/colour.txt"), "Deep ocean water absorbs red light and looks dark blue.");
+	}
+
+	@Test
+	void retrievesTheMostRelevantPassagesFromTheIndexOnDisk() {
+		LocalIndexResearchSource source = source(null);
+
+		assertThat(source.ingest()).isEqualTo(new LocalIndexResearchSource.IngestionStats(2, 0, 3));
+
+		List<Passage> passages = source.retrieve("Why does the sky turn red at sunset?", 2);
+		assertThat(passages).extracting(Passage::text).first()
+			.isEqualTo("At sunset the light crosses more air, so the sky turns red and orange.");
+		assertThat(passages).extracting(Passage::source).containsOnly("sky.md");
+
+		// The index is opened from disk without ingesting again
+		LocalIndexResearchSource reopened = source(null);
+		assertThat(reopened.documentCount()).isEqualTo(2);
+		assertThat(reopened.retrieve("ocean water", 1)).extracting(Passage::source).containsExactly("ocean/colour.txt");
+		assertThat(reopened.ingest().changed()).isFalse();
+	}
+
+	@Test
+	void ingestsOnlyChangedDocumentsAndForgetsDeletedOnes() throws Exception {
+		LocalIndexResearchSource source = source(null);
+		source.ingest();
+
+		Path sky = corpus.resolve("sky.md");
+		Files.writeString(sky, "The sky on Mars is butterscotch because of iron oxide dust.");
+		Files.setLastModifiedTime(sky, FileTime.from(Instant.now().plusSeconds(60)));
+		Files.delete(corpus.resolve("ocean/colour.txt"));
+
+		assertThat(source.ingest()).isEqualTo(new LocalIndexResearchSource.IngestionStats(1, 1, 1));
+
+		assertThat(source.retrieve("sky sunset blue ocean", 5)).extracting(Passage::text)
+			.containsExactly("The sky on Mars is butterscotch because of iron oxide dust.");
+		// The first segment only held superseded and deleted documents
+		try (var files = Files.list(directory.resolve("index"))) {
+			assertThat(files.map(file -> file.getFileName().toString()))
+				.containsExactlyInAnyOrder("manifest.json", "segment-1.seg");
+		}
+	}
+
+	@Test
+	void retrievesPassagesWithoutCommonWordsByVectorSimilarity() {
+		researchProperties.getRetrieval().getLocal().setVectors(true);
+		LocalIndexResearchSource source = source(new SynonymEmbeddingModel());
+		source.ingest();
+
+		assertThat(source.retrieve("azure heavens", 1)).extracting(Passage::text)
+			.containsExactly("# Sky The sky is blue because air molecules scatter blue sunlight more than red sunlight.");
+	}
+
+	@Test
+	void splitsDocumentsIntoPassagesOfWholeParagraphs() {
+		List<String> passages = LocalIndexResearchSource.splitPassages("""
+			First short paragraph.
+
+			Second short one.
+
+			A third paragraph that is much longer than the limit of a single passage and is split by words.""", 10);
+
+		assertThat(passages).first().isEqualTo("First short paragraph. Second short one.");
+		assertThat(passages).allSatisfy(passage -> assertThat(TextSimilarity.estimateTokens(passage)).isLessThanOrEqualTo(10));
+		assertThat(String.join(" ", passages)).contains("split by words.");
+	}
+
+	private LocalIndexResearchSource source(EmbeddingModel embeddingModel) {
+		return new LocalIndexResearchSource(researchProperties, embeddingModel, new SimpleMeterRegistry());
+	}
+
+	/**
+	 * Embeds words into one dimension per group of synonyms, so synonyms are similar without sharing a word.
+	 */
+	static class SynonymEmbeddingModel implements EmbeddingModel {
+
+		private static final Map<String, Integer> DIMENSIONS = Map.of(
+			"blue", 0, "azure", 0,
+			"sky", 1, "heavens", 1,
+			"red", 2, "sunset", 2,
+			"ocean", 3, "water", 3);
+
+		@Override
+		public EmbeddingResponse call(EmbeddingRequest request) {
+			List<Embedding> embeddings = new ArrayList<>();
+			for (int i = 0; i < request.getInstructions().size(); i++) {
+				embeddings.add(new Embedding(vector(request.getInstructions().get(i)), i));
+			}
+			return new EmbeddingResponse(embeddings);
+		}
+
+		@Override
+		public float[] embed(Document document) {
+			return vector(document.getText());
+		}
+
+		private static float[] vector(String text) {
+			float[] vector = new float[5];
+			for (String word : TextSimilarity.words(text)) {
+				vector[DIMENSIONS.getOrDefault(word, 4)]++;
+			}
+			return vector;
+		}
+	}
+}
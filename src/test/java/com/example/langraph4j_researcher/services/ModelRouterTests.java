@@ -0,0 +1,140 @@
+package com.example.langraph4j_researcher.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.langraph4j_researcher.config.OllamaApiFactory;
+import com.example.langraph4j_researcher.config.ResearchProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+
+class ModelRouterTests {
+
+	private final ResearchProperties researchProperties = new ResearchProperties();
+
+	private OllamaService ollamaService;
+
+	@AfterEach
+	void shutdown() {
+		if (ollamaService != null) {
+			ollamaService.shutdown();
+		}
+	}
+
+	@Test
+	void nodesWithoutARouteUseTheDefaultModel() {
+		ModelRouter router = new ModelRouter(researchProperties);
+
+		assertThat(router.route(AgentBuilderService.RESEARCH_NODE)).containsExactly(ModelRouter.ModelChoice.DEFAULT);
+	}
+
+	@Test
+	void movesModelsOverTheLatencyBudgetToTheEnd() {
+		ResearchProperties.Routing.Route route = route("large", "small");
+		route.setLatencyBudget(Duration.ofSeconds(10));
+		researchProperties.getRouting().setLatencySmoothing(1.0);
+		ModelRouter router = new ModelRouter(researchProperties);
+
+		assertThat(router.route(AgentBuilderService.GENERATE_QUERY_NODE))
+			.extracting(ModelRouter.ModelChoice::model)
+			.containsExactly("large", "small");
+
+		ModelRouter.ModelChoice large = router.route(AgentBuilderService.GENERATE_QUERY_NODE).get(0);
+		router.recordLatency(AgentBuilderService.GENERATE_QUERY_NODE, large, Duration.ofSeconds(30));
+
+		assertThat(router.route(AgentBuilderService.GENERATE_QUERY_NODE))
+			.extracting(ModelRouter.ModelChoice::model)
+			.containsExactly("small", "large");
+		// The latency is measured per node, other nodes still prefer the large model
+		researchProperties.getRouting().getNodes().put(AgentBuilderService.FINAL_ANSWER_NODE, route);
+		assertThat(router.route(AgentBuilderService.FINAL_ANSWER_NODE))
+			.extracting(ModelRouter.ModelChoice::model)
+			.containsExactly("large", "small");
+	}
+
+	@Test
+	void probesAModelOverTheLatencyBudgetAgainAfterTheProbeInterval() throws InterruptedException {
+		route("large", "small").setLatencyBudget(Duration.ofSeconds(10));
+		researchProperties.getRouting().setLatencySmoothing(1.0);
+		researchProperties.getRouting().setProbeInterval(Duration.ofMillis(50));
+		ModelRouter router = new ModelRouter(researchProperties);
+		ModelRouter.ModelChoice large = router.route(AgentBuilderService.GENERATE_QUERY_NODE).get(0);
+		router.recordLatency(AgentBuilderService.GENERATE_QUERY_NODE, large, Duration.ofSeconds(30));
+
+		assertThat(router.route(AgentBuilderService.GENERATE_QUERY_NODE))
+			.extracting(ModelRouter.ModelChoice::model)
+			.containsExactly("small", "large");
+
+		Thread.sleep(60);
+		assertThat(router.route(AgentBuilderService.GENERATE_QUERY_NODE))
+			.extracting(ModelRouter.ModelChoice::model)
+			.containsExactly("large", "small");
+		// Only one call probes, the next ones keep away from the model until it was measured again
+		assertThat(router.route(AgentBuilderService.GENERATE_QUERY_NODE))
+			.extracting(ModelRouter.ModelChoice::model)
+			.containsExactly("small", "large");
+
+		router.recordLatency(AgentBuilderService.GENERATE_QUERY_NODE, large, Duration.ofSeconds(2));
+		assertThat(router.route(AgentBuilderService.GENERATE_QUERY_NODE))
+			.extracting(ModelRouter.ModelChoice::model)
+			.containsExactly("large", "small");
+	}
+
+	@Test
+	void fallsBackToTheNextModelWhenOneFails() {
+		route("missing", "small").setThink(false);
+		ModelRouter router = new ModelRouter(researchProperties);
+		RecordingChatModel chatModel = new RecordingChatModel();
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		ollamaService = new OllamaService(
+			new OllamaBackendPool(chatModel, researchProperties,
+				new OllamaApiFactory(RestClient.builder(), WebClient.builder()), ObservationRegistry.NOOP, meterRegistry),
+			researchProperties, new ResearchObservations(ObservationRegistry.NOOP, meterRegistry), router,
+			new HedgePolicy(researchProperties, meterRegistry));
+
+		assertThat(ollamaService.getLLMResponse(AgentBuilderService.GENERATE_QUERY_NODE, "Plan")).isEqualTo("small");
+
+		assertThat(chatModel.models).containsExactly("missing", "small");
+		assertThat(chatModel.prompts).containsOnly("Plan\n/no_think");
+		assertThat(router.averageLatency(AgentBuilderService.GENERATE_QUERY_NODE, "small")).isNotNull();
+		assertThat(router.averageLatency(AgentBuilderService.GENERATE_QUERY_NODE, "missing")).isNull();
+	}
+
+	private ResearchProperties.Routing.Route route(String... models) {
+		ResearchProperties.Routing.Route route = new ResearchProperties.Routing.Route();
+		route.setModels(List.of(models));
+		researchProperties.getRouting().getNodes().put(AgentBuilderService.GENERATE_QUERY_NODE, route);
+		return route;
+	}
+
+	/**
+	 * Answers with the name of the model it was called with, as if the model "missing" was not pulled.
+	 */
+	static class RecordingChatModel implements ChatModel {
+
+		private final List<String> models = new CopyOnWriteArrayList<>();
+		private final List<String> prompts = new CopyOnWriteArrayList<>();
+
+		@Override
+		public ChatResponse call(Prompt prompt) {
+			String model = prompt.getOptions().getModel();
+			models.add(model);
+			prompts.add(prompt.getContents());
+			if ("missing".equals(model)) {
+				throw new IllegalStateException("model 'missing' not found");
+			}
+			return new ChatResponse(List.of(new Generation(new AssistantMessage(model))));
+		}
+	}
+}
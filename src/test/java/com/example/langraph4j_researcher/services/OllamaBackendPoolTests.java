@@ -0,0 +1,239 @@
+package com.example.langraph4j_researcher.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.langraph4j_researcher.config.OllamaApiFactory;
+import com.example.langraph4j_researcher.config.ResearchProperties;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+
+class OllamaBackendPoolTests {
+
+	private static final String MODEL = "qwen3:1.7b";
+
+	private final ResearchProperties researchProperties = new ResearchProperties();
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final List<StubOllama> stubs = new ArrayList<>();
+
+	private OllamaBackendPool backendPool;
+
+	private OllamaService ollamaService;
+
+	@AfterEach
+	void shutdown() {
+		if (ollamaService != null) {
+			ollamaService.shutdown();
+		}
+		if (backendPool != null) {
+			backendPool.shutdown();
+		}
+		stubs.forEach(stub -> stub.server.stop(0));
+	}
+
+	@Test
+	void spreadsCallsOverTheBackendsWithTheFewestOutstandingCalls() {
+		StubOllama first = stub("first", MODEL);
+		StubOllama second = stub("second", MODEL);
+		first.delayMillis = 300;
+		second.delayMillis = 300;
+		start();
+
+		List<CompletableFuture<String>> responses = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			responses.add(ollamaService.getLLMResponseAsync(AgentBuilderService.RESEARCH_NODE, "Research"));
+		}
+
+		assertThat(responses).extracting(CompletableFuture::join).containsOnly("first", "second");
+		assertThat(first.chatCalls).hasValue(2);
+		assertThat(second.chatCalls).hasValue(2);
+	}
+
+	@Test
+	void prefersBackendsThatHaveTheModelLoaded() {
+		StubOllama cold = stub("cold", "llama3:latest");
+		StubOllama warm = stub("warm", MODEL);
+		start();
+
+		for (int i = 0; i < 3; i++) {
+			assertThat(ollamaService.getLLMResponse(AgentBuilderService.RESEARCH_NODE, "Research")).isEqualTo("warm");
+		}
+		assertThat(cold.chatCalls).hasValue(0);
+	}
+
+	@Test
+	void takesAFailingBackendOutOfRotation() {
+		StubOllama failing = stub("failing", MODEL);
+		StubOllama healthy = stub("healthy", MODEL);
+		failing.failing = true;
+		researchProperties.getOllama().setFailureThreshold(2);
+		start();
+
+		for (int i = 0; i < 6; i++) {
+			// Calls the failing backend fails are retried on the healthy one
+			assertThat(ollamaService.getLLMResponse(AgentBuilderService.RESEARCH_NODE, "Research")).isEqualTo("healthy");
+		}
+		assertThat(failing.chatCalls.get()).isLessThanOrEqualTo(2);
+		assertThat(meterRegistry.get(OllamaBackendPool.AVAILABLE).tag("backend", failing.name()).gauge().value())
+			.isZero();
+	}
+
+	@Test
+	void keepsCheckingTheHealthOfTheOtherBackendsWhenACheckCannotBeSent() {
+		ResearchProperties.Ollama.Backend unsupported = new ResearchProperties.Ollama.Backend();
+		// The health check client cannot send requests to this scheme
+		unsupported.setUrl("ftp://127.0.0.1:21");
+		researchProperties.getOllama().getBackends().add(unsupported);
+		StubOllama healthy = stub("healthy", MODEL);
+		researchProperties.getOllama().setFailureThreshold(2);
+		start();
+
+		backendPool.checkHealth();
+
+		assertThat(meterRegistry.get(OllamaBackendPool.AVAILABLE).tag("backend", "127.0.0.1:21").gauge().value())
+			.isZero();
+		assertThat(meterRegistry.get(OllamaBackendPool.AVAILABLE).tag("backend", healthy.name()).gauge().value())
+			.isOne();
+		assertThat(ollamaService.getLLMResponse(AgentBuilderService.RESEARCH_NODE, "Research")).isEqualTo("healthy");
+	}
+
+	@Test
+	void hedgesCallsThatAreSlowerThanUsual() {
+		StubOllama slow = stub("slow", MODEL);
+		stub("fast", "llama3:latest");
+		ResearchProperties.Ollama.Hedging hedging = researchProperties.getOllama().getHedging();
+		hedging.setEnabled(true);
+		hedging.setMinSamples(5);
+		start();
+
+		// The backend with the model loaded answers quickly at first
+		for (int i = 0; i < 5; i++) {
+			assertThat(ollamaService.getLLMResponse(AgentBuilderService.REFLECTION_NODE, "Reflect")).isEqualTo("slow");
+		}
+		slow.delayMillis = 3000;
+
+		long startNanos = System.nanoTime();
+		assertThat(ollamaService.getLLMResponse(AgentBuilderService.REFLECTION_NODE, "Reflect")).isEqualTo("fast");
+
+		assertThat(Duration.ofNanos(System.nanoTime() - startNanos)).isLessThan(Duration.ofSeconds(2));
+		assertThat(meterRegistry.counter(HedgePolicy.HEDGES, "winner", "hedge").count()).isEqualTo(1);
+	}
+
+	private StubOllama stub(String answer, String loadedModel) {
+		StubOllama stub = new StubOllama(answer, loadedModel);
+		stubs.add(stub);
+		ResearchProperties.Ollama.Backend backend = new ResearchProperties.Ollama.Backend();
+		backend.setUrl("http://" + stub.name());
+		backend.setMaxInFlight(2);
+		researchProperties.getOllama().getBackends().add(backend);
+		return stub;
+	}
+
+	private void start() {
+		researchProperties.getOllama().setHealthCheckInterval(Duration.ofHours(1));
+		backendPool = new OllamaBackendPool(new DefaultOptionsChatModel(), researchProperties,
+			new OllamaApiFactory(RestClient.builder(), WebClient.builder()), ObservationRegistry.NOOP, meterRegistry);
+		backendPool.checkHealth();
+		ollamaService = new OllamaService(backendPool, researchProperties,
+			new ResearchObservations(ObservationRegistry.NOOP, meterRegistry), new ModelRouter(researchProperties),
+			new HedgePolicy(researchProperties, meterRegistry));
+	}
+
+	/**
+	 * Ollama HTTP API answering chat requests with a fixed text and reporting a single loaded model.
+	 */
+	static class StubOllama {
+
+		private final HttpServer server;
+		private final String answer;
+		private final String loadedModel;
+		private final AtomicInteger chatCalls = new AtomicInteger();
+		private volatile long delayMillis;
+		private volatile boolean failing;
+
+		StubOllama(String answer, String loadedModel) {
+			this.answer = answer;
+			this.loadedModel = loadedModel;
+			try {
+				this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+			server.createContext("/api/chat", this::chat);
+			server.createContext("/api/ps", exchange -> respond(exchange, 200,
+				"{\"models\": [{\"name\": \"" + loadedModel + "\", \"model\": \"" + loadedModel + "\"}]}"));
+			server.start();
+		}
+
+		String name() {
+			return "127.0.0.1:" + server.getAddress().getPort();
+		}
+
+		private void chat(HttpExchange exchange) throws IOException {
+			chatCalls.incrementAndGet();
+			exchange.getRequestBody().readAllBytes();
+			if (failing) {
+				respond(exchange, 500, "{\"error\": \"out of memory\"}");
+				return;
+			}
+			try {
+				Thread.sleep(delayMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			respond(exchange, 200, """
+				{"model": "%s", "created_at": "2025-01-01T00:00:00Z",
+				"message": {"role": "assistant", "content": "%s"}, "done_reason": "stop", "done": true,
+				"total_duration": 1000, "load_duration": 0, "prompt_eval_count": 3, "prompt_eval_duration": 100,
+				"eval_count": 1, "eval_duration": 100}
+				""".formatted(MODEL, answer));
+		}
+
+		private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+			byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			exchange.sendResponseHeaders(status, bytes.length);
+			try (var out = exchange.getResponseBody()) {
+				out.write(bytes);
+			}
+		}
+	}
+
+	/**
+	 * Stands in for the auto-configured chat model, which only provides the default options of the backends.
+	 */
+	static class DefaultOptionsChatModel implements ChatModel {
+
+		@Override
+		public ChatResponse call(Prompt prompt) {
+			throw new UnsupportedOperationException("Calls go to the configured backends");
+		}
+
+		@Override
+		public ChatOptions getDefaultOptions() {
+			return OllamaOptions.builder().model(MODEL).build();
+		}
+	}
+}
@@ -0,0 +1,176 @@
+package com.example.langraph4j_researcher.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.langraph4j_researcher.config.OllamaApiFactory;
+import com.example.langraph4j_researcher.config.ResearchProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+class OllamaServiceTests {
+
+	private static final String NODE = AgentBuilderService.REFLECTION_NODE;
+
+	private final ResearchProperties researchProperties = new ResearchProperties();
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final BlockingChatModel chatModel = new BlockingChatModel();
+
+	private OllamaService ollamaService;
+
+	@BeforeEach
+	void setUp() {
+		researchProperties.getOllama().setMaxInFlight(1);
+		researchProperties.getOllama().setMaxQueued(1);
+		researchProperties.getOllama().setAdmissionTimeout(Duration.ofSeconds(5));
+	}
+
+	@AfterEach
+	void tearDown() {
+		chatModel.release.countDown();
+		ollamaService.shutdown();
+	}
+
+	@Test
+	void queuesCallsBeyondTheInFlightLimitAndRejectsThoseTheQueueHasNoRoomFor() throws Exception {
+		start();
+		CompletableFuture<String> first = callAsync();
+		assertThat(chatModel.calling.await(5, TimeUnit.SECONDS)).isTrue();
+		CompletableFuture<String> queued = new CompletableFuture<>();
+		Thread queuedCall = Thread.ofPlatform().start(() -> queued.complete(ollamaService.getLLMResponse(NODE, "Reflect")));
+		awaitWaiting(queuedCall);
+
+		assertThatThrownBy(() -> ollamaService.getLLMResponse(NODE, "Reflect"))
+			.isInstanceOf(OllamaSaturatedException.class);
+		assertThat(ollamaService.getLLMResponseAsync(NODE, "Reflect")).isCompletedExceptionally();
+		assertThat(chatModel.calls).hasValue(1);
+
+		chatModel.release.countDown();
+		assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("Answer");
+		assertThat(queued.get(5, TimeUnit.SECONDS)).isEqualTo("Answer");
+		assertThat(chatModel.calls).hasValue(2);
+	}
+
+	@Test
+	void rejectsQueuedCallsThatGetNoSlotWithinTheAdmissionTimeout() throws Exception {
+		researchProperties.getOllama().setAdmissionTimeout(Duration.ofMillis(100));
+		start();
+		CompletableFuture<String> first = callAsync();
+		assertThat(chatModel.calling.await(5, TimeUnit.SECONDS)).isTrue();
+
+		assertThatThrownBy(() -> ollamaService.getLLMResponse(NODE, "Reflect"))
+			.isInstanceOf(OllamaSaturatedException.class);
+
+		chatModel.release.countDown();
+		assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("Answer");
+	}
+
+	@Test
+	void releasesTheSlotOfAFailedCall() {
+		researchProperties.getOllama().setAdmissionTimeout(Duration.ofMillis(100));
+		start();
+		chatModel.release.countDown();
+		chatModel.failing = true;
+
+		for (int i = 0; i < 3; i++) {
+			assertThatThrownBy(() -> ollamaService.getLLMResponse(NODE, "Reflect"))
+				.hasMessage("Ollama failed");
+			assertThatThrownBy(() -> ollamaService.streamLLMResponse(NODE, "Reflect").collectList().block())
+				.hasMessage("Ollama failed");
+		}
+
+		chatModel.failing = false;
+		assertThat(ollamaService.getLLMResponse(NODE, "Reflect")).isEqualTo("Answer");
+		assertThat(ollamaService.streamLLMResponse(NODE, "Reflect").collectList().block()).containsExactly("Answer");
+	}
+
+	@Test
+	void failsCallsTheBackendAnsweredWithoutAResponse() {
+		start();
+		chatModel.release.countDown();
+		chatModel.empty = true;
+
+		assertThatThrownBy(() -> ollamaService.getLLMResponse(NODE, "Reflect"))
+			.isInstanceOf(IllegalStateException.class)
+			.hasMessageContaining("returned an empty response");
+	}
+
+	private void start() {
+		ollamaService = new OllamaService(
+			new OllamaBackendPool(chatModel, researchProperties,
+				new OllamaApiFactory(RestClient.builder(), WebClient.builder()), ObservationRegistry.NOOP, meterRegistry),
+			researchProperties, new ResearchObservations(ObservationRegistry.NOOP, meterRegistry),
+			new ModelRouter(researchProperties), new HedgePolicy(researchProperties, meterRegistry));
+	}
+
+	private CompletableFuture<String> callAsync() {
+		return CompletableFuture.supplyAsync(() -> ollamaService.getLLMResponse(NODE, "Reflect"));
+	}
+
+	/**
+	 * Waits until the thread waits for an in-flight slot.
+	 */
+	private static void awaitWaiting(Thread thread) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (thread.getState() != Thread.State.TIMED_WAITING) {
+			assertThat(System.nanoTime()).isLessThan(deadline);
+			Thread.sleep(10);
+		}
+	}
+
+	/**
+	 * Chat model whose calls block until released.
+	 */
+	static class BlockingChatModel implements ChatModel {
+
+		private final CountDownLatch calling = new CountDownLatch(1);
+		private final CountDownLatch release = new CountDownLatch(1);
+		private final AtomicInteger calls = new AtomicInteger();
+		private volatile boolean failing;
+		private volatile boolean empty;
+
+		@Override
+		public ChatResponse call(Prompt prompt) {
+			calls.incrementAndGet();
+			calling.countDown();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (failing) {
+				throw new IllegalStateException("Ollama failed");
+			}
+			if (empty) {
+				return new ChatResponse(List.of());
+			}
+			return new ChatResponse(List.of(new Generation(new AssistantMessage("Answer"))));
+		}
+
+		@Override
+		public Flux<ChatResponse> stream(Prompt prompt) {
+			return failing
+				? Flux.error(new IllegalStateException("Ollama failed"))
+				: Flux.just(new ChatResponse(List.of(new Generation(new AssistantMessage("Answer")))));
+		}
+	}
+}
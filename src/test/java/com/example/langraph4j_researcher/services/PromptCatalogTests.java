@@ -0,0 +1,73 @@
+package com.example.langraph4j_researcher.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalStateException;
+
+import com.example.langraph4j_researcher.config.ResearchProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PromptCatalogTests {
+
+	@TempDir
+	private Path promptDirectory;
+
+	private final ResearchProperties researchProperties = new ResearchProperties();
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void fillsInTheCurrentDateAndTheEscapedBracesOfTheBuiltInPrompts() {
+		PromptCatalog catalog = catalog();
+
+		String prompt = catalog.render(PromptCatalog.GENERATE_QUERY, "run-1",
+			Map.of("max_queries", 2, "user_question", "Why is the sky blue?"));
+
+		assertThat(prompt)
+			.contains("The current date is " + LocalDate.now() + ".")
+			.contains("Don't produce more than 2 queries.")
+			.endsWith("Context: Why is the sky blue?")
+			.doesNotContain("{{", "}}", "{current_date}");
+		assertThat(meterRegistry.get(PromptCatalog.TOKENS).tag("prompt", PromptCatalog.GENERATE_QUERY)
+			.tag("version", PromptCatalog.BUILT_IN_VERSION).summary().count()).isEqualTo(1);
+	}
+
+	@Test
+	void splitsRunsBetweenVersionsByWeightAndKeepsEachRunOnOneVersion() throws IOException {
+		Files.createDirectories(promptDirectory.resolve(PromptCatalog.FINAL_ANSWER));
+		Files.writeString(promptDirectory.resolve(PromptCatalog.FINAL_ANSWER).resolve("v2.txt"),
+			"Answer {user_question} briefly from:\n{summaries}");
+		researchProperties.getPrompts().getVariants().put(PromptCatalog.FINAL_ANSWER, Map.of("v1", 1, "v2", 1));
+		PromptCatalog catalog = catalog();
+
+		long v2Runs = IntStream.range(0, 1000)
+			.filter(run -> catalog.selectVersion(PromptCatalog.FINAL_ANSWER, "run-" + run).equals("v2"))
+			.count();
+		assertThat(v2Runs).isBetween(400L, 600L);
+
+		String first = catalog.render(PromptCatalog.FINAL_ANSWER, "run-7", Map.of("user_question", "Why?", "summaries", "S"));
+		String second = catalog.render(PromptCatalog.FINAL_ANSWER, "run-7", Map.of("user_question", "Why?", "summaries", "S"));
+		assertThat(second).isEqualTo(first);
+	}
+
+	@Test
+	void rejectsVersionsWithParametersThePromptDoesNotHave() throws IOException {
+		Files.createDirectories(promptDirectory.resolve(PromptCatalog.REFLECTION));
+		Files.writeString(promptDirectory.resolve(PromptCatalog.REFLECTION).resolve("v2.txt"),
+			"Reflect on {summaries} for {audience}");
+
+		assertThatIllegalStateException().isThrownBy(this::catalog).withMessageContaining("audience");
+	}
+
+	private PromptCatalog catalog() {
+		researchProperties.getPrompts().setDirectory(promptDirectory);
+		return new PromptCatalog(researchProperties, meterRegistry);
+	}
+}
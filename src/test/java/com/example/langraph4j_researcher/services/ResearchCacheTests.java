@@ -0,0 +1,118 @@
+package com.example.langraph4j_researcher.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.langraph4j_researcher.config.ResearchProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+class ResearchCacheTests {
+
+	private final ResearchProperties researchProperties = new ResearchProperties();
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final List<String> researched = new CopyOnWriteArrayList<>();
+
+	private final Function<String, String> research = query -> {
+		researched.add(query);
+		return "Summary of " + query;
+	};
+
+	@Test
+	void normalisesCaseWhitespaceAndTrailingPunctuation() {
+		assertThat(ResearchCache.normalise("  Why is the\tSky   BLUE?! ")).isEqualTo("why is the sky blue");
+		assertThat(ResearchCache.normalise("C++ vs. C#")).isEqualTo("c++ vs. c");
+	}
+
+	@Test
+	void answersNormalisedQueriesFromTheCache() {
+		ResearchCache cache = cache(null);
+
+		assertThat(cache.getOrResearch("Sky colour?", research)).isEqualTo("Summary of Sky colour?");
+		assertThat(cache.getOrResearch("sky  colour", research)).isEqualTo("Summary of Sky colour?");
+
+		assertThat(researched).containsExactly("Sky colour?");
+		assertThat(meterRegistry.get("cache.gets").tag("cache", "researchSummaries").tag("result", "hit")
+			.functionCounter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void fallsBackToTheSummaryOfASimilarQuery() {
+		researchProperties.getCache().getSemantic().setEnabled(true);
+		ResearchCache cache = cache(new LocalIndexResearchSourceTests.SynonymEmbeddingModel());
+
+		cache.getOrResearch("blue sky colour", research);
+
+		assertThat(cache.getOrResearch("azure heavens colour", research)).isEqualTo("Summary of blue sky colour");
+		assertThat(cache.getOrResearch("red sunset", research)).isEqualTo("Summary of red sunset");
+		assertThat(researched).containsExactly("blue sky colour", "red sunset");
+		assertThat(meterRegistry.get("research.cache.semantic.hits").counter().count()).isEqualTo(1);
+	}
+
+	@Test
+	void researchesAgainOnceTheSummaryExpiredOrWasInvalidated() throws InterruptedException {
+		researchProperties.getCache().setTtl(Duration.ofMillis(50));
+		ResearchCache cache = cache(null);
+
+		cache.getOrResearch("sky colour", research);
+		Thread.sleep(100);
+		cache.getOrResearch("sky colour", research);
+		assertThat(researched).hasSize(2);
+
+		researchProperties.getCache().setTtl(Duration.ofHours(1));
+		ResearchCache longLived = cache(null);
+		longLived.getOrResearch("sea colour", research);
+		longLived.invalidateAll();
+		longLived.getOrResearch("sea colour", research);
+		assertThat(researched).hasSize(4);
+	}
+
+	@Test
+	void researchesAQueryOnceWhileOtherQueriesGoAhead() throws Exception {
+		ResearchCache cache = cache(null);
+		CountDownLatch researching = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> cache.getOrResearch("slow query", query -> {
+			researching.countDown();
+			await(release);
+			return research.apply(query);
+		}));
+		assertThat(researching.await(5, TimeUnit.SECONDS)).isTrue();
+		CompletableFuture<String> second = CompletableFuture.supplyAsync(() -> cache.getOrResearch("slow query", research));
+
+		// Not held up by the research in progress
+		assertThat(cache.getOrResearch("fast query", research)).isEqualTo("Summary of fast query");
+		release.countDown();
+
+		assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo("Summary of slow query");
+		assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo("Summary of slow query");
+		assertThat(researched).containsExactlyInAnyOrder("fast query", "slow query");
+	}
+
+	private ResearchCache cache(EmbeddingModel embeddingModel) {
+		StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+		if (embeddingModel != null) {
+			beanFactory.addBean("embeddingModel", embeddingModel);
+		}
+		return new ResearchCache(researchProperties, beanFactory.getBeanProvider(EmbeddingModel.class), meterRegistry);
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package com.example.langraph4j_researcher.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.langraph4j_researcher.config.ResearchProperties;
+import com.example.langraph4j_researcher.model.ReflectionVerdict;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+class ResearchDepthControllerTests {
+
+	private static final GraphConfig GRAPH_CONFIG = new GraphConfig(2, 3);
+
+	private static final ReflectionVerdict INSUFFICIENT =
+		new ReflectionVerdict(false, "Why sunsets are red is unknown.", List.of("sunset colour"), "");
+
+	private final ResearchProperties researchProperties = new ResearchProperties();
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void stopsWhenARoundAddsLittleNewInformation() {
+		NoveltyEstimator noveltyEstimator = new NoveltyEstimator(researchProperties,
+			new StaticListableBeanFactory().getBeanProvider(EmbeddingModel.class));
+		ResearchDepthController controller = new ResearchDepthController(researchProperties, meterRegistry);
+
+		List<String> earlier = List.of("The sky is blue because air scatters short wavelengths of sunlight.");
+		double repeated = noveltyEstimator.novelty(earlier,
+			List.of("The sky is blue because the air scatters short wavelengths of sunlight."));
+		double novel = noveltyEstimator.novelty(earlier,
+			List.of("Sunsets are red because sunlight crosses more atmosphere at low angles."));
+
+		assertThat(repeated).isLessThan(researchProperties.getDepth().getMinNovelty());
+		assertThat(novel).isGreaterThan(researchProperties.getDepth().getWidenNovelty());
+		assertThat(controller.decide(INSUFFICIENT, 2, repeated, GRAPH_CONFIG, null).reason()).isEqualTo("low-novelty");
+		assertThat(controller.decide(INSUFFICIENT, 2, novel, GRAPH_CONFIG, null).continueResearch()).isTrue();
+		assertThat(meterRegistry.counter(ResearchDepthController.DECISIONS, "reason", "low-novelty").count()).isEqualTo(1);
+	}
+
+	@Test
+	void widensTheSearchWhileRoundsStillFindNewInformation() {
+		ResearchDepthController controller = new ResearchDepthController(researchProperties, meterRegistry);
+
+		assertThat(controller.decide(INSUFFICIENT, 3, 0.9, GRAPH_CONFIG, null).reason()).isEqualTo("widen");
+		assertThat(controller.decide(INSUFFICIENT, 3, 0.4, GRAPH_CONFIG, null).reason()).isEqualTo("max-rounds");
+		assertThat(controller.decide(INSUFFICIENT, 4, 0.9, GRAPH_CONFIG, null).reason()).isEqualTo("max-rounds");
+
+		researchProperties.getDepth().setAdaptive(false);
+		assertThat(controller.decide(INSUFFICIENT, 3, 0.9, GRAPH_CONFIG, null).reason()).isEqualTo("max-rounds");
+	}
+
+	@Test
+	void stopsWhenAnotherRoundWouldExceedTheLatencyBudget() {
+		researchProperties.getDepth().setRunLatencyBudget(Duration.ofMinutes(2));
+		ResearchDepthController controller = new ResearchDepthController(researchProperties, meterRegistry);
+
+		assertThat(controller.decide(INSUFFICIENT, 1, 1.0, GRAPH_CONFIG, Duration.ofSeconds(30)).continueResearch())
+			.isTrue();
+		assertThat(controller.decide(INSUFFICIENT, 1, 1.0, GRAPH_CONFIG, Duration.ofSeconds(50)).reason())
+			.isEqualTo("latency-budget");
+		assertThat(controller.decide(new ReflectionVerdict(true, "", List.of(), ""), 1, 1.0, GRAPH_CONFIG, null).reason())
+			.isEqualTo("sufficient");
+	}
+}
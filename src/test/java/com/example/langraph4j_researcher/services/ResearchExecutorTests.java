@@ -0,0 +1,102 @@
+package com.example.langraph4j_researcher.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.langraph4j_researcher.config.ResearchProperties;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ResearchExecutorTests {
+
+	private final ResearchProperties researchProperties = new ResearchProperties();
+
+	private ResearchExecutor researchExecutor;
+
+	@AfterEach
+	void shutdown() {
+		researchExecutor.shutdown();
+	}
+
+	@Test
+	void keepsQueryOrderAndSkipsFailedQueries() {
+		researchExecutor = new ResearchExecutor(researchProperties);
+
+		List<String> results = researchExecutor.executeAll(List.of("slow", "failing", "fast"), query -> {
+			if (query.equals("failing")) {
+				throw new IllegalStateException("LLM unavailable");
+			}
+			sleep(query.equals("slow") ? 200 : 0);
+			return query + " summary";
+		});
+
+		assertThat(results).containsExactly("slow summary", "fast summary");
+	}
+
+	@Test
+	void abandonsQueriesThatTimeOut() {
+		researchProperties.getResearch().setQueryTimeout(Duration.ofMillis(100));
+		researchExecutor = new ResearchExecutor(researchProperties);
+
+		List<String> results = researchExecutor.executeAll(List.of("hanging", "fast"), query -> {
+			sleep(query.equals("hanging") ? 10_000 : 0);
+			return query + " summary";
+		});
+
+		assertThat(results).containsExactly("fast summary");
+	}
+
+	@Test
+	void keepsTheGlobalPermitOfATimedOutQueryUntilItsCallEnds() {
+		researchProperties.getResearch().setQueryTimeout(Duration.ofMillis(100));
+		researchProperties.getResearch().setGlobalConcurrency(1);
+		researchExecutor = new ResearchExecutor(researchProperties);
+		AtomicBoolean hangingCallEnded = new AtomicBoolean();
+
+		// Like a blocking LLM call, the hanging query does not stop when it is interrupted
+		researchExecutor.executeAll(List.of("hanging"), query -> {
+			long end = System.nanoTime() + Duration.ofMillis(500).toNanos();
+			while (System.nanoTime() < end) {
+				try {
+					Thread.sleep(10);
+				} catch (InterruptedException e) {
+					// Ignored, as by a blocking socket read
+				}
+			}
+			hangingCallEnded.set(true);
+			return query;
+		});
+		List<Boolean> results = researchExecutor.executeAll(List.of("next"), query -> hangingCallEnded.get());
+
+		assertThat(results).containsExactly(true);
+	}
+
+	@Test
+	void limitsConcurrencyPerRequest() {
+		researchProperties.getResearch().setPerRequestConcurrency(2);
+		researchExecutor = new ResearchExecutor(researchProperties);
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+
+		researchExecutor.executeAll(List.of("a", "b", "c", "d", "e"), query -> {
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			sleep(50);
+			running.decrementAndGet();
+			return query;
+		});
+
+		assertThat(maxRunning.get()).isEqualTo(2);
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package com.example.langraph4j_researcher.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.langraph4j_researcher.config.ResearchProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ResearchJobSchedulerTests {
+
+	private final ResearchProperties researchProperties = new ResearchProperties();
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private ResearchJobScheduler scheduler;
+
+	@BeforeEach
+	void setUp() {
+		researchProperties.getScheduler().setMaxConcurrentJobs(1);
+		researchProperties.getScheduler().setQueueCapacity(8);
+	}
+
+	@AfterEach
+	void shutdown() {
+		scheduler.shutdown();
+	}
+
+	@Test
+	void sharesCapacityByTenantWeightAndPriority() throws Exception {
+		researchProperties.getScheduler().getTenantWeights().put("heavy", 2);
+		scheduler = new ResearchJobScheduler(researchProperties, meterRegistry);
+
+		// Holds the only slot until all jobs are queued
+		ResearchJobScheduler.JobSlot blocker = scheduler.acquire("other", 0).get(1, TimeUnit.SECONDS);
+
+		List<String> order = Collections.synchronizedList(new ArrayList<>());
+		List<CompletableFuture<?>> jobs = new ArrayList<>();
+		for (String job : List.of("heavy-1", "heavy-2", "heavy-3", "heavy-4")) {
+			jobs.add(scheduler.submit("heavy", 0, () -> order.add(job)));
+		}
+		jobs.add(scheduler.submit("light", 0, () -> order.add("light-1")));
+		jobs.add(scheduler.submit("light", 5, () -> order.add("light-urgent")));
+
+		assertThat(meterRegistry.get("research.scheduler.queue.depth").gauge().value()).isEqualTo(6);
+		blocker.release();
+		CompletableFuture.allOf(jobs.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+		assertThat(order).containsExactly("heavy-1", "light-urgent", "heavy-2", "heavy-3", "light-1", "heavy-4");
+		assertThat(meterRegistry.get("research.scheduler.wait").timer().count()).isEqualTo(7);
+	}
+
+	@Test
+	void rejectsJobsWhenTheQueueIsFull() throws Exception {
+		researchProperties.getScheduler().setQueueCapacity(1);
+		scheduler = new ResearchJobScheduler(researchProperties, meterRegistry);
+
+		ResearchJobScheduler.JobSlot blocker = scheduler.acquire("tenant", 0).get(1, TimeUnit.SECONDS);
+		CompletableFuture<String> queued = scheduler.submit("tenant", 0, () -> "done");
+
+		assertThatThrownBy(() -> scheduler.submit("tenant", 0, () -> "rejected"))
+			.isInstanceOfSatisfying(JobRejectedException.class,
+				e -> assertThat(e.getRetryAfter()).isPositive());
+		assertThat(meterRegistry.get("research.scheduler.rejected").counter().count()).isEqualTo(1);
+
+		blocker.release();
+		assertThat(queued.get(1, TimeUnit.SECONDS)).isEqualTo("done");
+	}
+
+	@Test
+	void cancelledJobsLeaveTheQueue() throws Exception {
+		scheduler = new ResearchJobScheduler(researchProperties, meterRegistry);
+
+		ResearchJobScheduler.JobSlot blocker = scheduler.acquire("tenant", 0).get(1, TimeUnit.SECONDS);
+		CompletableFuture<ResearchJobScheduler.JobSlot> waiting = scheduler.acquire("tenant", 0);
+		waiting.cancel(false);
+
+		assertThat(scheduler.getQueuedCount()).isZero();
+		blocker.release();
+		assertThat(scheduler.submit("tenant", 0, () -> "done").get(1, TimeUnit.SECONDS)).isEqualTo("done");
+	}
+
+	@Test
+	void sharesOneTenantBetweenUnknownApiKeys() {
+		researchProperties.getScheduler().getApiKeys().put("key-of-team-a", "team-a");
+		scheduler = new ResearchJobScheduler(researchProperties, meterRegistry);
+
+		assertThat(scheduler.tenantOf("key-of-team-a")).isEqualTo("team-a");
+		assertThat(scheduler.tenantOf("made-up-key")).isEqualTo(ResearchJobScheduler.SHARED_TENANT);
+		assertThat(scheduler.tenantOf(null)).isEqualTo(ResearchJobScheduler.SHARED_TENANT);
+
+		researchProperties.getScheduler().getApiKeys().put("key-of-team-b", BatchResearchService.BATCH_TENANT);
+		assertThatThrownBy(() -> new ResearchJobScheduler(researchProperties, meterRegistry))
+			.isInstanceOf(IllegalStateException.class);
+	}
+
+	@Test
+	void forgetsTenantsOnceTheirJobsAreDone() throws Exception {
+		scheduler = new ResearchJobScheduler(researchProperties, meterRegistry);
+
+		ResearchJobScheduler.JobSlot blocker = scheduler.acquire("tenant-0", 0).get(1, TimeUnit.SECONDS);
+		List<CompletableFuture<String>> jobs = new ArrayList<>();
+		for (int i = 1; i <= 4; i++) {
+			String tenant = "tenant-" + i;
+			jobs.add(scheduler.submit(tenant, 0, () -> tenant));
+		}
+		scheduler.acquire("tenant-5", 0).cancel(false);
+		assertThat(scheduler.getTenantCount()).isEqualTo(5);
+
+		blocker.release();
+		CompletableFuture.allOf(jobs.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+		assertThat(scheduler.getTenantCount()).isZero();
+	}
+}
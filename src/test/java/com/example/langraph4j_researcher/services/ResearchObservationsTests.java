@@ -0,0 +1,116 @@
+package com.example.langraph4j_researcher.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+@SpringBootTest(properties = {
+	"spring.ai.model.chat=none",
+	"researcher.cache.enabled=false",
+	"researcher.answers.enabled=false",
+	"researcher.checkpoint.enabled=false",
+	"management.tracing.sampling.probability=1.0"
+})
+class ResearchObservationsTests {
+
+	private static final String RUN = "run-1";
+
+	@Autowired
+	private ChatService chatService;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private SdkTracerProvider tracerProvider;
+
+	@Autowired
+	private InMemorySpanExporter spanExporter;
+
+	@Test
+	void observesNodesAndLlmCallsOfARun() {
+		assertThat(chatService.research("Why is the sky blue?", RUN)).isEqualTo("Because of Rayleigh scattering.");
+
+		assertThat(meterRegistry.get(ResearchObservations.NODE).tag("node", "researchNode").timer().count()).isEqualTo(1);
+		assertThat(meterRegistry.get(ResearchObservations.LLM_CALL).tag("node", "researchNode").timer().count()).isEqualTo(2);
+		assertThat(meterRegistry.get(ResearchObservations.TOKENS).tag("node", "finalAnswerNode").tag("type", "completion")
+			.summary().totalAmount()).isEqualTo(20);
+		assertThat(meterRegistry.get(ResearchObservations.PARSE_FAILURES).tag("node", "researchNode").counter().count())
+			.isEqualTo(1);
+		assertThat(meterRegistry.get(ResearchObservations.RESEARCH_ITERATIONS).summary().totalAmount()).isEqualTo(1);
+
+		tracerProvider.forceFlush().join(5, TimeUnit.SECONDS);
+		List<SpanData> spans = spanExporter.getFinishedSpanItems().stream()
+			.filter(span -> RUN.equals(span.getAttributes().get(AttributeKey.stringKey(ResearchObservations.RUN_ID_KEY))))
+			.toList();
+
+		// The run, its four nodes and their five LLM calls
+		assertThat(spans).hasSize(10);
+		assertThat(spans).extracting(SpanData::getTraceId).containsOnly(spans.get(0).getTraceId());
+		assertThat(spans).extracting(SpanData::getName).contains("research.run", "generate-query-node", "research-node",
+			"reflection-node", "final-answer-node", "research.llm");
+	}
+
+	@TestConfiguration
+	static class ObservationTestConfiguration {
+
+		@Bean
+		InMemorySpanExporter spanExporter() {
+			return InMemorySpanExporter.create();
+		}
+
+		@Bean
+		ChatModel chatModel() {
+			return new StubChatModel();
+		}
+	}
+
+	/**
+	 * Answers every node in one round, and fails to answer one of the two research queries in JSON.
+	 */
+	static class StubChatModel implements ChatModel {
+
+		@Override
+		public ChatResponse call(Prompt prompt) {
+			String text = respond(prompt.getContents());
+			return ChatResponse.builder()
+				.generations(List.of(new Generation(new AssistantMessage(text))))
+				.metadata(ChatResponseMetadata.builder().usage(new DefaultUsage(10, 20)).build())
+				.build();
+		}
+
+		private static String respond(String prompt) {
+			if (prompt.contains("generate sophisticated and diverse web search queries")) {
+				return "<json>{\"rationale\": \"\", \"query\": [\"Rayleigh scattering\", \"unanswerable\"]}</json>";
+			}
+			if (prompt.contains("analyzing summaries about")) {
+				return "<json>{\"isSufficient\": true, \"knowledgeGap\": \"\", \"followUpQueries\": []}</json>";
+			}
+			if (prompt.contains("Generate a high-quality answer")) {
+				return "<json>{\"synthesisedResponse\": \"Because of Rayleigh scattering.\"}</json>";
+			}
+			if (prompt.contains("unanswerable")) {
+				return "I cannot answer that.";
+			}
+			return "<json>{\"summary\": \"Short wavelengths scatter more.\"}</json>";
+		}
+	}
+}
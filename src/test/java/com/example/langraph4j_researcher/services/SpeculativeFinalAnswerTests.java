@@ -0,0 +1,100 @@
+package com.example.langraph4j_researcher.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+@SpringBootTest(properties = {
+	"spring.ai.model.chat=none",
+	"researcher.cache.enabled=false",
+	"researcher.answers.enabled=false",
+	"researcher.checkpoint.enabled=false",
+	"researcher.depth.speculative-final-answer=true"
+})
+class SpeculativeFinalAnswerTests {
+
+	private static final String FINAL_ANSWER_MARKER = "Generate a high-quality answer";
+
+	@Autowired
+	private ChatService chatService;
+
+	@Autowired
+	private RecordingChatModel chatModel;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Test
+	void usesTheAnswerGeneratedDuringTheLastReflectionOnly() {
+		assertThat(chatService.research("Why is the sky blue?", "run-speculative")).isEqualTo("Rayleigh scattering.");
+
+		// One answer per reflection, the one of the first reflection was discarded for the second research round
+		List<String> finalAnswerPrompts = chatModel.prompts.stream()
+			.filter(prompt -> prompt.contains(FINAL_ANSWER_MARKER))
+			.toList();
+		assertThat(finalAnswerPrompts).hasSize(2);
+		assertThat(finalAnswerPrompts.get(0)).doesNotContain("Sunsets are red at low angles.");
+		assertThat(finalAnswerPrompts.get(1)).contains("Sunsets are red at low angles.");
+
+		assertThat(meterRegistry.counter(SpeculativeFinalAnswers.SPECULATIONS, "outcome", "discarded").count())
+			.isEqualTo(1);
+		assertThat(meterRegistry.counter(SpeculativeFinalAnswers.SPECULATIONS, "outcome", "used").count())
+			.isEqualTo(1);
+	}
+
+	@TestConfiguration
+	static class SpeculationTestConfiguration {
+
+		@Bean
+		RecordingChatModel chatModel() {
+			return new RecordingChatModel();
+		}
+	}
+
+	/**
+	 * Asks for one follow-up query after the first research round and is satisfied after the second.
+	 */
+	static class RecordingChatModel implements ChatModel {
+
+		private final List<String> prompts = new CopyOnWriteArrayList<>();
+
+		@Override
+		public ChatResponse call(Prompt prompt) {
+			prompts.add(prompt.getContents());
+			return new ChatResponse(List.of(new Generation(new AssistantMessage(respond(prompt.getContents())))));
+		}
+
+		private static String respond(String prompt) {
+			if (prompt.contains("generate sophisticated and diverse web search queries")) {
+				return "<json>{\"rationale\": \"\", \"query\": [\"sky colour\"]}</json>";
+			}
+			if (prompt.contains("analyzing summaries about") && !prompt.contains("Sunsets are red at low angles.")) {
+				return """
+					<json>{"isSufficient": false, "knowledgeGap": "Why sunsets are red is unknown.",
+					"followUpQueries": ["sunset colour"], "coverage": "Sunlight is scattered by air."}</json>""";
+			}
+			if (prompt.contains("analyzing summaries about")) {
+				return "<json>{\"isSufficient\": true, \"knowledgeGap\": \"\", \"followUpQueries\": [], \"coverage\": \"\"}</json>";
+			}
+			if (prompt.contains(FINAL_ANSWER_MARKER)) {
+				return "<json>{\"synthesisedResponse\": \"Rayleigh scattering.\"}</json>";
+			}
+			if (prompt.contains("sunset colour")) {
+				return "<json>{\"summary\": \"Sunsets are red at low angles.\"}</json>";
+			}
+			return "<json>{\"summary\": \"Blue light scatters more.\"}</json>";
+		}
+	}
+}
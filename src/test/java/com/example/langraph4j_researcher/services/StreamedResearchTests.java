@@ -0,0 +1,164 @@
+package com.example.langraph4j_researcher.services;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+@SpringBootTest(properties = {
+	"spring.ai.model.chat=none",
+	"researcher.cache.enabled=false",
+	"researcher.answers.enabled=false",
+	"researcher.checkpoint.enabled=false",
+	"researcher.graph.max-research-node-execution-count=2",
+	"researcher.depth.adaptive=false"
+})
+class StreamedResearchTests {
+
+	@Autowired
+	private ChatService chatService;
+
+	@Autowired
+	private StreamingChatModel chatModel;
+
+	@AfterEach
+	void tearDown() {
+		if (chatModel.release != null) {
+			chatModel.release.countDown();
+		}
+		chatModel.reflecting = null;
+		chatModel.release = null;
+	}
+
+	@Test
+	void streamsTheProgressOfEveryNodeInTheOrderItHappens() {
+		List<ResearchEvent> events = chatService.researchStream("Why is the sky blue?", "run-streamed")
+			.collectList()
+			.block(Duration.ofSeconds(30));
+
+		assertThat(events).extracting(ResearchEvent::type).containsExactly(
+			ResearchEvent.RUN,
+			ResearchEvent.QUERIES,
+			ResearchEvent.SUMMARY,
+			ResearchEvent.REFLECTION,
+			ResearchEvent.SUMMARY,
+			ResearchEvent.REFLECTION,
+			ResearchEvent.TOKEN,
+			ResearchEvent.TOKEN,
+			ResearchEvent.FINAL_ANSWER);
+		assertThat(events.get(1).data()).isEqualTo(List.of("sky colour"));
+		assertThat(events.get(4).data()).isEqualTo("Sunsets are red at low angles.");
+		// The model is never satisfied, the second round is the last one because the run took the maximum rounds
+		assertThat(events.get(3).data()).isEqualTo(Map.of(
+			"isSufficient", false, "continueResearch", true, "followUpQueries", List.of("sunset colour")));
+		assertThat(events.get(5).data()).isEqualTo(Map.of(
+			"isSufficient", false, "continueResearch", false, "followUpQueries", List.of()));
+		assertThat(events.subList(6, 8)).extracting(ResearchEvent::data).containsExactly("Rayleigh ", "scattering.");
+		assertThat(events.get(8).data()).isEqualTo("Rayleigh scattering.");
+	}
+
+	@Test
+	void endsACancelledRunOnceTheNodeInProgressCompleted() throws InterruptedException {
+		chatModel.reflecting = new CountDownLatch(1);
+		chatModel.release = new CountDownLatch(1);
+		CountDownLatch runEnded = new CountDownLatch(1);
+		List<ResearchEvent> events = new CopyOnWriteArrayList<>();
+
+		Disposable subscription = chatService.researchStream("Why is the sky blue?", "run-cancelled", runEnded::countDown)
+			.subscribe(events::add);
+		assertThat(chatModel.reflecting.await(10, TimeUnit.SECONDS)).isTrue();
+		subscription.dispose();
+
+		assertThat(runEnded.await(200, TimeUnit.MILLISECONDS)).isFalse();
+		chatModel.release.countDown();
+		assertThat(runEnded.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(events).extracting(ResearchEvent::type).doesNotContain(ResearchEvent.REFLECTION);
+	}
+
+	@Test
+	void endsARunCancelledBeforeItStartedRightAway() {
+		AtomicInteger runEnds = new AtomicInteger();
+
+		chatService.researchStream("Why is the sky blue?", "run-not-started", runEnds::incrementAndGet)
+			.subscribe(null, null, null, Subscription::cancel);
+
+		assertThat(runEnds).hasValue(1);
+	}
+
+	@TestConfiguration
+	static class StreamingTestConfiguration {
+
+		@Bean
+		StreamingChatModel chatModel() {
+			return new StreamingChatModel();
+		}
+	}
+
+	/**
+	 * Always asks for another research round and streams the final answer in two chunks.
+	 */
+	static class StreamingChatModel implements ChatModel {
+
+		// Set to hold reflections until released
+		private volatile CountDownLatch reflecting;
+		private volatile CountDownLatch release;
+
+		@Override
+		public ChatResponse call(Prompt prompt) {
+			CountDownLatch reflectionRelease = release;
+			if (reflectionRelease != null && prompt.getContents().contains("analyzing summaries about")) {
+				reflecting.countDown();
+				try {
+					reflectionRelease.await(10, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return response(respond(prompt.getContents()));
+		}
+
+		@Override
+		public Flux<ChatResponse> stream(Prompt prompt) {
+			return Flux.just("<json>{\"synthesisedResponse\": \"Rayleigh ", "scattering.\"}</json>")
+				.map(StreamingChatModel::response);
+		}
+
+		private static ChatResponse response(String text) {
+			return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+		}
+
+		private static String respond(String prompt) {
+			if (prompt.contains("generate sophisticated and diverse web search queries")) {
+				return "<json>{\"rationale\": \"\", \"query\": [\"sky colour\"]}</json>";
+			}
+			if (prompt.contains("analyzing summaries about")) {
+				return """
+					<json>{"isSufficient": false, "knowledgeGap": "Why sunsets are red is unknown.",
+					"followUpQueries": ["sunset colour"], "coverage": "Sunlight is scattered by air."}</json>""";
+			}
+			if (prompt.contains("sunset colour")) {
+				return "<json>{\"summary\": \"Sunsets are red at low angles.\"}</json>";
+			}
+			return "<json>{\"summary\": \"Blue light scatters more.\"}</json>";
+		}
+	}
+}
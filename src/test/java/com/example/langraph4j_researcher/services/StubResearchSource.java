@@ -0,0 +1,26 @@
+package com.example.langraph4j_researcher.services;
+
+import com.example.langraph4j_researcher.model.Passage;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Research source with fixed passages per query, recording the queries it was asked for.
+ */
+class StubResearchSource implements ResearchSource {
+
+	private final Map<String, List<Passage>> passagesByQuery;
+	final List<String> queries = new CopyOnWriteArrayList<>();
+
+	StubResearchSource(Map<String, List<Passage>> passagesByQuery) {
+		this.passagesByQuery = passagesByQuery;
+	}
+
+	@Override
+	public List<Passage> retrieve(String query, int topK) {
+		queries.add(query);
+		List<Passage> passages = passagesByQuery.getOrDefault(query, List.of());
+		return passages.subList(0, Math.min(topK, passages.size()));
+	}
+}
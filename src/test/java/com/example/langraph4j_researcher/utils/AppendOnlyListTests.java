@@ -0,0 +1,59 @@
+package com.example.langraph4j_researcher.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class AppendOnlyListTests {
+
+	@Test
+	void earlierVersionsKeepTheirElements() {
+		AppendOnlyList<String> first = AppendOnlyList.<String>of().appendAll(List.of("a", "b"));
+		AppendOnlyList<String> second = first.appendAll(List.of("c"));
+		AppendOnlyList<String> third = second.appendAll(List.of("d", "e"));
+
+		assertThat(first).containsExactly("a", "b");
+		assertThat(second).containsExactly("a", "b", "c");
+		assertThat(third).containsExactly("a", "b", "c", "d", "e");
+	}
+
+	@Test
+	void appendsToTheSameVersionDoNotOverwriteEachOther() {
+		AppendOnlyList<Integer> base = AppendOnlyList.<Integer>of().appendAll(List.of(0));
+
+		List<AppendOnlyList<Integer>> branches = IntStream.rangeClosed(1, 16)
+			.mapToObj(branch -> CompletableFuture.supplyAsync(() -> base.appendAll(List.of(branch, branch))))
+			.map(CompletableFuture::join)
+			.toList();
+
+		assertThat(base).containsExactly(0);
+		for (int branch = 1; branch <= 16; branch++) {
+			assertThat(branches.get(branch - 1)).containsExactly(0, branch, branch);
+		}
+	}
+
+	@Test
+	void serializesOnlyItsOwnElements() throws Exception {
+		AppendOnlyList<String> shorter = AppendOnlyList.<String>of().appendAll(List.of("a"));
+		shorter.appendAll(List.of("b"));
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(shorter);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			@SuppressWarnings("unchecked")
+			AppendOnlyList<String> restored = (AppendOnlyList<String>) in.readObject();
+
+			assertThat(restored).containsExactly("a");
+			assertThat(restored.appendAll(List.of("c"))).containsExactly("a", "c");
+		}
+	}
+}
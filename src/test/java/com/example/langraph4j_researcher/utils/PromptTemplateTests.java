@@ -0,0 +1,36 @@
+package com.example.langraph4j_researcher.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class PromptTemplateTests {
+
+	@Test
+	void rendersNamedParametersAndKeepsOtherBracesLiteral() {
+		PromptTemplate template = PromptTemplate.compile("""
+			Answer "{user_question}" as of {current_date}.
+			Example: {"summary": "...", "sources": [{ }]}
+			Escaped: {{user_question}}""");
+
+		PromptTemplate.Rendered rendered = template.render(Map.of(
+			"user_question", "Why is the sky blue?", "current_date", "2025-06-01"));
+
+		assertThat(template.parameters()).containsExactly("user_question", "current_date");
+		assertThat(rendered.text()).isEqualTo("""
+			Answer "Why is the sky blue?" as of 2025-06-01.
+			Example: {"summary": "...", "sources": [{ }]}
+			Escaped: {user_question}""");
+		assertThat(rendered.tokens()).isEqualTo(TextSimilarity.estimateTokens(rendered.text()));
+	}
+
+	@Test
+	void rejectsMissingParameters() {
+		PromptTemplate template = PromptTemplate.compile("Summaries:\n{summaries}");
+
+		assertThatIllegalArgumentException().isThrownBy(() -> template.render(Map.of("user_question", "Why?")))
+			.withMessageContaining("{summaries}");
+	}
+}
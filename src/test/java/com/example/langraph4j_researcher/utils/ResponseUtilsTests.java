@@ -0,0 +1,104 @@
+package com.example.langraph4j_researcher.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import com.example.langraph4j_researcher.model.GeneratedQueries;
+import com.example.langraph4j_researcher.model.ReflectionVerdict;
+import com.example.langraph4j_researcher.model.SynthesisedAnswer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class ResponseUtilsTests {
+
+	@Test
+	void skipsTagsQuotedInThinkPreamble() {
+		String llmResponse = """
+			<think>
+			I must enclose the JSON object in <json></json> tags, like <json>{"query": ["wrong"]}</json>.
+			</think>
+			<json>
+			{"rationale": "Sky colour", "query": ["Why is the sky blue"]}
+			</json>""";
+
+		GeneratedQueries queries = ResponseUtils.extractJsonFromLLMResponse(llmResponse, GeneratedQueries.class);
+
+		assertThat(queries.query()).containsExactly("Why is the sky blue");
+	}
+
+	@Test
+	void toleratesTrailingCommasAndComments() {
+		String llmResponse = """
+			<json>
+			{
+			    "isSufficient": false, // or false
+			    "knowledgeGap": "Sunsets are not covered",
+			    "followUpQueries": ["Why are sunsets red?",],
+			}
+			</json>""";
+
+		ReflectionVerdict verdict = ResponseUtils.extractJsonFromLLMResponse(llmResponse, ReflectionVerdict.class);
+
+		assertThat(verdict.isSufficient()).isFalse();
+		assertThat(verdict.followUpQueries()).containsExactly("Why are sunsets red?");
+	}
+
+	@Test
+	void acceptsMissingClosingTagAndMissingTags() {
+		assertThat(ResponseUtils.extractJsonFromLLMResponse("<json>{\"synthesisedResponse\": \"Blue\"}",
+			SynthesisedAnswer.class).synthesisedResponse()).isEqualTo("Blue");
+		assertThat(ResponseUtils.extractJsonFromLLMResponse("Here you go: {\"synthesisedResponse\": \"Blue\"} Bye",
+			SynthesisedAnswer.class).synthesisedResponse()).isEqualTo("Blue");
+	}
+
+	@Test
+	void defaultsMissingFields() {
+		ReflectionVerdict verdict = ResponseUtils.extractJsonFromLLMResponse("<json>{\"isSufficient\": true}</json>",
+			ReflectionVerdict.class);
+
+		assertThat(verdict.isSufficient()).isTrue();
+		assertThat(verdict.followUpQueries()).isEmpty();
+	}
+
+	@Test
+	void rejectsResponseWithoutJson() {
+		assertThatIllegalArgumentException()
+			.isThrownBy(() -> ResponseUtils.extractJsonFromLLMResponse("I cannot answer that."));
+	}
+
+	@Test
+	void streamsAnswerTextWhateverTheChunkBoundaries() {
+		String llmResponse = "<think>The \"synthesisedResponse\" key is required</think>\n<json>\n"
+			+ "{\"synthesisedResponse\": \"Blue \\\"light\\\"\\nscatters \\u00e9\"}\n</json>";
+
+		for (int chunkSize = 1; chunkSize <= 8; chunkSize++) {
+			StreamingJsonExtractor extractor = new StreamingJsonExtractor(SynthesisedAnswer.FIELD);
+			List<String> answerText = new ArrayList<>();
+			for (int i = 0; i < llmResponse.length(); i += chunkSize) {
+				answerText.add(extractor.feed(llmResponse.substring(i, Math.min(llmResponse.length(), i + chunkSize))));
+			}
+
+			assertThat(String.join("", answerText)).isEqualTo("Blue \"light\"\nscatters \u00e9");
+			assertThat(extractor.response()).isEqualTo(llmResponse);
+		}
+	}
+
+	@Test
+	void searchesALongThinkPreambleOnce() {
+		String preamble = "<think>" + "The \"synthesisedResponse\" key is required. ".repeat(10_000) + "</think>";
+		String llmResponse = preamble + "{\"synthesisedResponse\": \"Blue\"}";
+
+		StringBuilder answerText = new StringBuilder();
+		assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+			StreamingJsonExtractor extractor = new StreamingJsonExtractor(SynthesisedAnswer.FIELD);
+			for (int i = 0; i < llmResponse.length(); i++) {
+				answerText.append(extractor.feed(llmResponse.substring(i, i + 1)));
+			}
+		});
+
+		assertThat(answerText).hasToString("Blue");
+	}
+}